@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+/**
+ * A stand-in for the soccer server on the loopback interface. It answers the monitor handshake and can then send a
+ * frame to the monitor over and over again from a background thread, increasing its turn in place for every datagram.
+ */
+class LoopbackSoccerServer implements AutoCloseable {
+
+    private static final String SHOW_PREFIX = "(show ";
+
+    // eight digits, so the match never reaches its last turn
+    private static final int FIRST_TURN = 10000000;
+
+    private final DatagramSocket socket;
+
+    private volatile SocketAddress target;
+
+    private volatile boolean sending;
+
+    private Thread sender;
+
+    LoopbackSoccerServer() throws IOException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    }
+
+    int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Connects a monitor to this server, answering its "(dispinit version 4)".
+     *
+     * @param monitor creates the monitor side of the connection
+     * @return the monitor connection
+     */
+    <T> T connect(Callable<T> monitor) throws Exception {
+        Thread handshake = new Thread(() -> {
+            try {
+                DatagramPacket init = new DatagramPacket(new byte[4096], 4096);
+                socket.receive(init);
+                byte[] reply = "(ok init)".getBytes(StandardCharsets.ISO_8859_1);
+                socket.send(new DatagramPacket(reply, reply.length,
+                        init.getSocketAddress()));
+                // the monitor now talks to this socket; remember it as target
+                target = init.getSocketAddress();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        handshake.start();
+        T connection = monitor.call();
+        handshake.join();
+        return connection;
+    }
+
+    /**
+     * Starts sending the given show frame to the connected monitor as fast as possible. Every datagram carries the next
+     * turn, as the monitor drops repeated turns as duplicates.
+     */
+    void startSending(String frame) {
+        byte[] bytes = frame.replaceFirst("\\(show \\d+ ", SHOW_PREFIX + FIRST_TURN + " ")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        sending = true;
+        sender = new Thread(() -> {
+            DatagramPacket packet = new DatagramPacket(bytes, bytes.length, target);
+            int turn = FIRST_TURN;
+            while (sending) {
+                int digits = ++turn;
+                for (int i = SHOW_PREFIX.length() + 7; i >= SHOW_PREFIX.length(); i--) {
+                    bytes[i] = (byte) ('0' + digits % 10);
+                    digits /= 10;
+                }
+                try {
+                    socket.send(packet);
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "loopback-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        sending = false;
+        if (sender != null) {
+            sender.join();
+        }
+        socket.close();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import robocup.server.connection.message.parser.ParserEngine;
+import robocup.server.connection.message.parser.RoboCupParserBenchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a show frame and handing it to a number of message handlers, without any network in between. The
+ * turn of the frame is increased in place for every invocation, so the connection sees a regular match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoccerServerConnectionBenchmark {
+
+    @Param({"ANTLR", "SCANNER"})
+    public ParserEngine engine;
+
+    @Param({"1", "4", "16"})
+    public int handlers;
+
+    @Param({"false", "true"})
+    public boolean framePooling;
+
+    private SoccerServerConnection connection;
+
+    private byte[] show;
+
+    private ByteBuffer buffer;
+
+    private int turn = 10000000;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        // no handshake, the connection is never used for receiving
+        connection = new SoccerServerConnection(
+                new UDPConnection("127.0.0.1", 6000),
+                new ConnectionSettings().setParserEngine(engine)
+                        .setFramePooling(framePooling));
+        for (int i = 0; i < handlers; i++) {
+            connection.registerMessageHandler(blackhole::consume);
+        }
+        // an eight digit turn to be overwritten
+        show = RoboCupParserBenchmark.readShow().replaceFirst("\\(show \\d+ ",
+                "(show " + turn + " ").getBytes(StandardCharsets.ISO_8859_1);
+        buffer = ByteBuffer.wrap(show);
+    }
+
+    @Benchmark
+    public int handleMessage() {
+        int digits = ++turn;
+        for (int i = "(show ".length() + 7; i >= "(show ".length(); i--) {
+            show[i] = (byte) ('0' + digits % 10);
+            digits /= 10;
+        }
+        return connection.handleMessage(buffer);
+    }
+}
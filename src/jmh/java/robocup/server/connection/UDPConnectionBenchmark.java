@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.openjdk.jmh.annotations.*;
+import robocup.server.connection.message.parser.ParserEngine;
+import robocup.server.connection.message.parser.RoboCupParserBenchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the receive loop against a loopback sender that floods the monitor port with show frames, once for receiving
+ * alone and once for receiving, parsing and dispatching to a single handler, for both transports.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UDPConnectionBenchmark {
+
+    @State(Scope.Thread)
+    public static class Receiving {
+
+        @Param({"DATAGRAM_SOCKET", "DATAGRAM_CHANNEL"})
+        public ConnectionSettings.Transport transport;
+
+        private LoopbackSoccerServer server;
+
+        private IUDPConnection udpConnection;
+
+        @Setup
+        public void setUp() throws Exception {
+            server = new LoopbackSoccerServer();
+            udpConnection = connect(server, transport);
+            server.startSending(RoboCupParserBenchmark.readShow());
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Observing {
+
+        @Param({"ANTLR", "SCANNER"})
+        public ParserEngine engine;
+
+        @Param({"DATAGRAM_SOCKET", "DATAGRAM_CHANNEL"})
+        public ConnectionSettings.Transport transport;
+
+        private LoopbackSoccerServer server;
+
+        private IUDPConnection udpConnection;
+
+        private SoccerServerConnection connection;
+
+        private int frames;
+
+        @Setup
+        public void setUp() throws Exception {
+            server = new LoopbackSoccerServer();
+            udpConnection = connect(server, transport);
+            connection = new SoccerServerConnection(udpConnection,
+                    new ConnectionSettings().setParserEngine(engine)
+                            .setTransport(transport));
+            connection.registerMessageHandler(message -> frames++);
+            server.startSending(RoboCupParserBenchmark.readShow());
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            server.close();
+        }
+    }
+
+    private static IUDPConnection connect(LoopbackSoccerServer server,
+                                          ConnectionSettings.Transport transport)
+            throws Exception {
+        return server.connect(() -> {
+            IUDPConnection monitor =
+                    transport == ConnectionSettings.Transport.DATAGRAM_CHANNEL
+                            ? new NioUDPConnection("127.0.0.1", server.getPort(), 0)
+                            : new UDPConnection("127.0.0.1", server.getPort());
+            monitor.send("(dispinit version 4)");
+            return monitor.receiveNewConnection();
+        });
+    }
+
+    @Benchmark
+    public ByteBuffer receiveMessage(Receiving state) throws IOException {
+        return state.udpConnection.receiveMessage();
+    }
+
+    @Benchmark
+    public int receiveAndHandleMessage(Observing state) throws IOException {
+        return state.connection.handleMessage(
+                state.udpConnection.receiveMessage());
+    }
+}
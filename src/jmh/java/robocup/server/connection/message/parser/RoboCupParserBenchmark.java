@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.parser;
+
+import org.openjdk.jmh.annotations.*;
+import robocup.server.connection.message.RoboCupMessage;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the parser engines turn received show and msg frames into messages. Run with "-prof gc" to get the
+ * allocation rate per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoboCupParserBenchmark {
+
+    static final String MSG = "(msg 0 1 \"(change_player_type l 1 1)\")";
+
+    @Param({"ANTLR", "SCANNER", "LAZY"})
+    public ParserEngine engine;
+
+    private IRoboCupParser parser;
+
+    private ByteBuffer show;
+
+    private ByteBuffer msg;
+
+    @Setup
+    public void setUp() {
+        parser = engine.create();
+        show = ByteBuffer.wrap(readShow().getBytes(StandardCharsets.ISO_8859_1));
+        msg = ByteBuffer.wrap(MSG.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Benchmark
+    public RoboCupMessage parseShow() {
+        return parser.parseMessage(show);
+    }
+
+    /**
+     * Parses a show message and reads only its header, like a handler that needs the score.
+     */
+    @Benchmark
+    public int parseShowHeader() {
+        RoboCupShowMessage message = (RoboCupShowMessage) parser.parseMessage(show);
+        return message.getTurn() + message.getLeftScore() + message.getRightScore();
+    }
+
+    @Benchmark
+    public RoboCupMessage parseMsg() {
+        return parser.parseMessage(msg);
+    }
+
+    /**
+     * @return the show message from the test resources
+     */
+    public static String readShow() {
+        return new Scanner(RoboCupParserBenchmark.class.getResourceAsStream
+                ("/example.message"), "UTF-8").useDelimiter("\\A").next();
+    }
+}
@@ -13,18 +13,19 @@ show: '(' 'show' stepNumber=Float
       (player)+
       ')';
 
-ball: '(' '(' 'b' ')' x=Float y=Float Float Float ')';
+ball: '(' '(' 'b' ')' x=Float y=Float vx=Float vy=Float ')';
 
-player: '(' '(' side=String number=Float ')' Float flags=Hexa x=Float y=Float
-(Float)+ playerView? playerS? playerFocus? playerCounter? ')';
+// values: velocity, body and neck angle and optionally the point-to position
+player: '(' '(' side=String number=Float ')' type=Float flags=Hexa x=Float y=Float
+(values+=Float)+ playerView? playerS? playerFocus? playerCounter? ')';
 
-playerView: '(' 'v' String Float ')';
+playerView: '(' 'v' quality=String width=Float ')';
 
-playerS: '(' 's' Float Float Float Float ')';
+playerS: '(' 's' stamina=Float effort=Float recovery=Float capacity=Float ')';
 
-playerFocus: '(' 'f' String Float ')';
+playerFocus: '(' 'f' side=String number=Float ')';
 
-playerCounter: '(' 'c' (Float)* ')';
+playerCounter: '(' 'c' (counters+=Float)* ')';
 
 msg: '(' 'msg' stepNumber=Float Float '"' '(' (info)* ')' '"' ')' ;
 
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.ISoccerServerConnection;
+import robocup.server.connection.LossSummary;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A soccer server running on this machine, together with the ports it listens on, the directory it writes its logs to
+ * and the monitor connection to it. Closing the instance closes the connection, kills the server and frees its ports.
+ */
+public class LocalServerInstance implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(LocalServerInstance.class);
+
+    private final SoccerServerProcess process;
+
+    private final ServerPorts ports;
+
+    private final String matchDirectory;
+
+    private final ISoccerServerConnection connection;
+
+    private final boolean allocatedPorts;
+
+    private final long startupMillis;
+
+    LocalServerInstance(SoccerServerProcess process, ServerPorts ports,
+                        String matchDirectory,
+                        ISoccerServerConnection connection,
+                        boolean allocatedPorts, long startupMillis) {
+        this.process = process;
+        this.ports = ports;
+        this.matchDirectory = matchDirectory;
+        this.connection = connection;
+        this.allocatedPorts = allocatedPorts;
+        this.startupMillis = startupMillis;
+    }
+
+    public ServerPorts getPorts() {
+        return ports;
+    }
+
+    public String getMatchDirectory() {
+        return matchDirectory;
+    }
+
+    public ISoccerServerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return the time in milliseconds from starting the server process until it answered the monitor connection
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Observes the match, see {@link ISoccerServerConnection#observe(boolean)}.
+     */
+    public void observe(boolean autoMode) {
+        connection.observe(autoMode);
+    }
+
+    /**
+     * Observes the match without blocking, see {@link ISoccerServerConnection#observeAsync(boolean)}.
+     */
+    public CompletableFuture<LossSummary> observeAsync(boolean autoMode) {
+        return connection.observeAsync(autoMode);
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.warn("Could not close the monitor connection", e);
+        }
+        process.destroy();
+        if (allocatedPorts) {
+            PortAllocator.release(ports);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import robocup.server.connection.LossSummary;
+
+/**
+ * The outcome of a match played by a {@link TournamentRunner}: the final score as shown in the last show message, how
+ * long the match took and how many show messages got lost, or the reason the match failed.
+ */
+public final class MatchResult {
+
+    private final MatchSpec spec;
+
+    private final int attempts;
+
+    private final long durationMillis;
+
+    private final String leftTeam;
+
+    private final String rightTeam;
+
+    private final int leftScore;
+
+    private final int rightScore;
+
+    private final LossSummary lossSummary;
+
+    private final Throwable failure;
+
+    MatchResult(MatchSpec spec, int attempts, long durationMillis,
+                String leftTeam, String rightTeam, int leftScore,
+                int rightScore, LossSummary lossSummary, Throwable failure) {
+        this.spec = spec;
+        this.attempts = attempts;
+        this.durationMillis = durationMillis;
+        this.leftTeam = leftTeam;
+        this.rightTeam = rightTeam;
+        this.leftScore = leftScore;
+        this.rightScore = rightScore;
+        this.lossSummary = lossSummary;
+        this.failure = failure;
+    }
+
+    public MatchSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return how often the server was launched for the match
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the time from the first launch of the server to the end of the match in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the name of the left team as sent by the server, or null if no show message has been received
+     */
+    public String getLeftTeam() {
+        return leftTeam;
+    }
+
+    /**
+     * @return the name of the right team as sent by the server, or null if no show message has been received
+     */
+    public String getRightTeam() {
+        return rightTeam;
+    }
+
+    public int getLeftScore() {
+        return leftScore;
+    }
+
+    public int getRightScore() {
+        return rightScore;
+    }
+
+    /**
+     * @return the loss summary of the observation, or null if the server could not be launched
+     */
+    public LossSummary getLossSummary() {
+        return lossSummary;
+    }
+
+    /**
+     * @return the reason the match could not be launched or observed to its end, or null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return true if the match has been observed to its end
+     */
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccessful()) {
+            return spec.getName() + ": failed after " + attempts + " attempt(s): "
+                    + failure;
+        }
+        return spec.getName() + ": " + leftTeam + " " + leftScore + ":" + rightScore
+                + " " + rightTeam + " in " + durationMillis / 1000.0 + " s, "
+                + lossSummary;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A match to be played by a {@link TournamentRunner}: the scripts that start the two teams, the settings of the server
+ * and the directory the server writes its logs to.
+ */
+public final class MatchSpec {
+
+    private final String name;
+
+    private final String matchDirectory;
+
+    private final ServerSettings serverSettings;
+
+    /**
+     * @param name            a name of the match for the report
+     * @param leftTeamScript  the script that starts the left team
+     * @param rightTeamScript the script that starts the right team
+     * @param matchDirectory  the directory the log files of the match are saved in
+     * @param serverSettings  the settings of the server, copied
+     */
+    public MatchSpec(String name, String leftTeamScript, String rightTeamScript,
+                     String matchDirectory, ServerSettings serverSettings) {
+        this.name = name;
+        this.matchDirectory = matchDirectory;
+        this.serverSettings = new ServerSettings(serverSettings)
+                .setTeamScripts(leftTeamScript, rightTeamScript);
+    }
+
+    /**
+     * Creates the matches of a round robin tournament, in which every team plays every other team once. The match of
+     * the teams i and j (i &lt; j) is named "match-i-j" and has a directory of that name below the base directory.
+     *
+     * @param teamScripts    the scripts that start the teams
+     * @param baseDirectory  the directory the match directories are created in
+     * @param serverSettings the settings of all servers
+     * @return the matches
+     */
+    public static List<MatchSpec> roundRobin(List<String> teamScripts,
+                                             String baseDirectory,
+                                             ServerSettings serverSettings) {
+        List<MatchSpec> matches = new ArrayList<>();
+        for (int i = 0; i < teamScripts.size(); i++) {
+            for (int j = i + 1; j < teamScripts.size(); j++) {
+                String name = "match-" + i + "-" + j;
+                matches.add(new MatchSpec(name, teamScripts.get(i),
+                        teamScripts.get(j),
+                        new File(baseDirectory, name).getPath(), serverSettings));
+            }
+        }
+        return matches;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMatchDirectory() {
+        return matchDirectory;
+    }
+
+    /**
+     * @return the settings of the server, including the team scripts
+     */
+    public ServerSettings getServerSettings() {
+        return new ServerSettings(serverSettings);
+    }
+
+    @Override
+    public String toString() {
+        return "MatchSpec [name=" + name + ", left=" + serverSettings.getLeftTeamScript()
+                + ", right=" + serverSettings.getRightTeamScript()
+                + ", directory=" + matchDirectory + "]";
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.ConnectionSettings;
+import robocup.server.connection.LossSummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Starts and observes several local soccer servers at once. Every instance gets its own ports from the {@link
+ * PortAllocator} and its own match directory "match-&lt;n&gt;" below a common base directory, so the instances do not
+ * interfere with each other.
+ */
+public final class ParallelServerLauncher {
+
+    private static final Logger log = Logger.getLogger(ParallelServerLauncher.class);
+
+    private ParallelServerLauncher() {
+        // no instantiation
+    }
+
+    /**
+     * Starts as many instances as there are processors available. See {@link #launch(int, String, boolean,
+     * ConnectionSettings)}.
+     */
+    public static List<LocalServerInstance> launch(String baseDirectory,
+                                                   boolean autoMode,
+                                                   ConnectionSettings settings)
+            throws IOException {
+        return launch(Runtime.getRuntime().availableProcessors(), baseDirectory,
+                autoMode, settings);
+    }
+
+    /**
+     * Starts the given number of soccer servers concurrently and connects to them. If one of them cannot be started,
+     * the already started ones are closed again.
+     *
+     * @param instances     the number of servers
+     * @param baseDirectory the directory the match directories of the servers are created in
+     * @param autoMode      if set to true the games will be started by the servers
+     * @param settings      the settings of the connections
+     * @return the running instances
+     * @throws IOException if one of the servers could not be started
+     */
+    public static List<LocalServerInstance> launch(int instances,
+                                                   String baseDirectory,
+                                                   boolean autoMode,
+                                                   ConnectionSettings settings)
+            throws IOException {
+        return launch(instances, baseDirectory, autoMode, new ServerSettings(),
+                settings);
+    }
+
+    /**
+     * Starts the given number of soccer servers with the given server settings concurrently and connects to them, see
+     * {@link #launch(int, String, boolean, ConnectionSettings)}. With {@link ServerSettings#fastForward()}, the
+     * matches run as fast as the teams and the processors allow instead of in real time.
+     *
+     * @param instances      the number of servers
+     * @param baseDirectory  the directory the match directories of the servers are created in
+     * @param autoMode       if set to true the games will be started by the servers
+     * @param serverSettings the settings of the servers
+     * @param settings       the settings of the connections
+     * @return the running instances
+     * @throws IOException if one of the servers could not be started
+     */
+    public static List<LocalServerInstance> launch(int instances,
+                                                   String baseDirectory,
+                                                   boolean autoMode,
+                                                   ServerSettings serverSettings,
+                                                   ConnectionSettings settings)
+            throws IOException {
+        if (instances < 1) {
+            throw new IllegalArgumentException("at least one instance needed");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<LocalServerInstance>> futures = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                String matchDirectory = new File(baseDirectory, "match-" + i).getPath();
+                futures.add(executor.submit(() -> RoboCupSoccerServerAdapter
+                        .startLocalServer(matchDirectory, autoMode, serverSettings,
+                                settings)));
+            }
+
+            List<LocalServerInstance> started = new ArrayList<>();
+            IOException failure = null;
+            for (Future<LocalServerInstance> future : futures) {
+                try {
+                    started.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new IOException("Could not start soccer server", e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (failure == null) {
+                        failure = new IOException("Interrupted while starting soccer servers");
+                    }
+                }
+            }
+            if (failure != null) {
+                started.forEach(LocalServerInstance::close);
+                throw failure;
+            }
+            log.info("Started " + instances + " soccer servers.");
+            return started;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Observes the matches of all given instances concurrently and returns when all of them are finished. Connections
+     * with the {@link robocup.server.connection.ConnectionSettings.Transport#DATAGRAM_CHANNEL} transport share the
+     * threads of the default {@link robocup.server.connection.ObservationEventLoop}, the others get a thread each.
+     *
+     * @param instances the running instances
+     * @param autoMode  if set to true the games are started by the servers
+     */
+    public static void observeAll(List<LocalServerInstance> instances,
+                                  boolean autoMode) {
+        List<CompletableFuture<LossSummary>> futures = new ArrayList<>();
+        for (LocalServerInstance instance : instances) {
+            futures.add(instance.observeAsync(autoMode));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Observing server on port "
+                            + instances.get(i).getPorts().getPort() + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
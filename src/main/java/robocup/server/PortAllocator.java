@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hands out sets of free UDP ports for soccer server instances running on the same machine. The ports are taken in
+ * blocks of three consecutive ports, starting with the default block 6000-6002. A block is free if no other instance
+ * of this JVM holds it and all three ports can be bound. Blocks have to be released when their server has terminated.
+ * <p>
+ * Note that a port found free may still be taken by another process before the server binds it.
+ */
+public final class PortAllocator {
+
+    private static final int FIRST_PORT = ServerPorts.DEFAULT.getPort();
+
+    private static final int LAST_PORT = 65535;
+
+    private static final Set<Integer> reserved = new HashSet<>();
+
+    private PortAllocator() {
+        // no instantiation
+    }
+
+    /**
+     * @return a free block of ports, reserved until it is released
+     * @throws IOException if there is no free block
+     */
+    public static synchronized ServerPorts allocate() throws IOException {
+        for (int port = FIRST_PORT; port + 2 <= LAST_PORT; port += 3) {
+            if (!reserved.contains(port) && isFree(port) && isFree(port + 1)
+                    && isFree(port + 2)) {
+                reserved.add(port);
+                return new ServerPorts(port, port + 1, port + 2);
+            }
+        }
+        throw new IOException("No free ports for another soccer server");
+    }
+
+    /**
+     * @param ports ports returned by {@link #allocate()}
+     */
+    public static synchronized void release(ServerPorts ports) {
+        reserved.remove(ports.getPort());
+    }
+
+    private static boolean isFree(int port) {
+        try (DatagramSocket socket = new DatagramSocket(port)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -17,10 +17,12 @@
 package robocup.server;
 
 import org.apache.log4j.Logger;
+import robocup.server.connection.ConnectionSettings;
 import robocup.server.connection.ISoccerServerConnection;
 import robocup.server.connection.SoccerServerConnectionManager;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the central class for communication with the RoboCup soccer server. The soccer server runs as external
@@ -50,7 +52,8 @@ public class RoboCupSoccerServerAdapter {
      * <p>
      * Note that, depending on the configuration of the soccer server instance ("auto_mode"), it may automatically kick
      * off the game after some waiting time. Observers should be connected to the server as fast as possible to ensure
-     * that they do not miss the first turns.
+     * that they do not miss the first turns. The connection is established as soon as the server answers, at most
+     * after the connect timeout of the {@link ConnectionSettings}.
      *
      * @param matchDirectory the directory the log files shall be saved in.
      * @param autoMode       if set to true the game will be started by the server
@@ -60,21 +63,107 @@ public class RoboCupSoccerServerAdapter {
     public static ISoccerServerConnection setUpLocalServer(String matchDirectory,
                                                            boolean autoMode)
             throws IOException {
+        return startLocalServer(matchDirectory, autoMode, ServerPorts.DEFAULT,
+                new ConnectionSettings()).getConnection();
+    }
 
-        // set up server process
-        new SoccerServerProcess(matchDirectory, autoMode);
+    /**
+     * Sets up a local soccer server on the given ports and establishes an UDP connection to it. See {@link
+     * #setUpLocalServer(String, boolean)}.
+     *
+     * @param matchDirectory the directory the log files shall be saved in.
+     * @param autoMode       if set to true the game will be started by the server
+     * @param ports          the ports of the server
+     * @param settings       the settings of the connection
+     * @return the running server instance
+     * @throws IOException
+     */
+    public static LocalServerInstance startLocalServer(String matchDirectory,
+                                                       boolean autoMode,
+                                                       ServerPorts ports,
+                                                       ConnectionSettings settings)
+            throws IOException {
+        return startLocalServer(matchDirectory, autoMode, ports,
+                new ServerSettings(), settings, false);
+    }
+
+    /**
+     * Sets up a local soccer server on ports from the {@link PortAllocator}, which are released when the instance is
+     * closed. See {@link #setUpLocalServer(String, boolean)}.
+     *
+     * @param matchDirectory the directory the log files shall be saved in.
+     * @param autoMode       if set to true the game will be started by the server
+     * @param settings       the settings of the connection
+     * @return the running server instance
+     * @throws IOException
+     */
+    public static LocalServerInstance startLocalServer(String matchDirectory,
+                                                       boolean autoMode,
+                                                       ConnectionSettings settings)
+            throws IOException {
+        return startLocalServer(matchDirectory, autoMode, new ServerSettings(),
+                settings);
+    }
 
-        // wait until the server process is ready
+    /**
+     * Sets up a local soccer server with the given server settings on ports from the {@link PortAllocator}, which are
+     * released when the instance is closed. See {@link #setUpLocalServer(String, boolean)}.
+     *
+     * @param matchDirectory the directory the log files shall be saved in.
+     * @param autoMode       if set to true the game will be started by the server
+     * @param serverSettings the settings of the server, e.g. {@link ServerSettings#fastForward()}
+     * @param settings       the settings of the connection
+     * @return the running server instance
+     * @throws IOException
+     */
+    public static LocalServerInstance startLocalServer(String matchDirectory,
+                                                       boolean autoMode,
+                                                       ServerSettings serverSettings,
+                                                       ConnectionSettings settings)
+            throws IOException {
+        ServerPorts ports = PortAllocator.allocate();
         try {
-            Thread.sleep(10000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            return startLocalServer(matchDirectory, autoMode, ports,
+                    serverSettings, settings, true);
+        } catch (IOException | RuntimeException e) {
+            PortAllocator.release(ports);
+            throw e;
         }
+    }
+
+    private static LocalServerInstance startLocalServer(String matchDirectory,
+                                                        boolean autoMode,
+                                                        ServerPorts ports,
+                                                        ServerSettings serverSettings,
+                                                        ConnectionSettings settings,
+                                                        boolean allocatedPorts)
+            throws IOException {
+
+        // set up server process
+        SoccerServerProcess process = new SoccerServerProcess(matchDirectory,
+                autoMode, ports, serverSettings);
+
+        long start = System.nanoTime();
+        try {
+            // connect to server process via UDP as soon as it answers
+            ISoccerServerConnection soccerServerConnection =
+                    SoccerServerConnectionManager.getConnectionTo("localhost",
+                            ports.getPort(), settings);
 
-        // connect to server process via UDP
-        ISoccerServerConnection soccerServerConnection =
-                SoccerServerConnectionManager.getConnectionTo("localhost", 6000);
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Soccer server on port " + ports.getPort() + " ready after "
+                    + startupMillis + " ms");
 
-        return soccerServerConnection;
+            return new LocalServerInstance(process, ports, matchDirectory,
+                    soccerServerConnection, allocatedPorts, startupMillis);
+        } catch (IOException | RuntimeException e) {
+            boolean terminated = !process.isAlive();
+            process.destroy();
+            if (terminated) {
+                throw new IOException("Soccer server on port " + ports.getPort()
+                        + " terminated during startup", e);
+            }
+            throw e;
+        }
     }
 }
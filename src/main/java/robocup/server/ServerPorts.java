@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+/**
+ * The UDP ports of a soccer server instance: the port for players and monitors, the port for the trainer (offline
+ * coach) and the port for the online coaches.
+ */
+public class ServerPorts {
+
+    /**
+     * The ports the soccer server uses unless configured otherwise.
+     */
+    public static final ServerPorts DEFAULT = new ServerPorts(6000, 6001, 6002);
+
+    private final int port;
+
+    private final int coachPort;
+
+    private final int onlineCoachPort;
+
+    public ServerPorts(int port, int coachPort, int onlineCoachPort) {
+        this.port = port;
+        this.coachPort = coachPort;
+        this.onlineCoachPort = onlineCoachPort;
+    }
+
+    /**
+     * @return the port for players and monitors (server::port)
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the port for the trainer (server::coach_port)
+     */
+    public int getCoachPort() {
+        return coachPort;
+    }
+
+    /**
+     * @return the port for the online coaches (server::olcoach_port)
+     */
+    public int getOnlineCoachPort() {
+        return onlineCoachPort;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ServerPorts)) {
+            return false;
+        }
+        ServerPorts other = (ServerPorts) o;
+        return port == other.port && coachPort == other.coachPort
+                && onlineCoachPort == other.onlineCoachPort;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * port + coachPort) + onlineCoachPort;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerPorts [port=" + port + ", coachPort=" + coachPort
+                + ", onlineCoachPort=" + onlineCoachPort + "]";
+    }
+}
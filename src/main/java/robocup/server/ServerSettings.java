@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a soccer server process. By default, the server runs in real time: every turn takes 100 ms, so a match
+ * takes about ten minutes. In synchronous mode, the server starts the next turn as soon as all players have sent their
+ * commands, and a match is only limited by the speed of the players and the server (see {@link #fastForward()}).
+ * <p>
+ * Further parameters of the server, e.g. "server::synch_micro_sleep", can be passed with {@link #setParameter(String,
+ * String)}. See the documentation of the soccer server for details on the parameters.
+ */
+public class ServerSettings {
+
+    private static final String SERVER_PREFIX = "server::";
+
+    /**
+     * Parameters set from the ports, the match directory, the team scripts and the auto mode of a server, which cannot
+     * be overridden.
+     */
+    private static final Set<String> MANAGED_PARAMETERS = new HashSet<>(Arrays.asList(
+            "server::port", "server::coach_port", "server::olcoach_port",
+            "server::game_log_dir", "server::text_log_dir", "server::auto_mode",
+            "server::team_l_start", "server::team_r_start"));
+
+    private boolean synchronous = false;
+
+    private int kickOffWait = 150;
+
+    private int gameOverWait = 0;
+
+    private boolean textLogging = true;
+
+    // relative to the server directory by default
+    private String leftTeamScript = "../team_l.sh";
+
+    private String rightTeamScript = "../team_r.sh";
+
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+
+    public ServerSettings() {
+        // default settings
+    }
+
+    /**
+     * @param settings the settings to copy
+     */
+    public ServerSettings(ServerSettings settings) {
+        this.synchronous = settings.synchronous;
+        this.kickOffWait = settings.kickOffWait;
+        this.gameOverWait = settings.gameOverWait;
+        this.textLogging = settings.textLogging;
+        this.leftTeamScript = settings.leftTeamScript;
+        this.rightTeamScript = settings.rightTeamScript;
+        this.parameters.putAll(settings.parameters);
+    }
+
+    /**
+     * @return settings for running matches as fast as possible: synchronous mode and no text logs. The game logs are
+     * still written.
+     */
+    public static ServerSettings fastForward() {
+        return new ServerSettings().setSynchronous(true).setTextLogging(false);
+    }
+
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * @param synchronous whether the server runs in synchronous mode ("server::synch_mode"). The turns then follow
+     *                    each other as fast as the players allow instead of every 100 ms. A monitor connection receives
+     *                    the show messages correspondingly faster, so its receive buffer may need to be larger (see
+     *                    {@link robocup.server.connection.ConnectionSettings#setReceiveBufferSize(int)}), and a slow
+     *                    player pauses the match (see {@link robocup.server.connection.ConnectionSettings#setReceiveTimeout(int)}).
+     */
+    public ServerSettings setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+        return this;
+    }
+
+    public int getKickOffWait() {
+        return kickOffWait;
+    }
+
+    /**
+     * @param kickOffWait the number of turns the server waits for the players before it kicks off in auto mode
+     *                    ("server::kick_off_wait")
+     */
+    public ServerSettings setKickOffWait(int kickOffWait) {
+        if (kickOffWait < 0) {
+            throw new IllegalArgumentException("The kick off wait must not be negative");
+        }
+        this.kickOffWait = kickOffWait;
+        return this;
+    }
+
+    public int getGameOverWait() {
+        return gameOverWait;
+    }
+
+    /**
+     * @param gameOverWait the number of turns the server keeps running after the match has ended
+     *                     ("server::game_over_wait")
+     */
+    public ServerSettings setGameOverWait(int gameOverWait) {
+        if (gameOverWait < 0) {
+            throw new IllegalArgumentException("The game over wait must not be negative");
+        }
+        this.gameOverWait = gameOverWait;
+        return this;
+    }
+
+    public boolean isTextLogging() {
+        return textLogging;
+    }
+
+    /**
+     * @param textLogging whether the server writes the commands of the players to a text log ("server::text_logging")
+     */
+    public ServerSettings setTextLogging(boolean textLogging) {
+        this.textLogging = textLogging;
+        return this;
+    }
+
+    public String getLeftTeamScript() {
+        return leftTeamScript;
+    }
+
+    public String getRightTeamScript() {
+        return rightTeamScript;
+    }
+
+    /**
+     * @param leftTeamScript  the script that starts the left team, instead of "team_l.sh" next to the server directory
+     * @param rightTeamScript the script that starts the right team, instead of "team_r.sh" next to the server
+     *                        directory
+     */
+    public ServerSettings setTeamScripts(String leftTeamScript,
+                                         String rightTeamScript) {
+        this.leftTeamScript = new File(leftTeamScript).getAbsolutePath();
+        this.rightTeamScript = new File(rightTeamScript).getAbsolutePath();
+        return this;
+    }
+
+    /**
+     * @return the additional parameters, with their full names
+     */
+    public Map<String, String> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Sets an additional parameter of the server. It is passed after the parameters of these settings and thus
+     * overrides them.
+     *
+     * @param name  the name of the parameter, e.g. "server::synch_offset" or just "synch_offset" for a parameter of the
+     *              "server" module
+     * @param value the value of the parameter
+     * @throws IllegalArgumentException if the parameter is set from the ports, the match directory, the team scripts
+     *                                  or the auto mode of the server
+     */
+    public ServerSettings setParameter(String name, String value) {
+        String fullName = name.contains("::") ? name : SERVER_PREFIX + name;
+        if (MANAGED_PARAMETERS.contains(fullName)) {
+            throw new IllegalArgumentException("The parameter " + fullName
+                    + " is set by the server launcher");
+        }
+        if (value == null || value.isEmpty() || value.contains(" ")) {
+            throw new IllegalArgumentException("Invalid value for " + fullName + ": " + value);
+        }
+        parameters.put(fullName, value);
+        return this;
+    }
+
+    /**
+     * @return the command line arguments of the server for these settings
+     */
+    List<String> getArguments() {
+        List<String> arguments = new ArrayList<>();
+        // soccer server manages teams:
+        arguments.add(SERVER_PREFIX + "team_l_start=" + leftTeamScript);
+        arguments.add(SERVER_PREFIX + "team_r_start=" + rightTeamScript);
+        arguments.add(SERVER_PREFIX + "kick_off_wait=" + kickOffWait);
+        arguments.add(SERVER_PREFIX + "game_over_wait=" + gameOverWait);
+        if (synchronous) {
+            arguments.add(SERVER_PREFIX + "synch_mode=on");
+        }
+        if (!textLogging) {
+            arguments.add(SERVER_PREFIX + "text_logging=off");
+        }
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            arguments.add(parameter.getKey() + "=" + parameter.getValue());
+        }
+        return arguments;
+    }
+}
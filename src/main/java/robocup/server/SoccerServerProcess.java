@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A class to configure and start the binaries for the soccer server and the teams. Extremely platform (Linux)
@@ -41,12 +42,23 @@ class SoccerServerProcess {
 
     private static final String LIBRARY_DIRECTORY = "lib64/"; //TODO
 
-    private static final String LEFT_TEAM_EXECUTABLE = "team_l.sh";
+    /**
+     * Environment variables that pass the ports of the server to the team scripts, which are started by the server and
+     * inherit its environment.
+     */
+    static final String PORT_VARIABLE = "RCSS_PORT";
+
+    static final String COACH_PORT_VARIABLE = "RCSS_COACH_PORT";
+
+    static final String ONLINE_COACH_PORT_VARIABLE = "RCSS_OLCOACH_PORT";
+
+    private final Process serverProcess;
 
-    private static final String RIGHT_TEAM_EXECUTABLE = "team_r.sh";
+    private final Thread shutDownHook;
 
     /**
-     * Executes the server binary. See documentation of the soccer server for details on the parameters.
+     * Executes the server binary with the default ports. See documentation of the soccer server for details on the
+     * parameters.
      *
      * @param matchDirectoryPath
      * @param autoMode
@@ -54,36 +66,92 @@ class SoccerServerProcess {
      */
     public SoccerServerProcess(String matchDirectoryPath, boolean autoMode)
             throws IOException {
+        this(matchDirectoryPath, autoMode, ServerPorts.DEFAULT);
+    }
+
+    /**
+     * Executes the server binary. See documentation of the soccer server for details on the parameters.
+     *
+     * @param matchDirectoryPath
+     * @param autoMode
+     * @param ports              the ports the server listens on
+     * @throws IOException
+     */
+    public SoccerServerProcess(String matchDirectoryPath, boolean autoMode,
+                               ServerPorts ports) throws IOException {
+        this(matchDirectoryPath, autoMode, ports, new ServerSettings());
+    }
+
+    /**
+     * Executes the server binary. See documentation of the soccer server for details on the parameters.
+     *
+     * @param matchDirectoryPath
+     * @param autoMode
+     * @param ports              the ports the server listens on
+     * @param settings           further parameters of the server, e.g. synchronous mode
+     * @throws IOException
+     */
+    public SoccerServerProcess(String matchDirectoryPath, boolean autoMode,
+                               ServerPorts ports, ServerSettings settings)
+            throws IOException {
 
         File matchDirectory = checkOrCreateDirectory(matchDirectoryPath);
 
-        Process serverProcess = buildServerProcess(matchDirectory, autoMode);
+        serverProcess = buildServerProcess(matchDirectory, autoMode, ports,
+                settings);
+
+        shutDownHook = addShutDownHook(serverProcess);
+    }
+
+    /**
+     * Kills the server process (and with it the teams) and waits a few seconds for it to terminate.
+     */
+    public void destroy() {
+        serverProcess.destroy();
+        try {
+            serverProcess.waitFor(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutDownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down
+        }
+    }
 
-        addShutDownHook(serverProcess);
+    public boolean isAlive() {
+        return serverProcess.isAlive();
     }
 
-    private Process buildServerProcess(File matchDirectory, boolean autoMode)
+    private Process buildServerProcess(File matchDirectory, boolean autoMode,
+                                       ServerPorts ports, ServerSettings settings)
             throws IOException {
         List<String> command = new ArrayList<>();
         command.add(SERVER_EXECUTABLE);
-        // soccer server manages teams:
-        command.add("server::team_l_start=../" + LEFT_TEAM_EXECUTABLE);
-        command.add("server::team_r_start=../" + RIGHT_TEAM_EXECUTABLE);
-        command.add("server::kick_off_wait=150"); // server waits 15 seconds
         if (autoMode) {
             command.add("server::auto_mode=on");
         }
-        command.add("server::game_over_wait=0");
         command.add("server::game_log_dir=" + matchDirectory.getAbsolutePath());
         command.add("server::text_log_dir=" + matchDirectory.getAbsolutePath());
+        command.add("server::port=" + ports.getPort());
+        command.add("server::coach_port=" + ports.getCoachPort());
+        command.add("server::olcoach_port=" + ports.getOnlineCoachPort());
+        command.addAll(settings.getArguments());
+        log.debug("Server command: " + String.join(" ", command));
 
         ProcessBuilder builder = new ProcessBuilder();
         builder.environment().put("LD_LIBRARY_PATH", LIBRARY_DIRECTORY);
+        builder.environment().put(PORT_VARIABLE, String.valueOf(ports.getPort()));
+        builder.environment().put(COACH_PORT_VARIABLE,
+                String.valueOf(ports.getCoachPort()));
+        builder.environment().put(ONLINE_COACH_PORT_VARIABLE,
+                String.valueOf(ports.getOnlineCoachPort()));
         builder.command(command);
         builder.directory(new File(SERVER_DIRECTORY));
         builder.redirectErrorStream(true);
         Process process = builder.start();
-        redirectStream(process.getInputStream());
+        redirectStream(process.getInputStream(), ports);
 
         return process;
     }
@@ -119,8 +187,9 @@ class SoccerServerProcess {
      * Redirect the given output stream to System.out (in a new thread)
      *
      * @param stream
+     * @param ports  the ports of the server, to tell the output of several servers apart
      */
-    private void redirectStream(final InputStream stream) {
+    private void redirectStream(final InputStream stream, ServerPorts ports) {
 
         Runnable streamReader = () -> {
             BufferedReader errorReader =
@@ -128,7 +197,7 @@ class SoccerServerProcess {
             String line;
             try {
                 while ((line = errorReader.readLine()) != null) {
-                    log.info("Soccer Server: " + line);
+                    log.info("Soccer Server " + ports.getPort() + ": " + line);
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -144,12 +213,15 @@ class SoccerServerProcess {
      * Kill server process when java is terminated (red button in eclipse)
      *
      * @param serverProcess
+     * @return the registered hook
      */
-    private void addShutDownHook(Process serverProcess) {
+    private Thread addShutDownHook(Process serverProcess) {
 
         Runnable shutDownHook = serverProcess::destroy;
 
-        Runtime.getRuntime().addShutdownHook(new Thread(shutDownHook));
+        Thread hook = new Thread(shutDownHook);
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
     }
 
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of a tournament so far, updated by the {@link TournamentRunner} as the matches finish: the results of the
+ * single matches, a table of the teams and the show messages lost over all matches. Teams are identified by the names
+ * the server sends. A win is worth three points, a draw one.
+ */
+public class TournamentReport {
+
+    private final List<MatchResult> results = new ArrayList<>();
+
+    private final Map<String, Standing> standings = new HashMap<>();
+
+    private int failed;
+
+    private long durationMillis;
+
+    private long received;
+
+    private long missing;
+
+    /**
+     * The record of one team in the tournament.
+     */
+    public static final class Standing {
+
+        private final String team;
+
+        private int wins;
+
+        private int draws;
+
+        private int losses;
+
+        private int goalsFor;
+
+        private int goalsAgainst;
+
+        private Standing(String team) {
+            this.team = team;
+        }
+
+        private Standing(Standing standing) {
+            this.team = standing.team;
+            this.wins = standing.wins;
+            this.draws = standing.draws;
+            this.losses = standing.losses;
+            this.goalsFor = standing.goalsFor;
+            this.goalsAgainst = standing.goalsAgainst;
+        }
+
+        private void add(int scored, int conceded) {
+            if (scored > conceded) {
+                wins++;
+            } else if (scored == conceded) {
+                draws++;
+            } else {
+                losses++;
+            }
+            goalsFor += scored;
+            goalsAgainst += conceded;
+        }
+
+        public String getTeam() {
+            return team;
+        }
+
+        public int getPlayed() {
+            return wins + draws + losses;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getGoalsFor() {
+            return goalsFor;
+        }
+
+        public int getGoalsAgainst() {
+            return goalsAgainst;
+        }
+
+        public int getPoints() {
+            return 3 * wins + draws;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %3d %3d %3d %3d %4d:%-4d %4d", team,
+                    getPlayed(), wins, draws, losses, goalsFor, goalsAgainst,
+                    getPoints());
+        }
+    }
+
+    /**
+     * Adds the result of a finished match.
+     */
+    synchronized void add(MatchResult result) {
+        results.add(result);
+        durationMillis += result.getDurationMillis();
+        if (result.getLossSummary() != null) {
+            received += result.getLossSummary().getReceived();
+            missing += result.getLossSummary().getMissing();
+        }
+        if (!result.isSuccessful()) {
+            failed++;
+            return;
+        }
+        standings.computeIfAbsent(result.getLeftTeam(), Standing::new)
+                .add(result.getLeftScore(), result.getRightScore());
+        standings.computeIfAbsent(result.getRightTeam(), Standing::new)
+                .add(result.getRightScore(), result.getLeftScore());
+    }
+
+    /**
+     * @return the results of the finished matches, in the order they finished
+     */
+    public synchronized List<MatchResult> getResults() {
+        return Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    /**
+     * @return the number of matches that could not be launched or observed to their end
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the sum of the durations of all finished matches in milliseconds
+     */
+    public synchronized long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the show messages received over all matches
+     */
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the show messages lost over all matches
+     */
+    public synchronized long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the teams ordered by points, goal difference and goals scored
+     */
+    public synchronized List<Standing> getStandings() {
+        List<Standing> table = new ArrayList<>();
+        for (Standing standing : standings.values()) {
+            table.add(new Standing(standing));
+        }
+        table.sort(Comparator.comparingInt(Standing::getPoints)
+                .thenComparingInt(standing -> standing.getGoalsFor()
+                        - standing.getGoalsAgainst())
+                .thenComparingInt(Standing::getGoalsFor)
+                .reversed()
+                .thenComparing(Standing::getTeam));
+        return table;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(results.size()).append(" matches (").append(failed)
+                .append(" failed), ").append(missing).append(" of ")
+                .append(received + missing).append(" show messages lost\n");
+        builder.append(String.format("%-20s %3s %3s %3s %3s %9s %4s%n", "team",
+                "P", "W", "D", "L", "goals", "pts"));
+        for (Standing standing : getStandings()) {
+            builder.append(standing).append('\n');
+        }
+        return builder.toString();
+    }
+}
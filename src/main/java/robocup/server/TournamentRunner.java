@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.ConnectionSettings;
+import robocup.server.connection.HandlerSettings;
+import robocup.server.connection.LossSummary;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Plays a batch of matches, e.g. a round robin tournament (see {@link MatchSpec#roundRobin(List, String,
+ * ServerSettings)}) or a parameter sweep, on a bounded number of local soccer servers at a time. Idle workers take the
+ * next pending match, so a batch of matches of different lengths keeps all workers busy. Each worker is a thread of
+ * its own that blocks while its match is played, so no more than the given number of servers run at the same time. A
+ * server that cannot be launched is launched again, up to a maximum number of attempts.
+ * <p>
+ * The results are passed to a listener and added to a {@link TournamentReport} as the matches finish.
+ */
+public class TournamentRunner {
+
+    private static final Logger log = Logger.getLogger(TournamentRunner.class);
+
+    private final int workers;
+
+    private final int maxAttempts;
+
+    private final boolean autoMode;
+
+    private final ConnectionSettings settings;
+
+    private final MatchAttempt attempt;
+
+    /**
+     * Creates a runner with as many workers as there are processors available, which launches every server up to three
+     * times and lets the servers start the matches.
+     *
+     * @param settings the settings of the connections
+     */
+    public TournamentRunner(ConnectionSettings settings) {
+        this(Runtime.getRuntime().availableProcessors(), 3, true, settings);
+    }
+
+    /**
+     * @param workers     the number of matches played at the same time
+     * @param maxAttempts how often a server is launched before its match is given up
+     * @param autoMode    if set to true the games will be started by the servers
+     * @param settings    the settings of the connections
+     */
+    public TournamentRunner(int workers, int maxAttempts, boolean autoMode,
+                            ConnectionSettings settings) {
+        this(workers, maxAttempts, autoMode, new ConnectionSettings(settings),
+                null);
+    }
+
+    /**
+     * Creates a runner that plays the matches with the given attempt instead of launching local servers.
+     */
+    TournamentRunner(int workers, int maxAttempts, MatchAttempt attempt) {
+        this(workers, maxAttempts, false, null, attempt);
+    }
+
+    private TournamentRunner(int workers, int maxAttempts, boolean autoMode,
+                             ConnectionSettings settings,
+                             MatchAttempt attempt) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("at least one worker needed");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("at least one attempt needed");
+        }
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.autoMode = autoMode;
+        this.settings = settings;
+        this.attempt = attempt == null ? this::launchAndObserve : attempt;
+    }
+
+    /**
+     * Plays the given matches, see {@link #run(List, Consumer)}.
+     */
+    public TournamentReport run(List<MatchSpec> matches)
+            throws InterruptedException {
+        return run(matches, result -> {
+            // the report is enough
+        });
+    }
+
+    /**
+     * Plays the given matches and returns when all of them are finished. Failed matches are part of the report as
+     * well.
+     *
+     * @param matches  the matches
+     * @param listener called on the calling thread with each result as soon as its match has finished, after the
+     *                 result has been added to the report
+     * @return the report of all matches
+     * @throws InterruptedException if the calling thread is interrupted; the running servers are then killed
+     */
+    public TournamentReport run(List<MatchSpec> matches,
+                                Consumer<MatchResult> listener)
+            throws InterruptedException {
+        TournamentReport report = new TournamentReport();
+        if (matches.isEmpty()) {
+            return report;
+        }
+        // not a fork join pool: blocking in a fork join worker makes the pool add threads, i.e. run more servers
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(workers, matches.size()));
+        CompletionService<MatchResult> completion =
+                new ExecutorCompletionService<>(executor);
+        try {
+            for (MatchSpec match : matches) {
+                completion.submit(() -> play(match));
+            }
+            for (int i = 0; i < matches.size(); i++) {
+                MatchResult result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    // play() reports its failures in the result, only errors get here
+                    throw new IllegalStateException(e.getCause());
+                }
+                log.info(result);
+                report.add(result);
+                listener.accept(result);
+            }
+            log.info("Tournament finished: " + report);
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays a match, retrying if its server cannot be launched. Any other failure ends the match.
+     */
+    private MatchResult play(MatchSpec match) {
+        long start = System.nanoTime();
+        IOException launchFailure = null;
+        for (int number = 1; number <= maxAttempts; number++) {
+            try {
+                return attempt.play(match, number, start);
+            } catch (IOException e) {
+                log.warn("Attempt " + number + " to launch " + match.getName()
+                        + " failed", e);
+                if (launchFailure == null) {
+                    launchFailure = e;
+                } else {
+                    launchFailure.addSuppressed(e);
+                }
+            } catch (RuntimeException e) {
+                log.error("Attempt " + number + " to play " + match.getName()
+                        + " failed", e);
+                if (launchFailure != null) {
+                    e.addSuppressed(launchFailure);
+                }
+                return new MatchResult(match, number, elapsedMillis(start), null,
+                        null, 0, 0, null, e);
+            }
+        }
+        return new MatchResult(match, maxAttempts, elapsedMillis(start), null,
+                null, 0, 0, null, launchFailure);
+    }
+
+    /**
+     * Launches the server of a match and observes the match.
+     */
+    private MatchResult launchAndObserve(MatchSpec match, int attempt,
+                                         long start) throws IOException {
+        try (LocalServerInstance instance = RoboCupSoccerServerAdapter
+                .startLocalServer(match.getMatchDirectory(), autoMode,
+                        match.getServerSettings(), settings)) {
+            return observe(match, attempt, start, instance);
+        }
+    }
+
+    private MatchResult observe(MatchSpec match, int attempt, long start,
+                                LocalServerInstance instance) {
+        ScoreKeeper score = new ScoreKeeper();
+        instance.getConnection().registerMessageHandler(score,
+                new HandlerSettings().setSubscription(FrameSubscription.none()));
+        Throwable failure = null;
+        try {
+            instance.observeAsync(autoMode).get();
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        }
+        LossSummary lossSummary = instance.getConnection().getLossSummary();
+        return new MatchResult(match, attempt, elapsedMillis(start),
+                score.leftTeam, score.rightTeam, score.leftScore,
+                score.rightScore, lossSummary, failure);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * One attempt to play a match.
+     */
+    @FunctionalInterface
+    interface MatchAttempt {
+
+        /**
+         * @param match   the match
+         * @param attempt the number of the attempt, starting at 1
+         * @param start   the {@link System#nanoTime()} the first attempt started at
+         * @return the result of the match
+         * @throws IOException if the server could not be launched; the match is then attempted again
+         */
+        MatchResult play(MatchSpec match, int attempt, long start)
+                throws IOException;
+    }
+
+    /**
+     * Remembers the teams and the score of the latest show message.
+     */
+    private static class ScoreKeeper implements IRoboCupMessageHandler {
+
+        private volatile String leftTeam;
+
+        private volatile String rightTeam;
+
+        private volatile int leftScore;
+
+        private volatile int rightScore;
+
+        @Override
+        public void handleMessage(RoboCupShowMessage message) {
+            leftTeam = message.getLeftTeam();
+            rightTeam = message.getRightTeam();
+            leftScore = message.getLeftScore();
+            rightScore = message.getRightScore();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+/**
+ * The distance each player has covered, summed over consecutive turns. Across lost turns nothing is added, and steps
+ * longer than a player can run in one turn are taken as the server moving the player, e.g. before a kick off, and are
+ * not counted either.
+ */
+public class DistanceCovered implements IRoboCupMessageHandler,
+        IMergeable<DistanceCovered> {
+
+    // a player runs at most about 1.2 m per turn
+    private static final float MAX_STEP = 5;
+
+    private final double[] distances = new double[EntityIndex.COUNT];
+
+    private final float[] lastX = new float[EntityIndex.COUNT];
+
+    private final float[] lastY = new float[EntityIndex.COUNT];
+
+    // the players present in the last turn
+    private int lastPresent;
+
+    private int lastTurn = -1;
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        int turn = message.getTurn();
+        boolean consecutive = turn == lastTurn + 1;
+        int present = 0;
+        int remaining = SpatialIndex.PLAYERS;
+        while (remaining != 0) {
+            int player = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (!message.isPresent(player)) {
+                continue;
+            }
+            float x = message.getX(player);
+            float y = message.getY(player);
+            if (consecutive && (lastPresent & (1 << player)) != 0) {
+                double step = Math.hypot(x - lastX[player], y - lastY[player]);
+                if (step <= MAX_STEP) {
+                    distances[player] += step;
+                }
+            }
+            lastX[player] = x;
+            lastY[player] = y;
+            present |= 1 << player;
+        }
+        lastPresent = present;
+        lastTurn = turn;
+    }
+
+    @Override
+    public void handleMissingTurns(int firstTurn, int lastTurn) {
+        // the next step is not from the previous turn
+        this.lastTurn = -1;
+    }
+
+    @Override
+    public void merge(DistanceCovered other, boolean swapSides) {
+        for (int player = 0; player < EntityIndex.COUNT; player++) {
+            distances[swapSides ? EntityIndex.opposite(player) : player] +=
+                    other.distances[player];
+        }
+    }
+
+    /**
+     * @param player an index as defined in {@link EntityIndex}
+     * @return the distance the player has covered in meters
+     */
+    public double getDistance(int player) {
+        return distances[player];
+    }
+
+    /**
+     * @return the distance all players of the given side have covered in meters
+     */
+    public double getDistance(Side side) {
+        double sum = 0;
+        for (int uniform = 1; uniform <= EntityIndex.PLAYERS_PER_TEAM; uniform++) {
+            sum += distances[EntityIndex.player(side, uniform)];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+/**
+ * {@link RunningStatistics} of a value per entity and frame, e.g. the average position of every player with one
+ * instance for {@code RoboCupShowMessage::getX} and one for {@code RoboCupShowMessage::getY}. Only the frames in which
+ * an entity is present count for it.
+ * <p>
+ * Merging with swapped sides moves the statistics of every player to the player with the same uniform number in the
+ * other team. Values that refer to the pitch, like coordinates, also change their sign then, as every team sees the
+ * pitch from its own side; this is what the {@code mirrored} flag of the constructor is for. Otherwise the values are
+ * merged unchanged.
+ */
+public class EntityStatistics implements IRoboCupMessageHandler,
+        IMergeable<EntityStatistics> {
+
+    /**
+     * The value of an entity in a frame.
+     */
+    @FunctionalInterface
+    public interface EntityMetric {
+
+        /**
+         * @param message the frame
+         * @param entity  an index as defined in {@link EntityIndex}, present in the frame
+         * @return the value of the entity
+         */
+        double value(RoboCupShowMessage message, int entity);
+    }
+
+    private final EntityMetric metric;
+
+    private final int entities;
+
+    private final boolean mirrored;
+
+    private final RunningStatistics[] statistics =
+            new RunningStatistics[EntityIndex.COUNT];
+
+    /**
+     * @param metric   the value of an entity in a frame
+     * @param entities a mask of the entities to keep statistics for, see {@link
+     *                 robocup.server.connection.message.SpatialIndex}
+     */
+    public EntityStatistics(EntityMetric metric, int entities) {
+        this(metric, entities, false);
+    }
+
+    /**
+     * @param metric   the value of an entity in a frame
+     * @param entities a mask of the entities to keep statistics for, see {@link
+     *                 robocup.server.connection.message.SpatialIndex}
+     * @param mirrored true if the value changes its sign when the teams swap sides, e.g. an x or y coordinate
+     */
+    public EntityStatistics(EntityMetric metric, int entities,
+                            boolean mirrored) {
+        this.metric = metric;
+        this.entities = entities;
+        this.mirrored = mirrored;
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            statistics[entity] = new RunningStatistics();
+        }
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        int remaining = entities;
+        while (remaining != 0) {
+            int entity = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (message.isPresent(entity)) {
+                statistics[entity].add(metric.value(message, entity));
+            }
+        }
+    }
+
+    @Override
+    public void merge(EntityStatistics other, boolean swapSides) {
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            if (swapSides) {
+                RunningStatistics values = other.statistics[entity];
+                statistics[EntityIndex.opposite(entity)]
+                        .merge(mirrored ? values.negated() : values);
+            } else {
+                statistics[entity].merge(other.statistics[entity]);
+            }
+        }
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return the statistics of the entity
+     */
+    public RunningStatistics getStatistics(int entity) {
+        return statistics[entity];
+    }
+}
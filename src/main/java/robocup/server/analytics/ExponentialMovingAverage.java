@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An exponential moving average of a value per frame, which weights recent frames more than older ones. Lost turns do
+ * not decay the average. It is not mergeable, as its value depends on the order of the frames.
+ */
+public class ExponentialMovingAverage implements IRoboCupMessageHandler {
+
+    private final double alpha;
+
+    private final ToDoubleFunction<RoboCupShowMessage> metric;
+
+    private double value = Double.NaN;
+
+    /**
+     * @param alpha  the weight of the newest value, between 0 (exclusive) and 1
+     * @param metric the value of a frame, or null if the values are passed to {@link #add(double)}
+     */
+    public ExponentialMovingAverage(double alpha,
+                                    ToDoubleFunction<RoboCupShowMessage> metric) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+        this.metric = metric;
+    }
+
+    /**
+     * @param halfLife the number of frames after which a value has half of its initial weight
+     * @param metric   the value of a frame, or null if the values are passed to {@link #add(double)}
+     * @return an average with the given half life
+     */
+    public static ExponentialMovingAverage withHalfLife(double halfLife,
+                                                        ToDoubleFunction<RoboCupShowMessage> metric) {
+        return new ExponentialMovingAverage(1 - Math.pow(0.5, 1 / halfLife), metric);
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        add(metric.applyAsDouble(message));
+    }
+
+    public void add(double newValue) {
+        value = Double.isNaN(value) ? newValue : value + alpha * (newValue - value);
+    }
+
+    /**
+     * @return the current average, or NaN before the first value
+     */
+    public double getValue() {
+        return value;
+    }
+}
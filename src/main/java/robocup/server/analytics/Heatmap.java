@@ -0,0 +1,351 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Occupancy counts of the ball and every player on a grid over the pitch, optionally separated by play mode. The
+ * counters live outside the Java heap, in a direct buffer or in a memory mapped file, so that the heatmaps of whole
+ * seasons do not need heap space. Counting a frame does not allocate.
+ * <p>
+ * The grid is centered on the middle of the pitch and covers it with a margin of a few meters; positions outside the
+ * grid are counted in its border cells. Heatmaps of the same resolution can be merged, e.g. those of parallel workers.
+ * A heatmap is persisted with {@link #save(Path)}, or from the start by creating it in a file with {@link #create(Path,
+ * float, boolean)}, and reloaded without copying with {@link #map(Path, boolean)}.
+ * <p>
+ * A heatmap is not thread safe, except that several threads may merge other heatmaps into it.
+ */
+public final class Heatmap implements IRoboCupMessageHandler, IMergeable<Heatmap> {
+
+    // "RCHM"
+    private static final int MAGIC = 0x5243484D;
+
+    private static final int VERSION = 1;
+
+    // magic, version, cell size, columns, rows, play modes, entities, reserved
+    private static final int HEADER_BYTES = 32;
+
+    // half of the pitch (105 m x 68 m) plus a margin
+    private static final float HALF_LENGTH = 60;
+    private static final float HALF_WIDTH = 40;
+
+    private static final int PLAY_MODES = PlayMode.values().length;
+
+    private final ByteBuffer buffer;
+
+    private final float cellSize;
+
+    private final int columns;
+
+    private final int rows;
+
+    // 1 if the play modes are not told apart
+    private final int playModes;
+
+    /**
+     * Wraps a buffer with a valid header.
+     */
+    private Heatmap(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a heatmap");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported heatmap version " + buffer.getInt(4));
+        }
+        cellSize = buffer.getFloat(8);
+        columns = buffer.getInt(12);
+        rows = buffer.getInt(16);
+        playModes = buffer.getInt(20);
+        if (buffer.getInt(24) != EntityIndex.COUNT
+                || playModes != 1 && playModes != PLAY_MODES
+                || buffer.capacity() != size(columns, rows, playModes)) {
+            throw new IOException("Corrupt heatmap");
+        }
+    }
+
+    /**
+     * Creates a heatmap in a direct buffer.
+     *
+     * @param cellSize   the edge length of the cells in meters
+     * @param byPlayMode whether the counts are kept per play mode
+     * @return an empty heatmap
+     */
+    public static Heatmap allocate(float cellSize, boolean byPlayMode) {
+        int columns = cells(HALF_LENGTH, cellSize);
+        int rows = cells(HALF_WIDTH, cellSize);
+        int playModes = byPlayMode ? PLAY_MODES : 1;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(
+                toCapacity(size(columns, rows, playModes)));
+        return initialize(buffer, cellSize, columns, rows, playModes);
+    }
+
+    /**
+     * Creates a heatmap in a new memory mapped file, which always holds the current counts (see {@link #force()}).
+     *
+     * @param file       the file, which must not exist yet
+     * @param cellSize   the edge length of the cells in meters
+     * @param byPlayMode whether the counts are kept per play mode
+     * @return an empty heatmap
+     * @throws IOException if the file cannot be created
+     */
+    public static Heatmap create(Path file, float cellSize, boolean byPlayMode)
+            throws IOException {
+        int columns = cells(HALF_LENGTH, cellSize);
+        int rows = cells(HALF_WIDTH, cellSize);
+        int playModes = byPlayMode ? PLAY_MODES : 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    toCapacity(size(columns, rows, playModes)));
+            return initialize(buffer, cellSize, columns, rows, playModes);
+        }
+    }
+
+    /**
+     * Maps a heatmap file saved by {@link #save(Path)} or created by {@link #create(Path, float, boolean)} into memory
+     * without reading it.
+     *
+     * @param file     the file
+     * @param writable if set to true, changes of the heatmap are written to the file; otherwise, counting or merging
+     *                 throws a {@link java.nio.ReadOnlyBufferException}
+     * @return the heatmap of the file
+     * @throws IOException if the file cannot be mapped or is no heatmap
+     */
+    public static Heatmap map(Path file, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt heatmap");
+            }
+            return new Heatmap(channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static Heatmap initialize(ByteBuffer buffer, float cellSize,
+                                      int columns, int rows, int playModes) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putFloat(8, cellSize);
+        buffer.putInt(12, columns);
+        buffer.putInt(16, rows);
+        buffer.putInt(20, playModes);
+        buffer.putInt(24, EntityIndex.COUNT);
+        try {
+            return new Heatmap(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the number of cells needed to cover the given half extent on both sides of the center
+     */
+    private static int cells(float halfExtent, float cellSize) {
+        if (!(cellSize >= 0.1f)) {
+            throw new IllegalArgumentException("The cells must be at least 0.1 m wide");
+        }
+        return 2 * (int) Math.ceil(halfExtent / cellSize);
+    }
+
+    private static long size(int columns, int rows, int playModes) {
+        return HEADER_BYTES + 4L * columns * rows * playModes * EntityIndex.COUNT;
+    }
+
+    private static int toCapacity(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The heatmap would need " + size
+                    + " bytes, use larger cells");
+        }
+        return (int) size;
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        int playMode = 0;
+        if (playModes > 1) {
+            playMode = message.getPlaymode();
+            if (playMode < 0 || playMode >= playModes) {
+                return;
+            }
+        }
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            if (message.isPresent(entity)) {
+                int offset = offset(entity, playMode,
+                        getColumn(message.getX(entity)), getRow(message.getY(entity)));
+                buffer.putInt(offset, buffer.getInt(offset) + 1);
+            }
+        }
+    }
+
+    private int offset(int entity, int playMode, int column, int row) {
+        int layer = playMode * EntityIndex.COUNT + entity;
+        return HEADER_BYTES + 4 * ((layer * rows + row) * columns + column);
+    }
+
+    /**
+     * Adds the counts of another heatmap of the same resolution. With swapped sides, the players of the other heatmap
+     * are added to those with the same uniform number in the other team, the play modes of one side to those of the
+     * other side, and the grid is rotated by 180 degrees, as if the teams had played on the other sides.
+     *
+     * @throws IllegalArgumentException if the heatmaps have different resolutions
+     */
+    @Override
+    public synchronized void merge(Heatmap other, boolean swapSides) {
+        if (other.cellSize != cellSize || other.columns != columns
+                || other.rows != rows || other.playModes != playModes) {
+            throw new IllegalArgumentException("The heatmaps have different resolutions");
+        }
+        for (int playMode = 0; playMode < playModes; playMode++) {
+            int targetPlayMode = swapSides && playModes > 1
+                    ? PlayMode.of(playMode).opposite().getId() : playMode;
+            for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+                int targetEntity = swapSides ? EntityIndex.opposite(entity) : entity;
+                for (int row = 0; row < rows; row++) {
+                    int targetRow = swapSides ? rows - 1 - row : row;
+                    for (int column = 0; column < columns; column++) {
+                        int targetColumn = swapSides ? columns - 1 - column : column;
+                        int count = other.buffer.getInt(offset(entity, playMode, column, row));
+                        if (count != 0) {
+                            int target = offset(targetEntity, targetPlayMode,
+                                    targetColumn, targetRow);
+                            buffer.putInt(target, buffer.getInt(target) + count);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the heatmap to a file, which can be mapped with {@link #map(Path, boolean)}.
+     *
+     * @param file the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer content = buffer.duplicate();
+        content.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of a heatmap that is mapped from a file to the file. Does nothing for other heatmaps.
+     */
+    public void force() {
+        if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    /**
+     * @param entity   an index as defined in {@link EntityIndex}
+     * @param playMode a play mode, or null for all play modes
+     * @param column   the column of the cell
+     * @param row      the row of the cell
+     * @return the number of frames in which the entity was in the cell
+     */
+    public long getCount(int entity, PlayMode playMode, int column, int row) {
+        if (playMode != null && playModes > 1) {
+            return buffer.getInt(offset(entity, playMode.getId(), column, row));
+        }
+        long count = 0;
+        for (int mode = 0; mode < playModes; mode++) {
+            count += buffer.getInt(offset(entity, mode, column, row));
+        }
+        return count;
+    }
+
+    /**
+     * Sums up the counts of several entities, e.g. of a team.
+     *
+     * @param entities a mask of entities, see {@link robocup.server.connection.message.SpatialIndex}
+     * @param playMode a play mode, or null for all play modes
+     * @return the counts of all cells, row by row
+     */
+    public long[] getCounts(int entities, PlayMode playMode) {
+        long[] counts = new long[rows * columns];
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            if ((entities & (1 << entity)) == 0) {
+                continue;
+            }
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    counts[row * columns + column] +=
+                            getCount(entity, playMode, column, row);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the column of the cells containing the given x coordinate
+     */
+    public int getColumn(float x) {
+        int column = (int) Math.floor(x / cellSize) + columns / 2;
+        return column < 0 ? 0 : column >= columns ? columns - 1 : column;
+    }
+
+    /**
+     * @return the row of the cells containing the given y coordinate
+     */
+    public int getRow(float y) {
+        int row = (int) Math.floor(y / cellSize) + rows / 2;
+        return row < 0 ? 0 : row >= rows ? rows - 1 : row;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return whether the counts are kept per play mode
+     */
+    public boolean isByPlayMode() {
+        return playModes > 1;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+/**
+ * An aggregate that can absorb another aggregate of the same kind, e.g. to combine the results of the matches of a
+ * tournament. Merging is equivalent to having fed the frames of both aggregates into one.
+ *
+ * @param <T> the type of the aggregate
+ */
+public interface IMergeable<T> {
+
+    /**
+     * Adds the state of the other aggregate to this one. The other aggregate is not changed.
+     *
+     * @param other     the aggregate to add
+     * @param swapSides if set to true, the values of the left team of the other aggregate are added to those of the
+     *                  right team of this one and vice versa, e.g. to aggregate the matches of a team that played on
+     *                  both sides
+     */
+    void merge(T other, boolean swapSides);
+
+    /**
+     * Adds the state of the other aggregate to this one, side by side.
+     *
+     * @param other the aggregate to add
+     */
+    default void merge(T other) {
+        merge(other, false);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.Side;
+
+/**
+ * Something that happened in a match at a certain turn, detected by a {@link MatchEventDetector}.
+ */
+public final class MatchEvent {
+
+    public enum Type {
+
+        /**
+         * The play mode has changed; {@link #getPlayMode()} is the new one.
+         */
+        PLAY_MODE_CHANGE,
+
+        /**
+         * The team of {@link #getSide()} has scored.
+         */
+        GOAL,
+
+        /**
+         * {@link #getPlayer()} has kicked the ball.
+         */
+        KICK,
+
+        /**
+         * {@link #getPlayer()} has tackled.
+         */
+        TACKLE,
+
+        /**
+         * The team of {@link #getSide()} has gained possession of the ball, see {@link Possession}.
+         */
+        POSSESSION_CHANGE,
+
+        /**
+         * The ball has left the pitch during play on, and the match continues with a kick in, corner kick or goal kick;
+         * {@link #getSide()} is the team that put the ball out.
+         */
+        OUT_OF_BOUNDS
+    }
+
+    private final Type type;
+
+    private final int turn;
+
+    private final Side side;
+
+    private final int player;
+
+    private final PlayMode playMode;
+
+    private final float x;
+
+    private final float y;
+
+    MatchEvent(Type type, int turn, Side side, int player, PlayMode playMode,
+               float x, float y) {
+        this.type = type;
+        this.turn = turn;
+        this.side = side;
+        this.player = player;
+        this.playMode = playMode;
+        this.x = x;
+        this.y = y;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * @return the team the event refers to, or null
+     */
+    public Side getSide() {
+        return side;
+    }
+
+    /**
+     * @return the {@link EntityIndex} of the player the event refers to, or -1
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return the play mode at the time of the event, or null if the server sent an unknown one
+     */
+    public PlayMode getPlayMode() {
+        return playMode;
+    }
+
+    /**
+     * @return the x coordinate of the ball at the time of the event
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return the y coordinate of the ball at the time of the event
+     */
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchEvent [" + type + " at turn " + turn
+                + (side == null ? "" : ", side=" + side)
+                + (player < 0 ? "" : ", player=" + EntityIndex.key(player))
+                + ", playMode=" + playMode + ", ball=(" + x + ", " + y + ")]";
+    }
+}
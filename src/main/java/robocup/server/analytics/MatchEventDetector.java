@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.FrameField;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.PlayerFlags;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Turns the frames of a match into a stream of {@link MatchEvent}s: play mode changes, goals, kicks, tackles, changes
+ * of possession and the ball leaving the pitch. Each frame is compared with a constant amount of state from the
+ * previous one, so consumers that only need the events do not have to compare whole frames themselves.
+ * <p>
+ * The detector needs the positions and the state flags of the ball and the players, see {@link #SUBSCRIPTION}.
+ * Events are passed to the listeners on the thread that calls {@link #handleMessage(RoboCupShowMessage)}, in the order
+ * of the list above for events of the same turn.
+ * <p>
+ * The referee of the soccer server puts the ball back onto the pitch in the cycle it leaves it, so the ball is not
+ * seen outside. Instead, the ball has left the pitch when play on changes to a kick in, corner kick or goal kick; the
+ * side of the event is the team that did not get the kick, i.e. that put the ball out.
+ */
+public class MatchEventDetector implements IRoboCupMessageHandler {
+
+    /**
+     * The parts of the frames the detector needs.
+     */
+    public static final FrameSubscription SUBSCRIPTION = FrameSubscription
+            .of(FrameField.POSITION, FrameField.BODY).allEntities();
+
+    private final CopyOnWriteArrayList<IMatchEventListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    private final float controlRadius;
+
+    // -1 before the first frame
+    private int playMode = -1;
+
+    private int leftScore, rightScore;
+
+    private Side possession;
+
+    public MatchEventDetector() {
+        this(Possession.DEFAULT_CONTROL_RADIUS);
+    }
+
+    /**
+     * @param controlRadius the distance in meters up to which a player controls the ball, see {@link Possession}
+     */
+    public MatchEventDetector(float controlRadius) {
+        this.controlRadius = controlRadius;
+    }
+
+    public void addListener(IMatchEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IMatchEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        int turn = message.getTurn();
+        PlayMode mode = message.getPlayMode();
+        float ballX = message.getX(EntityIndex.BALL);
+        float ballY = message.getY(EntityIndex.BALL);
+
+        Side outOfBounds = null;
+        if (playMode < 0) {
+            // the first frame only sets the state to compare with
+            leftScore = message.getLeftScore();
+            rightScore = message.getRightScore();
+        } else if (message.getPlaymode() != playMode) {
+            fire(MatchEvent.Type.PLAY_MODE_CHANGE, turn, null, -1, mode, ballX, ballY);
+            if (playMode == PlayMode.PLAY_ON.getId()) {
+                outOfBounds = outOfBounds(mode);
+            }
+        }
+        playMode = message.getPlaymode();
+
+        for (int goal = leftScore; goal < message.getLeftScore(); goal++) {
+            fire(MatchEvent.Type.GOAL, turn, Side.LEFT, -1, mode, ballX, ballY);
+        }
+        for (int goal = rightScore; goal < message.getRightScore(); goal++) {
+            fire(MatchEvent.Type.GOAL, turn, Side.RIGHT, -1, mode, ballX, ballY);
+        }
+        leftScore = message.getLeftScore();
+        rightScore = message.getRightScore();
+
+        // the server sets these flags for the turn of the action only
+        Side kicker = null;
+        for (int player = 1; player < EntityIndex.COUNT; player++) {
+            if (message.touchesBall(player)) {
+                kicker = EntityIndex.side(player);
+                fire(MatchEvent.Type.KICK, turn, kicker, player, mode, ballX, ballY);
+            }
+            if (message.hasFlag(player, PlayerFlags.TACKLE)) {
+                kicker = EntityIndex.side(player);
+                fire(MatchEvent.Type.TACKLE, turn, kicker, player, mode, ballX, ballY);
+            }
+        }
+
+        if (mode == PlayMode.PLAY_ON && message.isPresent(EntityIndex.BALL)) {
+            Side controlling = kicker;
+            if (controlling == null) {
+                SpatialIndex index = message.getSpatialIndex();
+                int player = index.nearestToBall(SpatialIndex.PLAYERS);
+                if (player >= 0 && index.distance(EntityIndex.BALL, player) <= controlRadius) {
+                    controlling = EntityIndex.side(player);
+                }
+            }
+            if (controlling != null && controlling != possession) {
+                possession = controlling;
+                fire(MatchEvent.Type.POSSESSION_CHANGE, turn, controlling, -1, mode,
+                        ballX, ballY);
+            }
+        }
+
+        if (outOfBounds != null) {
+            fire(MatchEvent.Type.OUT_OF_BOUNDS, turn, outOfBounds, -1, mode, ballX, ballY);
+        }
+    }
+
+    /**
+     * @return the team that put the ball out if the given play mode restarts the match after that, otherwise null, also
+     * for play modes unknown to {@link PlayMode}
+     */
+    private static Side outOfBounds(PlayMode mode) {
+        if (mode == null) {
+            return null;
+        }
+        switch (mode) {
+            case KICK_IN_L:
+            case CORNER_KICK_L:
+            case GOAL_KICK_L:
+                return Side.RIGHT;
+            case KICK_IN_R:
+            case CORNER_KICK_R:
+            case GOAL_KICK_R:
+                return Side.LEFT;
+            default:
+                return null;
+        }
+    }
+
+    private void fire(MatchEvent.Type type, int turn, Side side, int player,
+                      PlayMode mode, float x, float y) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        MatchEvent event = new MatchEvent(type, turn, side, player, mode, x, y);
+        for (IMatchEventListener listener : listeners) {
+            listener.handleEvent(event);
+        }
+    }
+
+    /**
+     * @return the team currently in possession of the ball, or null
+     */
+    public Side getPossession() {
+        return possession;
+    }
+}
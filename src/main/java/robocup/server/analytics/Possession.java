@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+/**
+ * The turns of play on each team has been in possession of the ball. A team gains possession when one of its players
+ * is the player closest to the ball and within the control radius, and keeps it until a player of the other team does.
+ * Turns of play on before the first possession are counted as open. The closest player is taken from the {@link
+ * SpatialIndex} of the frame, so the handler needs the positions of the ball and the players.
+ */
+public class Possession implements IRoboCupMessageHandler, IMergeable<Possession> {
+
+    /**
+     * A little more than the kickable area of a default player.
+     */
+    public static final float DEFAULT_CONTROL_RADIUS = 1.5f;
+
+    private final float controlRadius;
+
+    // indexed by Side.ordinal()
+    private final long[] turns = new long[2];
+
+    private long open;
+
+    private Side possession;
+
+    public Possession() {
+        this(DEFAULT_CONTROL_RADIUS);
+    }
+
+    /**
+     * @param controlRadius the distance in meters up to which a player controls the ball
+     */
+    public Possession(float controlRadius) {
+        this.controlRadius = controlRadius;
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        if (message.getPlaymode() != PlayMode.PLAY_ON.getId()) {
+            return;
+        }
+        SpatialIndex index = message.getSpatialIndex();
+        int player = index.nearestToBall(SpatialIndex.PLAYERS);
+        if (player >= 0 && index.distance(EntityIndex.BALL, player) <= controlRadius) {
+            possession = EntityIndex.side(player);
+        }
+        if (possession == null) {
+            open++;
+        } else {
+            turns[possession.ordinal()]++;
+        }
+    }
+
+    @Override
+    public void merge(Possession other, boolean swapSides) {
+        for (Side side : Side.values()) {
+            turns[(swapSides ? side.opposite() : side).ordinal()] +=
+                    other.turns[side.ordinal()];
+        }
+        open += other.open;
+    }
+
+    /**
+     * @return the turns of play on in which the given side was in possession
+     */
+    public long getTurns(Side side) {
+        return turns[side.ordinal()];
+    }
+
+    /**
+     * @return the turns of play on before either team was in possession
+     */
+    public long getOpenTurns() {
+        return open;
+    }
+
+    /**
+     * @return the share of the given side of the turns in possession, or NaN if neither side was
+     */
+    public double getShare(Side side) {
+        long total = turns[0] + turns[1];
+        return total == 0 ? Double.NaN : (double) turns[side.ordinal()] / total;
+    }
+
+    /**
+     * @return the side currently in possession, or null
+     */
+    public Side getPossession() {
+        return possession;
+    }
+}
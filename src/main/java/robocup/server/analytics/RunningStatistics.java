@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+/**
+ * Count, mean, variance, minimum and maximum of a stream of values, updated in constant time per value (Welford's
+ * algorithm). Two instances merge exactly.
+ */
+public class RunningStatistics implements IMergeable<RunningStatistics> {
+
+    private long count;
+
+    private double mean;
+
+    // sum of the squared differences from the mean
+    private double squares;
+
+    private double min = Double.NaN;
+
+    private double max = Double.NaN;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        squares += delta * (value - mean);
+        if (count == 1) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    /**
+     * Forgets all values.
+     */
+    public void reset() {
+        count = 0;
+        mean = 0;
+        squares = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    @Override
+    public void merge(RunningStatistics other, boolean swapSides) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            squares = other.squares;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        squares += other.squares + delta * delta * count * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return the statistics of the negated values
+     */
+    RunningStatistics negated() {
+        RunningStatistics negated = new RunningStatistics();
+        negated.count = count;
+        negated.mean = -mean;
+        negated.squares = squares;
+        negated.min = -max;
+        negated.max = -min;
+        return negated;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return mean * count;
+    }
+
+    /**
+     * @return the mean of the values, or 0 if there are none
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the sample variance of the values, or 0 if there are less than two
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : squares / (count - 1);
+    }
+
+    /**
+     * @return the smallest value, or NaN if there are none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value, or NaN if there are none
+     */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "RunningStatistics [count=" + count + ", mean=" + mean
+                + ", variance=" + getVariance() + ", min=" + min + ", max=" + max
+                + "]";
+    }
+}
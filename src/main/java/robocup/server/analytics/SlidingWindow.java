@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The sum and mean of a value per frame over the last n turns, e.g. the distance between the ball and the goal during
+ * the last 100 turns. The values are kept in a ring buffer indexed by turn, so lost turns simply leave gaps and do not
+ * shift the window. Each frame takes constant time, apart from clearing the slots of skipped turns.
+ */
+public class SlidingWindow implements IRoboCupMessageHandler {
+
+    private static final int EMPTY = -1;
+
+    private final ToDoubleFunction<RoboCupShowMessage> metric;
+
+    private final double[] values;
+
+    // the turn of each slot, or EMPTY
+    private final int[] turns;
+
+    private int lastTurn = EMPTY;
+
+    private double sum;
+
+    private int count;
+
+    /**
+     * @param length the number of turns in the window
+     * @param metric the value of a frame, or null if the values are passed to {@link #add(int, double)}
+     */
+    public SlidingWindow(int length, ToDoubleFunction<RoboCupShowMessage> metric) {
+        if (length < 1) {
+            throw new IllegalArgumentException("The window must span at least one turn");
+        }
+        this.metric = metric;
+        this.values = new double[length];
+        this.turns = new int[length];
+        Arrays.fill(turns, EMPTY);
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        add(message.getTurn(), metric.applyAsDouble(message));
+    }
+
+    /**
+     * Adds the value of a turn and drops the values that leave the window. Turns that are not later than the last one
+     * are ignored.
+     */
+    public void add(int turn, double value) {
+        if (turn <= lastTurn) {
+            return;
+        }
+        int length = values.length;
+        if (lastTurn == EMPTY || (long) turn - lastTurn >= length) {
+            Arrays.fill(turns, EMPTY);
+            sum = 0;
+            count = 0;
+        } else {
+            for (int skipped = lastTurn + 1; skipped < turn; skipped++) {
+                evict(skipped % length);
+            }
+        }
+        int slot = turn % length;
+        evict(slot);
+        values[slot] = value;
+        turns[slot] = turn;
+        sum += value;
+        count++;
+        lastTurn = turn;
+    }
+
+    private void evict(int slot) {
+        if (turns[slot] != EMPTY) {
+            sum -= values[slot];
+            count--;
+            turns[slot] = EMPTY;
+        }
+    }
+
+    /**
+     * @return the sum of the values in the window
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the number of turns with a value in the window
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean of the values in the window, or NaN if there are none
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * @return the latest turn added, or -1
+     */
+    public int getLastTurn() {
+        return lastTurn;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Statistics of a value per frame over consecutive, non-overlapping windows of n turns: turns 0 to n - 1, n to 2n - 1
+ * and so on. When a frame of a later window arrives, the statistics of the current window are passed to a listener.
+ * The last window of a match is only passed on by {@link #flush()}.
+ */
+public class TumblingWindow implements IRoboCupMessageHandler {
+
+    /**
+     * Receives the statistics of the windows.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * @param firstTurn  the first turn of the window
+         * @param statistics the statistics of the values in the window, only valid during the call
+         */
+        void windowClosed(int firstTurn, RunningStatistics statistics);
+    }
+
+    private final int length;
+
+    private final ToDoubleFunction<RoboCupShowMessage> metric;
+
+    private final Listener listener;
+
+    private final RunningStatistics statistics = new RunningStatistics();
+
+    private int window = -1;
+
+    /**
+     * @param length   the number of turns in a window
+     * @param metric   the value of a frame, or null if the values are passed to {@link #add(int, double)}
+     * @param listener receives the statistics of each window
+     */
+    public TumblingWindow(int length, ToDoubleFunction<RoboCupShowMessage> metric,
+                          Listener listener) {
+        if (length < 1) {
+            throw new IllegalArgumentException("The window must span at least one turn");
+        }
+        this.length = length;
+        this.metric = metric;
+        this.listener = listener;
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        add(message.getTurn(), metric.applyAsDouble(message));
+    }
+
+    /**
+     * Adds the value of a turn, closing the current window first if the turn belongs to a later one. Turns of earlier
+     * windows are ignored.
+     */
+    public void add(int turn, double value) {
+        int turnWindow = turn / length;
+        if (turnWindow < window) {
+            return;
+        }
+        if (turnWindow > window) {
+            flush();
+            window = turnWindow;
+        }
+        statistics.add(value);
+    }
+
+    /**
+     * Passes the statistics of the current window to the listener, if it has any values, and starts a new one.
+     */
+    public void flush() {
+        if (statistics.getCount() > 0) {
+            listener.windowClosed(window * length, statistics);
+            statistics.reset();
+        }
+    }
+}
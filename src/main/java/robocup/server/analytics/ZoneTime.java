@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+/**
+ * The turns of play on each entity has spent in each third of the pitch. The thirds are seen from the goal of the
+ * entity's own team, so the defensive third of the left team is the left one and that of the right team the right one.
+ * For the ball, the thirds are seen from the left goal.
+ */
+public class ZoneTime implements IRoboCupMessageHandler, IMergeable<ZoneTime> {
+
+    public static final int DEFENSIVE_THIRD = 0;
+
+    public static final int MIDDLE_THIRD = 1;
+
+    public static final int ATTACKING_THIRD = 2;
+
+    private static final int THIRDS = 3;
+
+    // the pitch is 105 m long
+    private static final float THIRD_BOUNDARY = 105f / 6;
+
+    private final int entities;
+
+    // turns[entity * THIRDS + third]
+    private final long[] turns = new long[EntityIndex.COUNT * THIRDS];
+
+    /**
+     * Counts the time of the ball and all players.
+     */
+    public ZoneTime() {
+        this(SpatialIndex.BALL | SpatialIndex.PLAYERS);
+    }
+
+    /**
+     * @param entities a mask of the entities to count the time for, see {@link SpatialIndex}
+     */
+    public ZoneTime(int entities) {
+        this.entities = entities;
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        if (message.getPlaymode() != PlayMode.PLAY_ON.getId()) {
+            return;
+        }
+        int remaining = entities;
+        while (remaining != 0) {
+            int entity = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (message.isPresent(entity)) {
+                float x = message.getX(entity);
+                if (EntityIndex.side(entity) == Side.RIGHT) {
+                    x = -x;
+                }
+                int third = x < -THIRD_BOUNDARY ? DEFENSIVE_THIRD
+                        : x <= THIRD_BOUNDARY ? MIDDLE_THIRD : ATTACKING_THIRD;
+                turns[entity * THIRDS + third]++;
+            }
+        }
+    }
+
+    @Override
+    public void merge(ZoneTime other, boolean swapSides) {
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            int target = swapSides ? EntityIndex.opposite(entity) : entity;
+            for (int third = 0; third < THIRDS; third++) {
+                int from = third;
+                if (swapSides && entity == EntityIndex.BALL) {
+                    // the ball's thirds are seen from the other goal
+                    from = THIRDS - 1 - third;
+                }
+                turns[target * THIRDS + third] += other.turns[entity * THIRDS + from];
+            }
+        }
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @param third  {@link #DEFENSIVE_THIRD}, {@link #MIDDLE_THIRD} or {@link #ATTACKING_THIRD}
+     * @return the turns of play on the entity has spent in the third
+     */
+    public long getTurns(int entity, int third) {
+        return turns[entity * THIRDS + third];
+    }
+
+    /**
+     * @return the turns of play on all players of the given side have spent in the third, summed up
+     */
+    public long getTurns(Side side, int third) {
+        long sum = 0;
+        for (int uniform = 1; uniform <= EntityIndex.PLAYERS_PER_TEAM; uniform++) {
+            sum += turns[EntityIndex.player(side, uniform) * THIRDS + third];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.RoboCupMessage;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of the hot path of a soccer server connection: how long the connection waits for
+ * datagrams, how long parsing takes and how long each message handler takes (see {@link HandlerMetrics}). Recording
+ * allocates nothing.
+ * <p>
+ * While a connection observes a match, its metrics are published as MBeans of the platform MBean server with the names
+ * {@code robocup.server:type=Connection,name=<connection>} and {@code robocup.server:type=Handler,connection=<connection>,name=<handler>},
+ * see {@link ConnectionSettings#setMetricsPublished(boolean)}.
+ */
+public class ConnectionMetrics implements ConnectionMetricsMBean {
+
+    private static final Logger log = Logger.getLogger(ConnectionMetrics.class);
+
+    private static final String DOMAIN = "robocup.server";
+
+    private static final AtomicInteger connections = new AtomicInteger();
+
+    private final String name;
+
+    private final MessageHandlerRegistry messageHandlers;
+
+    private final TurnTracker turnTracker;
+
+    private final LatencyHistogram receiveWait = new LatencyHistogram();
+
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+
+    private final AtomicLong frames = new AtomicLong();
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private final AtomicLong parseFailures = new AtomicLong();
+
+    private final AtomicLong unknownMessages = new AtomicLong();
+
+    // only written by the observing thread
+    private long currentSecond;
+
+    private long framesInCurrentSecond;
+
+    private volatile long framesPerSecond;
+
+    private final List<ObjectName> publishedNames = new ArrayList<>();
+
+    /**
+     * @param messageHandlers the handlers of the connection, for their dispatch times
+     * @param turnTracker     the turn checks of the connection, for the lost messages
+     */
+    ConnectionMetrics(MessageHandlerRegistry messageHandlers,
+                      TurnTracker turnTracker) {
+        this.name = "monitor-" + connections.incrementAndGet();
+        this.messageHandlers = messageHandlers;
+        this.turnTracker = turnTracker;
+    }
+
+    /**
+     * @return the name of the connection in the MBean names
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the histogram of the times spent waiting for datagrams in nanoseconds
+     */
+    public LatencyHistogram getReceiveWait() {
+        return receiveWait;
+    }
+
+    /**
+     * @return the histogram of the parse times in nanoseconds
+     */
+    public LatencyHistogram getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * @return the metrics of the registered handlers
+     */
+    public List<HandlerMetrics> getHandlerMetrics() {
+        return messageHandlers.getMetrics();
+    }
+
+    void recordReceive(long waitNanos, int bytes) {
+        receiveWait.record(waitNanos);
+        bytesReceived.addAndGet(bytes);
+    }
+
+    /**
+     * Records the parsing of a datagram. A datagram without a message counts as an unknown message if it starts like a
+     * message of a type the parsers do not support, e.g. "(server_param ", and as a parse failure otherwise.
+     *
+     * @param nanos    the parse time
+     * @param message  the parsed message or null
+     * @param datagram the parsed bytes between position and limit
+     */
+    void recordParse(long nanos, RoboCupMessage message, ByteBuffer datagram) {
+        parseTime.record(nanos);
+        if (message == null) {
+            if (hasUnsupportedType(datagram)) {
+                unknownMessages.incrementAndGet();
+            } else {
+                parseFailures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return true if the datagram starts with a parenthesis and a message type other than show and msg
+     */
+    static boolean hasUnsupportedType(ByteBuffer datagram) {
+        int start = datagram.position() + 1;
+        int limit = datagram.limit();
+        if (start > limit || datagram.get(start - 1) != '(') {
+            return false;
+        }
+        int end = start;
+        while (end < limit && isTypeCharacter(datagram.get(end))) {
+            end++;
+        }
+        // the type has to be followed by the content of the message
+        if (end == start || end == limit) {
+            return false;
+        }
+        return !isType(datagram, start, end, "show")
+                && !isType(datagram, start, end, "msg");
+    }
+
+    private static boolean isTypeCharacter(byte b) {
+        return b >= 'a' && b <= 'z' || b == '_';
+    }
+
+    private static boolean isType(ByteBuffer datagram, int start, int end,
+                                  String type) {
+        if (end - start != type.length()) {
+            return false;
+        }
+        for (int i = 0; i < type.length(); i++) {
+            if (datagram.get(start + i) != type.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts a received show message. Must only be called by the observing thread.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    void recordFrame(long now) {
+        frames.incrementAndGet();
+        long second = TimeUnit.NANOSECONDS.toSeconds(now);
+        if (second != currentSecond) {
+            framesPerSecond = second == currentSecond + 1 ? framesInCurrentSecond : 0;
+            currentSecond = second;
+            framesInCurrentSecond = 0;
+        }
+        framesInCurrentSecond++;
+    }
+
+    void recordUnknownMessage() {
+        unknownMessages.incrementAndGet();
+    }
+
+    /**
+     * Registers the connection and its handlers at the platform MBean server. Failures are logged, observing works
+     * without JMX.
+     */
+    synchronized void publish() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, this, DOMAIN + ":type=Connection,name=" + ObjectName.quote(name));
+        for (HandlerMetrics handler : getHandlerMetrics()) {
+            // one handler failing to register does not hide the others
+            register(server, handler, DOMAIN + ":type=Handler,connection=" + ObjectName.quote(name)
+                    + ",name=" + ObjectName.quote(handler.getName()));
+        }
+    }
+
+    private void register(MBeanServer server, Object mBean, String objectName) {
+        try {
+            ObjectName registeredName = new ObjectName(objectName);
+            server.registerMBean(mBean, registeredName);
+            publishedNames.add(registeredName);
+        } catch (JMException e) {
+            log.warn("Could not publish " + objectName, e);
+        }
+    }
+
+    /**
+     * Removes the MBeans registered by {@link #publish()}.
+     */
+    synchronized void unpublish() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : publishedNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.warn("Could not unpublish " + objectName, e);
+            }
+        }
+        publishedNames.clear();
+    }
+
+    @Override
+    public long getFrames() {
+        return frames.get();
+    }
+
+    @Override
+    public long getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public long getParseFailures() {
+        return parseFailures.get();
+    }
+
+    @Override
+    public long getUnknownMessages() {
+        return unknownMessages.get();
+    }
+
+    @Override
+    public long getMissingTurns() {
+        return turnTracker.getMissing();
+    }
+
+    @Override
+    public long getDuplicateFrames() {
+        return turnTracker.getDuplicates();
+    }
+
+    @Override
+    public long getReorderedFrames() {
+        return turnTracker.getReordered();
+    }
+
+    @Override
+    public long getLateFrames() {
+        return turnTracker.getLate();
+    }
+
+    @Override
+    public double getReceiveWaitMeanMicros() {
+        return receiveWait.getMean() / 1000;
+    }
+
+    @Override
+    public double getReceiveWaitP50Micros() {
+        return receiveWait.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getReceiveWaitP99Micros() {
+        return receiveWait.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getReceiveWaitMaxMicros() {
+        return receiveWait.getMax() / 1000.0;
+    }
+
+    @Override
+    public double getParseMeanMicros() {
+        return parseTime.getMean() / 1000;
+    }
+
+    @Override
+    public double getParseP50Micros() {
+        return parseTime.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getParseP99Micros() {
+        return parseTime.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getParseMaxMicros() {
+        return parseTime.getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        receiveWait.reset();
+        parseTime.reset();
+        frames.set(0);
+        bytesReceived.set(0);
+        parseFailures.set(0);
+        unknownMessages.set(0);
+        turnTracker.resetCounters();
+        getHandlerMetrics().forEach(HandlerMetrics::reset);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionMetrics " + name + " [frames=" + getFrames()
+                + ", bytes=" + getBytesReceived() + ", parseFailures="
+                + getParseFailures() + ", unknownMessages=" + getUnknownMessages()
+                + ", receiveWait p50/p99=" + String.format("%.1f/%.1f",
+                getReceiveWaitP50Micros(), getReceiveWaitP99Micros())
+                + " us, parse p50/p99=" + String.format("%.1f/%.1f",
+                getParseP50Micros(), getParseP99Micros()) + " us, handlers="
+                + getHandlerMetrics() + "]";
+    }
+}
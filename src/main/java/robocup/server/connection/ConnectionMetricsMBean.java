@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * The metrics of a soccer server connection as published over JMX, see {@link ConnectionMetrics}. Durations are given
+ * in microseconds.
+ */
+public interface ConnectionMetricsMBean {
+
+    /**
+     * @return the number of show messages received
+     */
+    long getFrames();
+
+    /**
+     * @return the number of show messages received during the last full second
+     */
+    long getFramesPerSecond();
+
+    long getBytesReceived();
+
+    /**
+     * @return the number of datagrams the parser could not turn into a message, apart from the unknown messages
+     */
+    long getParseFailures();
+
+    /**
+     * @return the number of messages that are neither show nor msg messages, e.g. server_param
+     */
+    long getUnknownMessages();
+
+    /**
+     * @return the number of turns whose show messages got lost, see {@link LossSummary}
+     */
+    long getMissingTurns();
+
+    long getDuplicateFrames();
+
+    long getReorderedFrames();
+
+    long getLateFrames();
+
+    double getReceiveWaitMeanMicros();
+
+    double getReceiveWaitP50Micros();
+
+    double getReceiveWaitP99Micros();
+
+    double getReceiveWaitMaxMicros();
+
+    double getParseMeanMicros();
+
+    double getParseP50Micros();
+
+    double getParseP99Micros();
+
+    double getParseMaxMicros();
+
+    /**
+     * Clears all counters and histograms, including those of the handlers.
+     */
+    void reset();
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import robocup.server.connection.message.parser.ParserEngine;
+
+/**
+ * Settings for a connection to a soccer server, see {@link SoccerServerConnectionManager#getConnectionTo(String, int,
+ * ConnectionSettings)}. A connection copies the settings when it is created, so later changes do not affect it.
+ */
+public class ConnectionSettings {
+
+    /**
+     * The implementation of the UDP connection.
+     */
+    public enum Transport {
+
+        /**
+         * A {@link java.net.DatagramSocket} that allocates a new buffer for every message.
+         */
+        DATAGRAM_SOCKET,
+
+        /**
+         * A {@link java.nio.channels.DatagramChannel} that receives into reused direct buffers.
+         */
+        DATAGRAM_CHANNEL
+    }
+
+    private ParserEngine parserEngine = ParserEngine.ANTLR;
+
+    private Transport transport = Transport.DATAGRAM_SOCKET;
+
+    private int receiveBufferSize = 0;
+
+    private boolean pipelined = false;
+
+    private int parseWorkers = 2;
+
+    private int ringCapacity = 64;
+
+    private int connectTimeout = 10000;
+
+    private int receiveTimeout = IUDPConnection.DEFAULT_TIMEOUT_MILLIS;
+
+    private boolean metricsPublished = true;
+
+    private int reorderWindow = 0;
+
+    private boolean framePooling = false;
+
+    public ConnectionSettings() {
+        // default settings
+    }
+
+    /**
+     * @param settings the settings to copy
+     */
+    public ConnectionSettings(ConnectionSettings settings) {
+        this.parserEngine = settings.parserEngine;
+        this.transport = settings.transport;
+        this.receiveBufferSize = settings.receiveBufferSize;
+        this.pipelined = settings.pipelined;
+        this.parseWorkers = settings.parseWorkers;
+        this.ringCapacity = settings.ringCapacity;
+        this.connectTimeout = settings.connectTimeout;
+        this.receiveTimeout = settings.receiveTimeout;
+        this.metricsPublished = settings.metricsPublished;
+        this.reorderWindow = settings.reorderWindow;
+        this.framePooling = settings.framePooling;
+    }
+
+    public ParserEngine getParserEngine() {
+        return parserEngine;
+    }
+
+    /**
+     * @param parserEngine the parser implementation used for the received messages
+     */
+    public ConnectionSettings setParserEngine(ParserEngine parserEngine) {
+        this.parserEngine = parserEngine;
+        return this;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public ConnectionSettings setTransport(Transport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * @param receiveBufferSize the size of the socket receive buffer (SO_RCVBUF) in bytes, or 0 to keep the default of
+     *                          the system. A larger buffer lets the kernel hold more datagrams while the observer is
+     *                          busy.
+     */
+    public ConnectionSettings setReceiveBufferSize(int receiveBufferSize) {
+        if (receiveBufferSize < 0) {
+            throw new IllegalArgumentException("The receive buffer size must not be negative");
+        }
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * @param pipelined if set to true, receiving, parsing and dispatching run in separate stages (see {@link
+     *                  ObservationPipeline}), otherwise one thread does all of it
+     */
+    public ConnectionSettings setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    public int getParseWorkers() {
+        return parseWorkers;
+    }
+
+    /**
+     * @param parseWorkers the number of threads parsing received messages in pipelined mode
+     */
+    public ConnectionSettings setParseWorkers(int parseWorkers) {
+        if (parseWorkers < 1) {
+            throw new IllegalArgumentException("At least one parse worker is required");
+        }
+        this.parseWorkers = parseWorkers;
+        return this;
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    /**
+     * @param ringCapacity the number of preallocated receive buffers in pipelined mode, i.e. how many messages can be
+     *                     in the pipeline at once
+     */
+    public ConnectionSettings setRingCapacity(int ringCapacity) {
+        if (ringCapacity < 2) {
+            throw new IllegalArgumentException("The ring needs at least two buffers");
+        }
+        this.ringCapacity = ringCapacity;
+        return this;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout how long to try registering as a monitor in milliseconds. The init message is repeated
+     *                       with short timeouts until the server answers, so a server that is still starting up is
+     *                       connected to as soon as it is ready.
+     */
+    public ConnectionSettings setConnectTimeout(int connectTimeout) {
+        if (connectTimeout < 1) {
+            throw new IllegalArgumentException("The connect timeout must be positive");
+        }
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public int getReceiveTimeout() {
+        return receiveTimeout;
+    }
+
+    /**
+     * @param receiveTimeout how long the server may be silent during a match in milliseconds before the observation
+     *                       fails, or 0 to wait forever. A server in synchronous mode only advances when all players
+     *                       are done, so a slow team can pause the match for longer than the default of {@value
+     *                       IUDPConnection#DEFAULT_TIMEOUT_MILLIS} ms.
+     */
+    public ConnectionSettings setReceiveTimeout(int receiveTimeout) {
+        if (receiveTimeout < 0) {
+            throw new IllegalArgumentException("The receive timeout must not be negative");
+        }
+        this.receiveTimeout = receiveTimeout;
+        return this;
+    }
+
+    public boolean isMetricsPublished() {
+        return metricsPublished;
+    }
+
+    /**
+     * @param metricsPublished whether the {@link ConnectionMetrics} are published over JMX while the connection
+     *                         observes a match. They are recorded either way.
+     */
+    public ConnectionSettings setMetricsPublished(boolean metricsPublished) {
+        this.metricsPublished = metricsPublished;
+        return this;
+    }
+
+    public int getReorderWindow() {
+        return reorderWindow;
+    }
+
+    /**
+     * @param reorderWindow the number of show messages to hold back after a skipped turn, in case the skipped message
+     *                      arrives late. With the default of 0, skipped turns are reported to the handlers as missing
+     *                      right away and late messages are discarded.
+     */
+    public ConnectionSettings setReorderWindow(int reorderWindow) {
+        if (reorderWindow < 0) {
+            throw new IllegalArgumentException("The reorder window must not be negative");
+        }
+        this.reorderWindow = reorderWindow;
+        return this;
+    }
+
+    public boolean isFramePooling() {
+        return framePooling;
+    }
+
+    /**
+     * @param framePooling if set to true, show messages are taken from a {@link
+     *                     robocup.server.connection.message.FramePool} and reused after they have been dispatched, so
+     *                     that observing allocates nothing per turn. Handlers then only borrow the messages, see {@link
+     *                     robocup.server.connection.message.RoboCupShowMessage#retain()}. Only the {@link
+     *                     ParserEngine#SCANNER} supports pooling.
+     */
+    public ConnectionSettings setFramePooling(boolean framePooling) {
+        this.framePooling = framePooling;
+        return this;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Publishes the show messages of a source to {@link java.util.concurrent.Flow.Subscriber}s. Every subscriber gets a
+ * bounded buffer, filled by the observing thread and drained on the executor as far as the subscriber has requested
+ * messages. If the buffer of a subscriber is full, the {@link HandlerSettings.OverflowPolicy} applies: with {@link
+ * HandlerSettings.OverflowPolicy#BLOCK} the observing thread waits, with {@link
+ * HandlerSettings.OverflowPolicy#DROP_NEWEST} the new message is not passed to that subscriber. The other policies
+ * need access to the buffered messages, which a {@link SubmissionPublisher} does not give, so they are not supported.
+ * <p>
+ * Subscribers may keep the messages they receive: pooled messages (see {@link RoboCupShowMessage#isPooled()}) are
+ * copied before they are published.
+ * <p>
+ * The publisher completes when the source is done, see {@link MessageHandlerRegistry#close()}. It only publishes the
+ * messages of one observation or replay; the next one needs a new publisher.
+ */
+class FramePublisher extends SubmissionPublisher<RoboCupShowMessage>
+        implements IRoboCupMessageHandler {
+
+    private static final Logger log = Logger.getLogger(FramePublisher.class);
+
+    // used if the common pool would not run the subscribers concurrently
+    private static final ExecutorService fallbackExecutor =
+            Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "frame-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final boolean blocking;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final BiPredicate<Flow.Subscriber<? super RoboCupShowMessage>,
+            RoboCupShowMessage> countDropped = (subscriber, message) -> {
+        dropped.incrementAndGet();
+        // do not retry
+        return false;
+    };
+
+    /**
+     * @param settings the buffer capacity (see {@link HandlerSettings#setQueueCapacity(int)}), the overflow policy
+     *                 and the executor of the publisher
+     * @throws IllegalArgumentException if the overflow policy is neither {@link HandlerSettings.OverflowPolicy#BLOCK}
+     *                                  nor {@link HandlerSettings.OverflowPolicy#DROP_NEWEST}
+     */
+    FramePublisher(HandlerSettings settings) {
+        super(executor(settings), settings.getQueueCapacity());
+        HandlerSettings.OverflowPolicy policy = settings.getOverflowPolicy();
+        if (policy != HandlerSettings.OverflowPolicy.BLOCK
+                && policy != HandlerSettings.OverflowPolicy.DROP_NEWEST) {
+            throw new IllegalArgumentException("Publishers do not support the overflow policy "
+                    + policy);
+        }
+        this.blocking =
+                settings.getOverflowPolicy() == HandlerSettings.OverflowPolicy.BLOCK;
+    }
+
+    private static Executor executor(HandlerSettings settings) {
+        if (settings.getExecutor() != null) {
+            return settings.getExecutor();
+        }
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool();
+        }
+        return fallbackExecutor;
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        if (getNumberOfSubscribers() == 0) {
+            return;
+        }
+        if (message.isPooled()) {
+            message = message.copy();
+        }
+        if (blocking) {
+            submit(message);
+        } else {
+            offer(message, countDropped);
+        }
+    }
+
+    /**
+     * @return the number of messages not passed to a subscriber because its buffer was full
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        if (dropped.get() > 0) {
+            log.warn(dropped.get() + " messages were dropped for slow subscribers");
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupMessage;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.parser.IRoboCupParser;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a game log of the soccer server (an .rcg file of version 4 or 5, optionally gzipped) to message handlers, as
+ * fast as they can take the frames.
+ * <p>
+ * In game logs, the play mode and the teams are not part of the show lines but are written on lines of their own
+ * whenever they change. The replay keeps track of them and turns every show line into the show message a monitor
+ * would have received from the server, which is then parsed as in {@link SoccerServerConnection}. Thus the handlers
+ * get the same frames as when observing the match live. All other lines are skipped.
+ */
+public class GameLogReplay implements IRoboCupMessageSource {
+
+    private static final Logger log = Logger.getLogger(GameLogReplay.class);
+
+    private static final byte[] SHOW = bytes("(show ");
+
+    private static final byte[] PLAYMODE = bytes("(playmode ");
+
+    private static final byte[] TEAM = bytes("(team ");
+
+    private static final byte[] PM = bytes(" (pm ");
+
+    private static final byte[] TM = bytes(") (tm ");
+
+    private static final byte[] CLOSE = bytes(")");
+
+    private static final byte[] NO_TEAMS = bytes("null null 0 0");
+
+    private final String path;
+
+    private final IRoboCupParser parser;
+
+    private final EntityRegistry entityRegistry = new EntityRegistry();
+
+    private final MessageHandlerRegistry messageHandlers =
+            new MessageHandlerRegistry();
+
+    // the current show message in the monitor format
+    private byte[] frame = new byte[4096];
+
+    private ByteBuffer frameBuffer = ByteBuffer.wrap(frame);
+
+    private int frameLength;
+
+    private int playmode = PlayMode.NULL.getId();
+
+    // names and scores as in the "tm" part of a show message
+    private byte[] teams = NO_TEAMS;
+
+    /**
+     * Creates a replay that parses with the {@link ParserEngine#SCANNER}.
+     *
+     * @param path the game log
+     */
+    public GameLogReplay(String path) {
+        this(path, ParserEngine.SCANNER);
+    }
+
+    /**
+     * @param path         the game log
+     * @param parserEngine the parser implementation used for the frames
+     */
+    public GameLogReplay(String path, ParserEngine parserEngine) {
+        this.path = path;
+        this.parser = parserEngine.create(null, entityRegistry);
+    }
+
+    @Override
+    public void registerMessageHandler(IRoboCupMessageHandler messageHandler) {
+        messageHandlers.register(messageHandler);
+    }
+
+    @Override
+    public void registerMessageHandler(IRoboCupMessageHandler messageHandler,
+                                       HandlerSettings settings) {
+        messageHandlers.register(messageHandler, settings);
+    }
+
+    @Override
+    public Flow.Publisher<RoboCupShowMessage> publishFrames(HandlerSettings settings) {
+        return messageHandlers.publish(settings);
+    }
+
+    @Override
+    public Map<IRoboCupMessageHandler, HandlerStatistics> getHandlerStatistics() {
+        return messageHandlers.getStatistics();
+    }
+
+    @Override
+    public EntityRegistry getEntityRegistry() {
+        return entityRegistry;
+    }
+
+    /**
+     * Passes all frames of the game log to the handlers and returns when the isolated handlers have caught up.
+     *
+     * @return the number of frames
+     * @throws IOException if the log cannot be read or has an unsupported version
+     */
+    public int replay() throws IOException {
+        long beforeStart = System.nanoTime();
+        byte[] data = read(path);
+        if (data.length < 4 || data[0] != 'U' || data[1] != 'L' || data[2] != 'G'
+                || (data[3] != '4' && data[3] != '5')) {
+            throw new IOException(path + " is not a game log of version 4 or 5");
+        }
+
+        // decode only what the handlers need
+        parser.setSubscription(messageHandlers.getSubscription());
+        int frames = 0;
+        try {
+            int start = 0;
+            while (start < data.length) {
+                int end = start;
+                while (end < data.length && data[end] != '\n') {
+                    end++;
+                }
+                int lineEnd = end > start && data[end - 1] == '\r' ? end - 1 : end;
+                if (startsWith(data, start, lineEnd, SHOW)) {
+                    if (handleShow(data, start, lineEnd)) {
+                        frames++;
+                    }
+                } else if (startsWith(data, start, lineEnd, PLAYMODE)) {
+                    handlePlaymode(data, start, lineEnd);
+                } else if (startsWith(data, start, lineEnd, TEAM)) {
+                    handleTeam(data, start, lineEnd);
+                }
+                start = end + 1;
+            }
+        } catch (RuntimeException e) {
+            messageHandlers.closeExceptionally(e);
+            throw e;
+        }
+        messageHandlers.close();
+
+        log.info("Replayed " + frames + " frames of " + path + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beforeStart)
+                + " ms.");
+        return frames;
+    }
+
+    /**
+     * Replays all game logs (.rcg and .rcg.gz) of a directory in parallel, using as many threads as there are
+     * processors. See {@link #replayDirectory(String, int, ParserEngine, Function)}.
+     */
+    public static Map<String, Integer> replayDirectory(String directory,
+                                                       Function<String, IRoboCupMessageHandler> handlerFactory)
+            throws IOException {
+        return replayDirectory(directory,
+                Runtime.getRuntime().availableProcessors(),
+                ParserEngine.SCANNER, handlerFactory);
+    }
+
+    /**
+     * Replays all game logs (.rcg and .rcg.gz) of a directory in parallel. Every log is replayed to a handler of its
+     * own, so the handlers need not be thread safe.
+     *
+     * @param directory      the directory containing the logs
+     * @param threads        the number of logs replayed at the same time
+     * @param parserEngine   the parser implementation used for the frames
+     * @param handlerFactory creates the handler for the log with the given path
+     * @return the number of frames per log, in the order of the file names
+     * @throws IOException if the directory cannot be read or one of the logs could not be replayed
+     */
+    public static Map<String, Integer> replayDirectory(String directory,
+                                                       int threads,
+                                                       ParserEngine parserEngine,
+                                                       Function<String, IRoboCupMessageHandler> handlerFactory)
+            throws IOException {
+        File[] logs = new File(directory).listFiles((dir, name) ->
+                name.endsWith(".rcg") || name.endsWith(".rcg.gz"));
+        if (logs == null) {
+            throw new IOException(directory + " is not a readable directory");
+        }
+        Arrays.sort(logs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (File logFile : logs) {
+                String logPath = logFile.getPath();
+                futures.add(executor.submit(() -> {
+                    GameLogReplay replay = new GameLogReplay(logPath, parserEngine);
+                    replay.registerMessageHandler(handlerFactory.apply(logPath));
+                    return replay.replay();
+                }));
+            }
+
+            Map<String, Integer> frames = new LinkedHashMap<>();
+            IOException failure = null;
+            for (int i = 0; i < logs.length; i++) {
+                try {
+                    frames.put(logs[i].getPath(), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    log.error("Could not replay " + logs[i], e.getCause());
+                    if (failure == null) {
+                        failure = new IOException("Could not replay all logs of " + directory);
+                    }
+                    failure.addSuppressed(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while replaying " + directory);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return frames;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Turns a show line "(show TIME ((b) ...) ...)" into "(show TIME (pm PLAYMODE) (tm TEAMS) ((b) ...) ...)", parses
+     * and dispatches it.
+     *
+     * @return true if the line was a valid frame
+     */
+    private boolean handleShow(byte[] data, int start, int end) {
+        int time = start + SHOW.length;
+        int rest = indexOf(data, time, end, (byte) ' ');
+        if (rest < 0) {
+            return false;
+        }
+
+        frameLength = 0;
+        append(data, start, rest - start);
+        append(PM, 0, PM.length);
+        appendInt(playmode);
+        append(TM, 0, TM.length);
+        append(teams, 0, teams.length);
+        append(CLOSE, 0, CLOSE.length);
+        append(data, rest, end - rest);
+
+        frameBuffer.clear();
+        frameBuffer.limit(frameLength);
+        RoboCupMessage message = parser.parseMessage(frameBuffer);
+        if (message instanceof RoboCupShowMessage) {
+            messageHandlers.dispatch((RoboCupShowMessage) message);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handles a line "(playmode TIME NAME)".
+     */
+    private void handlePlaymode(byte[] data, int start, int end) {
+        int name = indexOf(data, start + PLAYMODE.length, end, (byte) ' ') + 1;
+        int close = indexOf(data, name, end, (byte) ')');
+        if (name == 0 || close < 0) {
+            return;
+        }
+        String serverName = new String(data, name, close - name, StandardCharsets.ISO_8859_1);
+        PlayMode playMode = PlayMode.ofServerName(serverName);
+        if (playMode == null) {
+            log.warn("Unknown play mode " + serverName + " in " + path);
+            playMode = PlayMode.NULL;
+        }
+        playmode = playMode.getId();
+    }
+
+    /**
+     * Handles a line "(team TIME LEFT RIGHT LEFTSCORE RIGHTSCORE [PENALTIES...])", keeping names and scores.
+     */
+    private void handleTeam(byte[] data, int start, int end) {
+        int from = indexOf(data, start + TEAM.length, end, (byte) ' ') + 1;
+        if (from == 0) {
+            return;
+        }
+        // the first four tokens, without the penalty scores
+        int to = from;
+        int spaces = 0;
+        while (to < end && data[to] != ')' && (data[to] != ' ' || ++spaces < 4)) {
+            to++;
+        }
+        if (to == end || spaces < 3) {
+            log.warn("Malformed team line in " + path);
+            return;
+        }
+        teams = Arrays.copyOfRange(data, from, to);
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, frame, frameLength, length);
+        frameLength += length;
+    }
+
+    /**
+     * Appends a play mode id, which is never negative.
+     */
+    private void appendInt(int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = frameLength + digits - 1; i >= frameLength; i--) {
+            frame[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        frameLength += digits;
+    }
+
+    private void ensureCapacity(int length) {
+        if (frameLength + length > frame.length) {
+            frame = Arrays.copyOf(frame, Math.max(2 * frame.length, frameLength + length));
+            frameBuffer = ByteBuffer.wrap(frame);
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, int end, byte b) {
+        for (int i = from; i < end; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] read(String path) throws IOException {
+        try (InputStream in = path.endsWith(".gz")
+                ? new GZIPInputStream(new FileInputStream(path))
+                : new FileInputStream(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
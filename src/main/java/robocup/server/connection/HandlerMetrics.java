@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * The time the observing thread spends in a message handler. For an isolated handler (see {@link
+ * HandlerSettings#setIsolated(boolean)}) this is the time to enqueue the message.
+ */
+public class HandlerMetrics implements HandlerMetricsMBean {
+
+    private final String name;
+
+    private final LatencyHistogram dispatchTime = new LatencyHistogram();
+
+    /**
+     * @param name the name of the handler, unique within its connection
+     */
+    HandlerMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the histogram of dispatch times in nanoseconds
+     */
+    public LatencyHistogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    void recordDispatch(long nanos) {
+        dispatchTime.record(nanos);
+    }
+
+    @Override
+    public long getDispatched() {
+        return dispatchTime.getCount();
+    }
+
+    @Override
+    public double getDispatchMeanMicros() {
+        return dispatchTime.getMean() / 1000;
+    }
+
+    @Override
+    public double getDispatchP50Micros() {
+        return dispatchTime.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getDispatchP99Micros() {
+        return dispatchTime.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getDispatchMaxMicros() {
+        return dispatchTime.getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        dispatchTime.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + " [dispatched=" + getDispatched() + ", mean="
+                + String.format("%.1f", getDispatchMeanMicros()) + " us, p99="
+                + String.format("%.1f", getDispatchP99Micros()) + " us]";
+    }
+}
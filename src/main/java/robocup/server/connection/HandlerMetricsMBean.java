@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * The metrics of a message handler as published over JMX, see {@link HandlerMetrics}. Durations are given in
+ * microseconds.
+ */
+public interface HandlerMetricsMBean {
+
+    /**
+     * @return the number of messages passed to the handler
+     */
+    long getDispatched();
+
+    double getDispatchMeanMicros();
+
+    double getDispatchP50Micros();
+
+    double getDispatchP99Micros();
+
+    double getDispatchMaxMicros();
+
+    void reset();
+}
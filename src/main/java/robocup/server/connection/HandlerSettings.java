@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Settings for a message handler registered with {@link ISoccerServerConnection#registerMessageHandler
+ * (IRoboCupMessageHandler, HandlerSettings)}. By default, a handler is called by the observing thread, so a slow handler
+ * delays the observation and all other handlers. An isolated handler instead gets its own thread and a bounded queue of
+ * messages, which it still receives in order.
+ * <p>
+ * A handler can also declare which parts of the show messages it needs (see {@link FrameSubscription}). The
+ * connection then only decodes what at least one of its handlers has subscribed to.
+ */
+public class HandlerSettings {
+
+    /**
+     * What happens to a new message if the queue of an isolated handler is full. Notices of missing turns are never
+     * discarded, only show messages are.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The observing thread waits until the handler has caught up. No message is lost.
+         */
+        BLOCK,
+
+        /**
+         * The oldest queued show message is discarded.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The new show message is discarded.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The newest queued show message is replaced, so the handler skips intermediate messages but always gets the
+         * latest one.
+         */
+        COALESCE_LATEST
+    }
+
+    private boolean isolated = false;
+
+    private int queueCapacity = 64;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Executor executor;
+
+    private boolean virtualThread = false;
+
+    private FrameSubscription subscription = FrameSubscription.ALL;
+
+    public HandlerSettings() {
+        // default settings
+    }
+
+    /**
+     * @param settings the settings to copy
+     */
+    public HandlerSettings(HandlerSettings settings) {
+        this.isolated = settings.isolated;
+        this.queueCapacity = settings.queueCapacity;
+        this.overflowPolicy = settings.overflowPolicy;
+        this.executor = settings.executor;
+        this.virtualThread = settings.virtualThread;
+        this.subscription = settings.subscription;
+    }
+
+    public boolean isIsolated() {
+        return isolated;
+    }
+
+    /**
+     * @param isolated if set to true, the handler runs on its own thread behind a bounded queue
+     */
+    public HandlerSettings setIsolated(boolean isolated) {
+        this.isolated = isolated;
+        return this;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity the number of messages an isolated handler may lag behind
+     */
+    public HandlerSettings setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queue capacity must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public HandlerSettings setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor the executor that runs the delivery loop of an isolated handler. If null, the handler gets a
+     *                 thread of its own.
+     */
+    public HandlerSettings setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * @param virtualThread if set to true and no executor is given, an isolated handler runs on a virtual thread if
+     *                      the Java runtime supports them, and on a platform thread otherwise
+     */
+    public HandlerSettings setVirtualThread(boolean virtualThread) {
+        this.virtualThread = virtualThread;
+        return this;
+    }
+
+    public FrameSubscription getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * @param subscription the entities and fields of the show messages the handler reads. Values outside of the
+     *                     subscription may be missing from the messages the handler receives.
+     */
+    public HandlerSettings setSubscription(FrameSubscription subscription) {
+        this.subscription = subscription;
+        return this;
+    }
+}
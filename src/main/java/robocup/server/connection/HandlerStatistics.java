@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * A snapshot of the counters of an isolated message handler (see {@link HandlerSettings#setIsolated(boolean)}).
+ */
+public class HandlerStatistics {
+
+    private final long handled;
+
+    private final long dropped;
+
+    private final long coalesced;
+
+    private final long blocked;
+
+    private final int queued;
+
+    private final int maxQueued;
+
+    private final int turnLag;
+
+    HandlerStatistics(long handled, long dropped, long coalesced, long blocked,
+                      int queued, int maxQueued, int turnLag) {
+        this.handled = handled;
+        this.dropped = dropped;
+        this.coalesced = coalesced;
+        this.blocked = blocked;
+        this.queued = queued;
+        this.maxQueued = maxQueued;
+        this.turnLag = turnLag;
+    }
+
+    /**
+     * @return the number of messages the handler has processed
+     */
+    public long getHandled() {
+        return handled;
+    }
+
+    /**
+     * @return the number of messages discarded due to {@link HandlerSettings.OverflowPolicy#DROP_OLDEST}
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of messages replaced due to {@link HandlerSettings.OverflowPolicy#COALESCE_LATEST}
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return how often the observing thread had to wait due to {@link HandlerSettings.OverflowPolicy#BLOCK}
+     */
+    public long getBlocked() {
+        return blocked;
+    }
+
+    /**
+     * @return the number of messages waiting for the handler
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return the difference between the turn of the latest message passed to the handler and the turn of the latest
+     * message it has processed
+     */
+    public int getTurnLag() {
+        return turnLag;
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerStatistics [handled=" + handled + ", dropped=" + dropped
+                + ", coalesced=" + coalesced + ", blocked=" + blocked
+                + ", queued=" + queued + " (max " + maxQueued + "), turnLag="
+                + turnLag + "]";
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+/**
+ * A source of messages of a match that passes the show messages to registered handlers, either a live connection to a
+ * soccer server ({@link ISoccerServerConnection}) or the replay of a game log ({@link GameLogReplay}).
+ */
+public interface IRoboCupMessageSource {
+
+    void registerMessageHandler(IRoboCupMessageHandler messageHandler);
+
+    /**
+     * Registers a message handler with the given settings, e.g. to decouple it from the observing thread.
+     *
+     * @param messageHandler the handler
+     * @param settings       the settings of the handler
+     */
+    void registerMessageHandler(IRoboCupMessageHandler messageHandler,
+                                HandlerSettings settings);
+
+    /**
+     * Publishes the show messages to subscribers that request them at their own pace. Each subscriber has a bounded
+     * buffer of {@link HandlerSettings#getQueueCapacity()} messages, drained on the executor of the settings (or a
+     * default one). If a subscriber falls behind by more than that, the source waits for it with {@link
+     * HandlerSettings.OverflowPolicy#BLOCK} and discards the new messages for it with {@link
+     * HandlerSettings.OverflowPolicy#DROP_NEWEST}. Subscribers are completed after the last message of the match, or
+     * get the failure that ended the observation. The publisher is then removed from the source, so every observation
+     * or replay needs a publisher of its own.
+     * <p>
+     * Like handlers, publishers may be added while the source is running, but the parts of the messages decoded (see
+     * {@link HandlerSettings#setSubscription}) are fixed when the source starts.
+     *
+     * @param settings the settings of the publisher, {@link HandlerSettings#isIsolated()} is ignored
+     * @return a publisher that accepts any number of subscribers
+     * @throws IllegalArgumentException if the overflow policy is {@link HandlerSettings.OverflowPolicy#DROP_OLDEST}
+     *                                  or {@link HandlerSettings.OverflowPolicy#COALESCE_LATEST}
+     */
+    Flow.Publisher<RoboCupShowMessage> publishFrames(HandlerSettings settings);
+
+    /**
+     * @return the current counters of all isolated handlers (see {@link HandlerSettings#setIsolated(boolean)})
+     */
+    Map<IRoboCupMessageHandler, HandlerStatistics> getHandlerStatistics();
+
+    /**
+     * @return the registry of the teams of this source, which provides the canonical instances of the team names in
+     * the show messages
+     */
+    EntityRegistry getEntityRegistry();
+
+}
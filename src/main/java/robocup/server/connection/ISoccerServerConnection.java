@@ -16,16 +16,17 @@
 
 package robocup.server.connection;
 
-import robocup.server.connection.message.IRoboCupMessageHandler;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface represents the connection to a soccer server instance.
  *
  * @author Tom Warnke
  */
-public interface ISoccerServerConnection {
-
-    void registerMessageHandler(IRoboCupMessageHandler messageHandler);
+public interface ISoccerServerConnection extends IRoboCupMessageSource,
+        Closeable {
 
     /**
      * Observes the soccer server, recording the match.
@@ -35,4 +36,49 @@ public interface ISoccerServerConnection {
      */
     void observe(boolean autoMode);
 
+    /**
+     * Observes the soccer server without blocking the calling thread, on the shared {@link
+     * ObservationEventLoop#getDefault()}.
+     *
+     * @param autoMode see {@link #observe(boolean)}
+     * @return completes with the loss summary when the game has ended, or exceptionally if the server fell silent
+     */
+    CompletableFuture<LossSummary> observeAsync(boolean autoMode);
+
+    /**
+     * Observes the soccer server on the given event loop. Connections with the {@link
+     * ConnectionSettings.Transport#DATAGRAM_SOCKET} transport cannot be selected and are observed on a thread of their
+     * own instead.
+     *
+     * @param autoMode  see {@link #observe(boolean)}
+     * @param eventLoop the event loop
+     * @return completes with the loss summary when the game has ended, or exceptionally if the server fell silent
+     */
+    CompletableFuture<LossSummary> observeAsync(boolean autoMode,
+                                               ObservationEventLoop eventLoop);
+
+    /**
+     * @return the current queue depths if the connection is pipelined (see {@link ConnectionSettings#setPipelined
+     * (boolean)}), null otherwise
+     */
+    PipelineStatistics getPipelineStatistics();
+
+    /**
+     * @return the counters and latency histograms of the connection
+     */
+    ConnectionMetrics getMetrics();
+
+    /**
+     * @return the received, missing, duplicate and reordered turns of the current or last observed match
+     */
+    LossSummary getLossSummary();
+
+    /**
+     * Closes the monitor connection. A running observation then fails with an {@link IOException}.
+     *
+     * @throws IOException if the socket could not be closed
+     */
+    @Override
+    void close() throws IOException;
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * A UDP connection to a soccer server, see {@link UDPConnection} and {@link NioUDPConnection}. Implementations must be
+ * mutable because the monitor protocol changes the target port after registering (see {@link
+ * #receiveNewConnection()}).
+ */
+interface IUDPConnection extends Closeable {
+
+    /**
+     * The receive timeout of a new connection in milliseconds.
+     */
+    int DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Send a message to the server.
+     *
+     * @param message
+     * @throws IOException if the message could not be sent
+     */
+    void send(String message) throws IOException;
+
+    /**
+     * Receive a message from the server. The returned buffer may be reused by the next call, so its content has to be
+     * processed before receiving again.
+     *
+     * @return a buffer containing the message bytes between its position and its limit
+     * @throws IOException if no message could be received before timeout
+     */
+    ByteBuffer receiveMessage() throws IOException;
+
+    /**
+     * Receive a message from the server into the given buffer, which must have been allocated by {@link
+     * #allocateBuffer()}. Afterwards the message lies between position 0 and the limit of the buffer. Only one thread
+     * may receive at a time.
+     *
+     * @param buffer the buffer to receive into
+     * @throws IOException if no message could be received before timeout
+     */
+    void receive(ByteBuffer buffer) throws IOException;
+
+    /**
+     * @return a new buffer that is suitable for {@link #receive(ByteBuffer)} and large enough for every message
+     */
+    ByteBuffer allocateBuffer();
+
+    /**
+     * @param timeoutMillis how long the receiving methods wait for a message before they throw a {@link
+     *                      java.net.SocketTimeoutException}
+     * @throws IOException if the timeout could not be set
+     */
+    void setTimeout(int timeoutMillis) throws IOException;
+
+    /**
+     * @return the non-blocking channel of this connection, which an {@link ObservationEventLoop} can select on, or null
+     * if the connection is not based on a channel
+     */
+    DatagramChannel getChannel();
+
+    /**
+     * Receives a message from the server, propagating a new connection target, and returns the changed connection to
+     * the new target. See {@link UDPConnection#receiveNewConnection()} for details.
+     *
+     * @return the functional monitor connection
+     * @throws IOException
+     */
+    IUDPConnection receiveNewConnection() throws IOException;
+
+    /**
+     * Closes the socket of the connection, which also cancels its registrations at the selectors of an {@link
+     * ObservationEventLoop}.
+     *
+     * @throws IOException if the socket could not be closed
+     */
+    @Override
+    void close() throws IOException;
+
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decouples a message handler from the observing thread. Messages are put into a bounded queue and handed to the
+ * wrapped handler, in order, by a delivery loop on a thread of its own (or on an executor). What happens if the queue
+ * is full is determined by the {@link HandlerSettings.OverflowPolicy}. Missing turns are queued like messages, so they
+ * reach the wrapped handler in order, but they are never discarded. Pooled messages are retained while they are queued.
+ * <p>
+ * The delivery loop starts with the first message and ends when {@link #close()} is called, after all queued messages
+ * have been delivered.
+ */
+class IsolatedMessageHandler implements IRoboCupMessageHandler {
+
+    private static final Logger log = Logger.getLogger(IsolatedMessageHandler.class);
+
+    private final IRoboCupMessageHandler delegate;
+
+    private final HandlerSettings.OverflowPolicy overflowPolicy;
+
+    private final Executor executor;
+
+    private final boolean virtualThread;
+
+    // show messages and missing turns
+    private final Object[] queue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition stopped = lock.newCondition();
+
+    // index of the oldest queued message
+    private int head = 0;
+
+    private int size = 0;
+
+    private boolean running = false;
+
+    private boolean closing = false;
+
+    private long handled, dropped, coalesced, blocked;
+
+    private int maxQueued;
+
+    private int lastOfferedTurn, lastHandledTurn;
+
+    /**
+     * @param delegate the handler to decouple
+     * @param settings the settings of the handler
+     */
+    IsolatedMessageHandler(IRoboCupMessageHandler delegate,
+                           HandlerSettings settings) {
+        this.delegate = delegate;
+        this.overflowPolicy = settings.getOverflowPolicy();
+        this.executor = settings.getExecutor();
+        this.virtualThread = settings.isVirtualThread();
+        this.queue = new Object[settings.getQueueCapacity()];
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        lock.lock();
+        try {
+            lastOfferedTurn = message.getTurn();
+            offer(message.retain());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void handleMissingTurns(int firstTurn, int lastTurn) {
+        lock.lock();
+        try {
+            offer(new MissingTurns(firstTurn, lastTurn));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a message or missing turns according to the overflow policy. The policy only ever discards show messages:
+     * missing turns are always queued, if need be in place of a show message or merged with the missing turns queued
+     * last. Must be called with the lock held.
+     */
+    private void offer(Object entry) {
+        if (!running) {
+            running = true;
+            startDeliveryLoop();
+        }
+        if (size == queue.length) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    blocked++;
+                    while (size == queue.length) {
+                        notFull.awaitUninterruptibly();
+                    }
+                    break;
+                case DROP_OLDEST:
+                    if (!removeMessage(true, entry)) {
+                        return;
+                    }
+                    dropped++;
+                    break;
+                case DROP_NEWEST:
+                    if (entry instanceof RoboCupShowMessage) {
+                        releaseMessage(entry);
+                        dropped++;
+                        return;
+                    }
+                    if (!removeMessage(false, entry)) {
+                        return;
+                    }
+                    dropped++;
+                    break;
+                case COALESCE_LATEST:
+                    if (!removeMessage(false, entry)) {
+                        return;
+                    }
+                    coalesced++;
+                    break;
+            }
+        }
+        queue[(head + size) % queue.length] = entry;
+        size++;
+        maxQueued = Math.max(maxQueued, size);
+        notEmpty.signal();
+    }
+
+    /**
+     * Makes room in the full queue by discarding the oldest or the newest queued show message. If only missing turns
+     * are queued, the new entry is dealt with instead: show messages are discarded, missing turns are merged with the
+     * missing turns queued last.
+     *
+     * @return true if there is room for the new entry, false if it has been dealt with
+     */
+    private boolean removeMessage(boolean oldest, Object entry) {
+        for (int i = 0; i < size; i++) {
+            int position = oldest ? i : size - 1 - i;
+            Object queued = queue[(head + position) % queue.length];
+            if (queued instanceof RoboCupShowMessage) {
+                ((RoboCupShowMessage) queued).release();
+                // close the gap, keeping the order of the entries after it
+                for (int next = position + 1; next < size; next++) {
+                    queue[(head + next - 1) % queue.length] =
+                            queue[(head + next) % queue.length];
+                }
+                queue[(head + size - 1) % queue.length] = null;
+                size--;
+                return true;
+            }
+        }
+        if (entry instanceof MissingTurns) {
+            int last = (head + size - 1) % queue.length;
+            // the turns between the two gaps have been discarded, so they are missing as well
+            queue[last] = new MissingTurns(((MissingTurns) queue[last]).firstTurn,
+                    ((MissingTurns) entry).lastTurn);
+        } else {
+            releaseMessage(entry);
+            if (overflowPolicy == HandlerSettings.OverflowPolicy.COALESCE_LATEST) {
+                coalesced++;
+            } else {
+                dropped++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delivers all queued messages and stops the delivery loop. Blocks until the last message has been handled.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closing = true;
+            notEmpty.signal();
+            while (running) {
+                stopped.awaitUninterruptibly();
+            }
+            closing = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    HandlerStatistics getStatistics() {
+        lock.lock();
+        try {
+            return new HandlerStatistics(handled, dropped, coalesced, blocked,
+                    size, maxQueued, lastOfferedTurn - lastHandledTurn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver() {
+        boolean drained = false;
+        try {
+            while (true) {
+                Object entry;
+                lock.lock();
+                try {
+                    while (size == 0 && !closing) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (size == 0) {
+                        running = false;
+                        stopped.signalAll();
+                        drained = true;
+                        return;
+                    }
+                    entry = queue[head];
+                    queue[head] = null;
+                    head = (head + 1) % queue.length;
+                    size--;
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (entry instanceof MissingTurns) {
+                    MissingTurns missingTurns = (MissingTurns) entry;
+                    try {
+                        delegate.handleMissingTurns(missingTurns.firstTurn,
+                                missingTurns.lastTurn);
+                    } catch (RuntimeException e) {
+                        log.error("Message handler failed on missing turns "
+                                + missingTurns.firstTurn + " to " + missingTurns.lastTurn, e);
+                    }
+                    continue;
+                }
+
+                RoboCupShowMessage message = (RoboCupShowMessage) entry;
+                int turn = message.getTurn();
+                try {
+                    delegate.handleMessage(message);
+                } catch (RuntimeException e) {
+                    log.error("Message handler failed in turn " + turn, e);
+                } finally {
+                    message.release();
+                    lock.lock();
+                    try {
+                        handled++;
+                        lastHandledTurn = turn;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } finally {
+            if (!drained) {
+                // an Error ends the loop, the next message starts a new one and close() must not wait for this one
+                lock.lock();
+                try {
+                    running = false;
+                    stopped.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static void releaseMessage(Object entry) {
+        if (entry instanceof RoboCupShowMessage) {
+            ((RoboCupShowMessage) entry).release();
+        }
+    }
+
+    private void startDeliveryLoop() {
+        if (executor != null) {
+            executor.execute(this::deliver);
+            return;
+        }
+        String name = "message-handler-" + delegate.getClass().getSimpleName();
+        Thread thread = virtualThread ? newVirtualThread(this::deliver, name) : null;
+        if (thread == null) {
+            thread = new Thread(this::deliver, name);
+            thread.setDaemon(true);
+        }
+        thread.start();
+    }
+
+    /**
+     * Creates a virtual thread via reflection, as they are not available on all supported Java versions.
+     *
+     * @return the unstarted thread or null if virtual threads are not supported
+     */
+    private static Thread newVirtualThread(Runnable task, String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class)
+                    .invoke(builder, name);
+            Method unstarted = builderClass.getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Virtual threads are not available, using a platform thread");
+            return null;
+        }
+    }
+
+    private static final class MissingTurns {
+
+        private final int firstTurn;
+
+        private final int lastTurn;
+
+        private MissingTurns(int firstTurn, int lastTurn) {
+            this.firstTurn = firstTurn;
+            this.lastTurn = lastTurn;
+        }
+    }
+}
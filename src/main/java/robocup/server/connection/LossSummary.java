@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * A snapshot of the show messages a connection has received during a match compared to the turns it expected, see
+ * {@link ConnectionSettings#setReorderWindow(int)}. A missing turn is one whose show message never arrived (or arrived
+ * too late, after the handlers had been told that it is missing).
+ */
+public class LossSummary {
+
+    private final int firstTurn;
+
+    private final int lastTurn;
+
+    private final long received;
+
+    private final long missing;
+
+    private final long gaps;
+
+    private final int largestGap;
+
+    private final long duplicates;
+
+    private final long reordered;
+
+    private final long late;
+
+    LossSummary(int firstTurn, int lastTurn, long received, long missing,
+                long gaps, int largestGap, long duplicates, long reordered,
+                long late) {
+        this.firstTurn = firstTurn;
+        this.lastTurn = lastTurn;
+        this.received = received;
+        this.missing = missing;
+        this.gaps = gaps;
+        this.largestGap = largestGap;
+        this.duplicates = duplicates;
+        this.reordered = reordered;
+        this.late = late;
+    }
+
+    /**
+     * @return the turn of the first show message, or -1 if none has been received
+     */
+    public int getFirstTurn() {
+        return firstTurn;
+    }
+
+    /**
+     * @return the turn of the latest show message passed to the handlers
+     */
+    public int getLastTurn() {
+        return lastTurn;
+    }
+
+    /**
+     * @return the number of show messages passed to the handlers, including repeated turns during interruptions of the
+     * game
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the number of turns without a show message
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the number of ranges of consecutive missing turns
+     */
+    public long getGaps() {
+        return gaps;
+    }
+
+    /**
+     * @return the length of the longest range of consecutive missing turns
+     */
+    public int getLargestGap() {
+        return largestGap;
+    }
+
+    /**
+     * @return the number of discarded copies of a show message
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the number of show messages that arrived after a message of a later turn but could be put back in order
+     */
+    public long getReordered() {
+        return reordered;
+    }
+
+    /**
+     * @return the number of show messages discarded because their turn had already been passed
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * @return the fraction of the turns between the first and the last turn that are missing
+     */
+    public double getLossRate() {
+        long expected = lastTurn - firstTurn + 1L;
+        return firstTurn < 0 || expected <= 0 ? 0 : (double) missing / expected;
+    }
+
+    @Override
+    public String toString() {
+        return "LossSummary [turns=" + firstTurn + ".." + lastTurn + ", received="
+                + received + ", missing=" + missing + " in " + gaps
+                + " gaps (largest " + largestGap + "), duplicates=" + duplicates
+                + ", reordered=" + reordered + ", late=" + late + ", lossRate="
+                + String.format("%.4f", getLossRate()) + "]";
+    }
+}
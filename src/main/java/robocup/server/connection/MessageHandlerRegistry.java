@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The message handlers registered at an {@link IRoboCupMessageSource}. Isolated handlers are wrapped in an {@link
+ * IsolatedMessageHandler} and frame publishers are {@link FramePublisher}s; both have to be closed when the source is
+ * done. The registry also collects the union of the subscriptions of all handlers and measures the dispatch time of
+ * every handler (see {@link HandlerMetrics}).
+ * <p>
+ * Handlers may be registered while messages are dispatched. They are called in the order of their registration.
+ */
+class MessageHandlerRegistry {
+
+    // copied on write, so dispatching needs no lock and allocates no iterator
+    private volatile Registration[] registrations = new Registration[0];
+
+    private final Map<IRoboCupMessageHandler, IsolatedMessageHandler>
+            isolatedHandlers = new HashMap<>();
+
+    private final List<FramePublisher> publishers = new ArrayList<>();
+
+    private volatile FrameSubscription subscription = FrameSubscription.none();
+
+    // names the handler metrics, never reused as removing publishers shrinks the registrations
+    private int registered;
+
+    synchronized void register(IRoboCupMessageHandler messageHandler) {
+        add(messageHandler, messageHandler);
+        subscription = FrameSubscription.ALL;
+    }
+
+    synchronized void register(IRoboCupMessageHandler messageHandler,
+                               HandlerSettings settings) {
+        subscription = subscription.union(settings.getSubscription());
+        if (settings.isIsolated()) {
+            IsolatedMessageHandler isolatedHandler =
+                    new IsolatedMessageHandler(messageHandler, settings);
+            isolatedHandlers.put(messageHandler, isolatedHandler);
+            add(messageHandler, isolatedHandler);
+        } else {
+            add(messageHandler, messageHandler);
+        }
+    }
+
+    /**
+     * Registers a new publisher of the show messages.
+     *
+     * @param settings the buffer capacity, overflow policy, executor and subscription of the publisher
+     * @return the publisher
+     */
+    synchronized FramePublisher publish(HandlerSettings settings) {
+        FramePublisher publisher = new FramePublisher(settings);
+        subscription = subscription.union(settings.getSubscription());
+        publishers.add(publisher);
+        add(publisher, publisher);
+        return publisher;
+    }
+
+    private void add(IRoboCupMessageHandler messageHandler,
+                     IRoboCupMessageHandler dispatchTarget) {
+        for (Registration registered : registrations) {
+            if (registered.target == dispatchTarget) {
+                return;
+            }
+        }
+        int count = registrations.length;
+        Class<?> handlerClass = messageHandler.getClass();
+        String name = handlerClass.isSynthetic() || handlerClass.isAnonymousClass()
+                ? "handler" : handlerClass.getSimpleName();
+        Registration[] extended = Arrays.copyOf(registrations, count + 1);
+        extended[count] = new Registration(dispatchTarget,
+                new HandlerMetrics(name + "-" + registered++));
+        registrations = extended;
+    }
+
+    /**
+     * @return what the registered handlers need of the show messages
+     */
+    FrameSubscription getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * Passes the message to all handlers.
+     */
+    void dispatch(RoboCupShowMessage message) {
+        Registration[] current = registrations;
+        long start = System.nanoTime();
+        for (Registration registration : current) {
+            registration.target.handleMessage(message);
+            long end = System.nanoTime();
+            registration.metrics.recordDispatch(end - start);
+            start = end;
+        }
+    }
+
+    /**
+     * Tells all handlers that the show messages of the given turns got lost.
+     */
+    void dispatchMissingTurns(int firstTurn, int lastTurn) {
+        for (Registration registration : registrations) {
+            registration.target.handleMissingTurns(firstTurn, lastTurn);
+        }
+    }
+
+    /**
+     * Lets the isolated handlers catch up and completes the publishers. The publishers are removed, as they cannot be
+     * reopened, while the handlers stay registered for the next match.
+     */
+    synchronized void close() {
+        isolatedHandlers.values().forEach(IsolatedMessageHandler::close);
+        publishers.forEach(FramePublisher::close);
+        removePublishers();
+    }
+
+    /**
+     * Lets the isolated handlers catch up and passes the failure to the subscribers of the publishers, see {@link
+     * #close()}.
+     */
+    synchronized void closeExceptionally(Throwable failure) {
+        isolatedHandlers.values().forEach(IsolatedMessageHandler::close);
+        publishers.forEach(publisher -> publisher.closeExceptionally(failure));
+        removePublishers();
+    }
+
+    private void removePublishers() {
+        if (publishers.isEmpty()) {
+            return;
+        }
+        List<Registration> remaining = new ArrayList<>();
+        for (Registration registration : registrations) {
+            if (!publishers.contains(registration.target)) {
+                remaining.add(registration);
+            }
+        }
+        registrations = remaining.toArray(new Registration[0]);
+        publishers.clear();
+    }
+
+    /**
+     * @return the dispatch times of the handlers in the order of their registration
+     */
+    List<HandlerMetrics> getMetrics() {
+        List<HandlerMetrics> metrics = new ArrayList<>();
+        for (Registration registration : registrations) {
+            metrics.add(registration.metrics);
+        }
+        return metrics;
+    }
+
+    synchronized Map<IRoboCupMessageHandler, HandlerStatistics> getStatistics() {
+        Map<IRoboCupMessageHandler, HandlerStatistics> statistics =
+                new HashMap<>();
+        isolatedHandlers.forEach((handler, isolatedHandler) ->
+                statistics.put(handler, isolatedHandler.getStatistics()));
+        return statistics;
+    }
+
+    private static final class Registration {
+
+        private final IRoboCupMessageHandler target;
+
+        private final HandlerMetrics metrics;
+
+        private Registration(IRoboCupMessageHandler target,
+                             HandlerMetrics metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+    }
+}
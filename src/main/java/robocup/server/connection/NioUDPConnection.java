@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A UDP connection based on a {@link DatagramChannel}. Messages are received into a reused direct buffer, so receiving
+ * does not allocate. The monitor handshake works as described in {@link UDPConnection#receiveNewConnection()}; once the
+ * new target is known, the channel is connected to it and only accepts datagrams from the server.
+ * <p>
+ * The channel is non-blocking and receiving waits on a selector, because blocking channels do not support a receive
+ * timeout.
+ */
+class NioUDPConnection implements IUDPConnection {
+
+    private static final Logger log = Logger.getLogger(NioUDPConnection.class);
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final DatagramChannel channel;
+
+    private final Selector selector;
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private SocketAddress target;
+
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    /**
+     * Create a new connection to the specified address.
+     *
+     * @param hostname          the host to connect to
+     * @param targetPort        the target port
+     * @param receiveBufferSize the size of the socket receive buffer (SO_RCVBUF), or 0 for the default of the system
+     * @throws IOException if the connection can not be established
+     */
+    NioUDPConnection(String hostname, int targetPort, int receiveBufferSize)
+            throws IOException {
+        target = new InetSocketAddress(hostname, targetPort);
+
+        channel = DatagramChannel.open();
+        if (receiveBufferSize > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            // the system may limit the size
+            log.info("Receive buffer size is "
+                    + channel.getOption(StandardSocketOptions.SO_RCVBUF));
+        }
+        // any local port
+        channel.bind(null);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+
+        log.info("Got channel on local address " + channel.getLocalAddress()
+                + " to " + target);
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put(message.getBytes(StandardCharsets.ISO_8859_1));
+        sendBuffer.flip();
+        if (channel.isConnected()) {
+            channel.write(sendBuffer);
+        } else {
+            channel.send(sendBuffer, target);
+        }
+        log.info("Sent: " + message);
+    }
+
+    @Override
+    public ByteBuffer receiveMessage() throws IOException {
+        receive(receiveBuffer);
+        return receiveBuffer;
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            awaitReadable();
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+    }
+
+    @Override
+    public void setTimeout(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public ByteBuffer allocateBuffer() {
+        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public DatagramChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public NioUDPConnection receiveNewConnection() throws IOException {
+        receiveBuffer.clear();
+        SocketAddress source;
+        do {
+            awaitReadable();
+            source = channel.receive(receiveBuffer);
+        } while (source == null);
+        target = source;
+        channel.connect(target);
+        log.info("Changed channel on local address " + channel.getLocalAddress()
+                + " to " + target);
+        return this;
+    }
+
+    /**
+     * Closes the selector and the channel. Closing the channel cancels its keys at the selectors of an {@link
+     * ObservationEventLoop} as well.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            selector.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @throws SocketTimeoutException if no datagram arrives before timeout
+     */
+    private void awaitReadable() throws IOException {
+        if (selector.select(timeoutMillis) == 0) {
+            throw new SocketTimeoutException("Receive timed out");
+        }
+        selector.selectedKeys().clear();
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Observes many soccer servers from a few threads (see {@link ISoccerServerConnection#observeAsync(boolean,
+ * ObservationEventLoop)}). Every thread waits on a selector for the monitor channels of its matches, parses the
+ * datagrams that have arrived and passes them to the handlers, and sends the kick offs. A match ends at turn 6000, or
+ * with a {@link SocketTimeoutException} if its server has been silent for longer than the receive timeout of the
+ * connection (see {@link ConnectionSettings#setReceiveTimeout(int)}).
+ * <p>
+ * The handlers of all matches of a thread are called by that thread, so a slow handler delays the other matches as
+ * well; such handlers should be isolated (see {@link HandlerSettings#setIsolated(boolean)}). Only connections with the
+ * {@link ConnectionSettings.Transport#DATAGRAM_CHANNEL} transport can be observed, and they are never pipelined.
+ */
+public final class ObservationEventLoop implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(ObservationEventLoop.class);
+
+    // how often the threads check for silent servers
+    private static final long SELECT_TIMEOUT_MILLIS = 250;
+
+    // datagrams read from one channel before the other channels get their turn
+    private static final int MAX_DATAGRAMS_PER_ROUND = 16;
+
+    private static ObservationEventLoop defaultLoop;
+
+    private final Worker[] workers;
+
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * @param threads the number of threads
+     * @throws IOException if a selector cannot be opened
+     */
+    public ObservationEventLoop(int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The event loop needs at least one thread");
+        }
+        workers = new Worker[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Worker("observation-event-loop-" + i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * @return the event loop shared by all connections that do not name one, with a single thread
+     */
+    public static synchronized ObservationEventLoop getDefault() {
+        if (defaultLoop == null) {
+            try {
+                defaultLoop = new ObservationEventLoop(1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the event loop", e);
+            }
+        }
+        return defaultLoop;
+    }
+
+    /**
+     * Starts observing the match of the given connection on one of the threads.
+     *
+     * @return completes with the loss summary at the end of the match
+     */
+    CompletableFuture<LossSummary> observe(SoccerServerConnection connection,
+                                           boolean autoMode) {
+        Observation observation = new Observation(connection, autoMode);
+        int index = Math.floorMod(nextWorker.getAndIncrement(), workers.length);
+        workers[index].add(observation);
+        return observation.result;
+    }
+
+    /**
+     * @return the number of matches currently observed
+     */
+    public int getObservationCount() {
+        int count = 0;
+        for (Worker worker : workers) {
+            count += worker.observations;
+        }
+        return count;
+    }
+
+    /**
+     * Stops the threads. Matches that are still observed fail with an {@link IOException}.
+     */
+    @Override
+    public void close() {
+        for (Worker worker : workers) {
+            if (worker != null) {
+                worker.stop();
+            }
+        }
+    }
+
+    /**
+     * A thread with its selector.
+     */
+    private final class Worker implements Runnable {
+
+        private final Selector selector;
+
+        private final Thread thread;
+
+        private final Queue<Observation> added = new ConcurrentLinkedQueue<>();
+
+        // the observations registered at the selector, only accessed by the thread
+        private final List<Observation> active = new ArrayList<>();
+
+        private volatile boolean running = true;
+
+        private volatile int observations;
+
+        private Worker(String name) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        private void add(Observation observation) {
+            added.add(observation);
+            if (!running) {
+                // the loop may have drained the queue already
+                observation.result.completeExceptionally(
+                        new IOException("The event loop is closed"));
+                added.remove(observation);
+                return;
+            }
+            selector.wakeup();
+        }
+
+        private void stop() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(SELECT_TIMEOUT_MILLIS);
+                    Observation observation;
+                    while ((observation = added.poll()) != null) {
+                        start(observation);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        ((Observation) key.attachment()).receive(key);
+                    }
+                    selector.selectedKeys().clear();
+                    long now = System.nanoTime();
+                    for (Observation current : new ArrayList<>(active)) {
+                        current.checkClosed();
+                        if (active.contains(current)) {
+                            current.checkTimeout(current.key, now);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Event loop " + thread.getName() + " failed", e);
+                running = false;
+            } finally {
+                IOException closed = new IOException("The event loop is closed");
+                for (Observation current : new ArrayList<>(active)) {
+                    current.finish(current.key, closed);
+                }
+                Observation observation;
+                while ((observation = added.poll()) != null) {
+                    observation.result.completeExceptionally(closed);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.warn("Could not close the selector of " + thread.getName(), e);
+                }
+            }
+        }
+
+        private void start(Observation observation) {
+            observation.worker = this;
+            observations++;
+            SoccerServerConnection connection = observation.connection;
+            SelectionKey key = null;
+            try {
+                connection.startObservation();
+                key = connection.getUdpConnection().getChannel()
+                        .register(selector, SelectionKey.OP_READ, observation);
+                observation.key = key;
+                active.add(observation);
+                if (!observation.autoMode) {
+                    // game does not start automatically -> start game
+                    connection.kickOff();
+                }
+            } catch (IOException | RuntimeException e) {
+                observation.finish(key, e);
+            }
+        }
+    }
+
+    /**
+     * The state of one observed match.
+     */
+    private final class Observation {
+
+        private final SoccerServerConnection connection;
+
+        private final boolean autoMode;
+
+        private final CompletableFuture<LossSummary> result =
+                new CompletableFuture<>();
+
+        private final ByteBuffer buffer;
+
+        // 0 if the server may be silent forever
+        private final long timeoutNanos;
+
+        private long lastReceive = System.nanoTime();
+
+        // the thread observing the match, set when it starts
+        private Worker worker;
+
+        // the registration at the selector of the worker, set when it starts
+        private SelectionKey key;
+
+        private Observation(SoccerServerConnection connection,
+                            boolean autoMode) {
+            this.connection = connection;
+            this.autoMode = autoMode;
+            this.buffer = connection.getUdpConnection().allocateBuffer();
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                    connection.getSettings().getReceiveTimeout());
+        }
+
+        /**
+         * Handles the datagrams that have arrived. The receive wait recorded in the metrics is the time since the
+         * previous datagram.
+         */
+        private void receive(SelectionKey key) {
+            DatagramChannel channel = (DatagramChannel) key.channel();
+            try {
+                for (int i = 0; i < MAX_DATAGRAMS_PER_ROUND && key.isValid(); i++) {
+                    buffer.clear();
+                    if (channel.read(buffer) <= 0) {
+                        return;
+                    }
+                    buffer.flip();
+                    long now = System.nanoTime();
+                    connection.getMetrics().recordReceive(now - lastReceive,
+                            buffer.remaining());
+                    lastReceive = now;
+                    int turn = connection.handleMessage(buffer);
+                    if (connection.afterTurn(turn, autoMode)) {
+                        finish(key, null);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                finish(key, e);
+            }
+        }
+
+        /**
+         * Fails the observation if its connection has been closed, which cancels the key and would otherwise leave
+         * the observation waiting forever.
+         */
+        private void checkClosed() {
+            if (!key.isValid() || !key.channel().isOpen()) {
+                finish(key, new IOException("The connection has been closed"));
+            }
+        }
+
+        private void checkTimeout(SelectionKey key, long now) {
+            if (timeoutNanos > 0 && now - lastReceive > timeoutNanos) {
+                finish(key, new SocketTimeoutException(
+                        "No message from the soccer server within "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+            }
+        }
+
+        /**
+         * Stops selecting the channel and completes the observation on another thread, as waiting for isolated
+         * handlers would block the other matches.
+         */
+        private void finish(SelectionKey key, Throwable failure) {
+            if (key != null) {
+                key.cancel();
+            }
+            worker.active.remove(this);
+            worker.observations--;
+            CompletableFuture.runAsync(() -> {
+                try {
+                    connection.finishObservation(failure);
+                } finally {
+                    if (failure == null) {
+                        result.complete(connection.getLossSummary());
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                }
+            });
+        }
+    }
+}
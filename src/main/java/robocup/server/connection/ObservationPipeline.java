@@ -0,0 +1,323 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.RoboCupMessage;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FramePool;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.parser.IRoboCupParser;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the observation of a soccer server into stages that run concurrently:
+ * <ol>
+ * <li>a receive thread that only drains the socket into a ring of preallocated buffers,</li>
+ * <li>a pool of parse workers that turn the buffers into messages, and</li>
+ * <li>a reorder stage that hands the messages to the observing thread in the order they were received.</li>
+ * </ol>
+ * The reorder stage only undoes the reordering by the parse workers. Putting the messages into turn order is left to
+ * the {@link TurnTracker} of the connection, which also handles the datagrams that UDP reorders: the turn is no sort
+ * key here, as it repeats while the game is interrupted and not every message has one.
+ * <p>
+ * A buffer goes back to the ring after the observing thread has dispatched its message (see {@link #release(Slot)}).
+ * If all buffers are in use, the receive thread waits and the datagrams queue up in the socket.
+ * <p>
+ * The receive thread waits for datagrams in short polls, so that {@link #stop()} can wait for it to end. Otherwise it
+ * could still be receiving after the observation and take the datagrams of the next one.
+ */
+class ObservationPipeline {
+
+    private static final Logger log = Logger.getLogger(ObservationPipeline.class);
+
+    // how long the receive thread waits at a time
+    private static final int POLL_MILLIS = 100;
+
+    private final IUDPConnection udpConnection;
+
+    private final ConnectionMetrics metrics;
+
+    private final BlockingQueue<Slot> freeSlots;
+
+    private final BlockingQueue<Slot> receivedSlots;
+
+    private final ReorderBuffer<Slot> parsedSlots;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final int ringCapacity;
+
+    private final int receiveTimeout;
+
+    private final Thread receiver;
+
+    private volatile boolean running;
+
+    private volatile int maxParseQueueDepth;
+
+    private volatile long receiverStalls;
+
+    /**
+     * @param udpConnection  the monitor connection to receive from
+     * @param receiveTimeout how long to wait for a datagram in milliseconds before the observation fails, 0 to wait
+     *                       forever; the timeout of the connection is set to this when the pipeline stops
+     * @param parserEngine   the parser engine, every worker gets its own parser
+     * @param subscription   what the parsers decode
+     * @param parseWorkers   the number of parse workers
+     * @param ringCapacity   the number of preallocated receive buffers
+     * @param framePool      the pool of the show messages or null
+     * @param registry       the registry shared by the parsers
+     * @param metrics        records the receive and parse times
+     */
+    ObservationPipeline(IUDPConnection udpConnection, int receiveTimeout,
+                        ParserEngine parserEngine,
+                        FrameSubscription subscription, int parseWorkers,
+                        int ringCapacity, FramePool framePool,
+                        EntityRegistry registry, ConnectionMetrics metrics) {
+        this.udpConnection = udpConnection;
+        this.metrics = metrics;
+        this.ringCapacity = ringCapacity;
+        this.receiveTimeout = receiveTimeout;
+        freeSlots = new ArrayBlockingQueue<>(ringCapacity);
+        receivedSlots = new ArrayBlockingQueue<>(ringCapacity);
+        parsedSlots = new ReorderBuffer<>(ringCapacity);
+        for (int i = 0; i < ringCapacity; i++) {
+            freeSlots.add(new Slot(udpConnection.allocateBuffer()));
+        }
+
+        receiver = new Thread(this::receive, "observation-receiver");
+        threads.add(receiver);
+        for (int i = 0; i < parseWorkers; i++) {
+            IRoboCupParser parser = parserEngine.create(framePool, registry);
+            parser.setSubscription(subscription);
+            threads.add(new Thread(() -> parse(parser), "observation-parser-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+        }
+    }
+
+    void start() {
+        running = true;
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Stops all stages and waits for the receive thread to end, which takes up to one poll. Afterwards the connection
+     * has its receive timeout again and no datagram is taken from it any more.
+     */
+    void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            if (thread != receiver) {
+                thread.interrupt();
+            }
+        }
+        try {
+            receiver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            udpConnection.setTimeout(receiveTimeout);
+        } catch (IOException e) {
+            log.warn("Could not restore the receive timeout", e);
+        }
+    }
+
+    /**
+     * Waits for the next message in receive order.
+     *
+     * @return the slot containing the received bytes and the parsed message (which may be null)
+     * @throws IOException if the receive thread failed, e.g. due to a timeout
+     */
+    Slot next() throws IOException {
+        Slot slot;
+        try {
+            slot = parsedSlots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the next message", e);
+        }
+        if (slot.failure != null) {
+            throw slot.failure;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot to the ring after its message has been dispatched.
+     */
+    void release(Slot slot) {
+        slot.message = null;
+        freeSlots.add(slot);
+    }
+
+    /**
+     * @return a snapshot of the current queue depths
+     */
+    PipelineStatistics getStatistics() {
+        int receivedDepth = receivedSlots.size();
+        int reorderDepth = parsedSlots.size();
+        int inFlight = ringCapacity - freeSlots.size();
+        return new PipelineStatistics(ringCapacity, inFlight, receivedDepth,
+                maxParseQueueDepth, reorderDepth, parsedSlots.maxSize(),
+                receiverStalls);
+    }
+
+    private void receive() {
+        try {
+            udpConnection.setTimeout(POLL_MILLIS);
+        } catch (IOException e) {
+            fail(0, freeSlots.poll(), e);
+            return;
+        }
+        long sequence = 0;
+        while (running) {
+            Slot slot = freeSlots.poll();
+            if (slot == null) {
+                receiverStalls++;
+                try {
+                    while (slot == null && running) {
+                        slot = freeSlots.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (slot == null) {
+                    return;
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                if (!poll(slot.buffer, start)) {
+                    freeSlots.add(slot);
+                    return;
+                }
+            } catch (IOException e) {
+                fail(sequence, slot, e);
+                return;
+            }
+            slot.sequence = sequence++;
+            metrics.recordReceive(System.nanoTime() - start,
+                    slot.buffer.remaining());
+            receivedSlots.add(slot);
+            int depth = receivedSlots.size();
+            if (depth > maxParseQueueDepth) {
+                maxParseQueueDepth = depth;
+            }
+        }
+    }
+
+    /**
+     * Receives a datagram into the buffer in polls until one arrives, the receive timeout is over or the pipeline
+     * stops.
+     *
+     * @return true if a datagram has been received, false if the pipeline has stopped
+     * @throws java.net.SocketTimeoutException if no datagram arrived before the receive timeout
+     */
+    private boolean poll(ByteBuffer buffer, long start) throws IOException {
+        while (running) {
+            try {
+                udpConnection.receive(buffer);
+                return true;
+            } catch (SocketTimeoutException e) {
+                if (receiveTimeout > 0 && System.nanoTime() - start
+                        >= TimeUnit.MILLISECONDS.toNanos(receiveTimeout)) {
+                    throw new SocketTimeoutException("No datagram within "
+                            + receiveTimeout + " ms");
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes a failure of the receive thread to the observing thread, which rethrows it.
+     */
+    private void fail(long sequence, Slot slot, IOException failure) {
+        if (running && slot != null) {
+            // skip parsing
+            slot.sequence = sequence;
+            slot.failure = failure;
+            parsedSlots.put(slot.sequence, slot);
+        }
+    }
+
+    private void parse(IRoboCupParser parser) {
+        while (running) {
+            Slot slot;
+            try {
+                slot = receivedSlots.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                slot.message = parser.parseMessage(slot.buffer);
+            } catch (RuntimeException e) {
+                log.error("Exception thrown during parsing", e);
+                slot.message = null;
+            }
+            metrics.recordParse(System.nanoTime() - start, slot.message,
+                    slot.buffer);
+            parsedSlots.put(slot.sequence, slot);
+        }
+    }
+
+    /**
+     * A preallocated receive buffer together with the message parsed from it.
+     */
+    static final class Slot {
+
+        private final ByteBuffer buffer;
+
+        private long sequence;
+
+        private RoboCupMessage message;
+
+        private IOException failure;
+
+        private Slot(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the received bytes between position and limit
+         */
+        ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * @return the parsed message or null if it could not be parsed
+         */
+        RoboCupMessage getMessage() {
+            return message;
+        }
+    }
+}
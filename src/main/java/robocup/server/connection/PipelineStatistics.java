@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+/**
+ * A snapshot of the queue depths of a pipelined connection (see {@link ConnectionSettings#setPipelined(boolean)}).
+ * Messages waiting to be parsed indicate slow parsing, messages waiting for reordering indicate that one message took
+ * much longer to parse than its successors, and a ring that is often full indicates slow handlers.
+ */
+public class PipelineStatistics {
+
+    private final int ringCapacity;
+
+    private final int inFlight;
+
+    private final int parseQueueDepth;
+
+    private final int maxParseQueueDepth;
+
+    private final int reorderQueueDepth;
+
+    private final int maxReorderQueueDepth;
+
+    private final long receiverStalls;
+
+    PipelineStatistics(int ringCapacity, int inFlight, int parseQueueDepth,
+                       int maxParseQueueDepth, int reorderQueueDepth,
+                       int maxReorderQueueDepth, long receiverStalls) {
+        this.ringCapacity = ringCapacity;
+        this.inFlight = inFlight;
+        this.parseQueueDepth = parseQueueDepth;
+        this.maxParseQueueDepth = maxParseQueueDepth;
+        this.reorderQueueDepth = reorderQueueDepth;
+        this.maxReorderQueueDepth = maxReorderQueueDepth;
+        this.receiverStalls = receiverStalls;
+    }
+
+    /**
+     * @return the number of receive buffers
+     */
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    /**
+     * @return the number of receive buffers that are currently in use
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of received messages waiting for a parse worker
+     */
+    public int getParseQueueDepth() {
+        return parseQueueDepth;
+    }
+
+    public int getMaxParseQueueDepth() {
+        return maxParseQueueDepth;
+    }
+
+    /**
+     * @return the number of parsed messages waiting to be dispatched
+     */
+    public int getReorderQueueDepth() {
+        return reorderQueueDepth;
+    }
+
+    public int getMaxReorderQueueDepth() {
+        return maxReorderQueueDepth;
+    }
+
+    /**
+     * @return how often the receive thread had to wait for a free buffer
+     */
+    public long getReceiverStalls() {
+        return receiverStalls;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineStatistics [inFlight=" + inFlight + "/" + ringCapacity
+                + ", parseQueueDepth=" + parseQueueDepth + " (max "
+                + maxParseQueueDepth + "), reorderQueueDepth="
+                + reorderQueueDepth + " (max " + maxReorderQueueDepth
+                + "), receiverStalls=" + receiverStalls + "]";
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Restores the order of items that are completed out of order, e.g. by several worker threads. Every item carries a
+ * consecutive sequence number, starting at 0, and {@link #take()} returns the items strictly in that order. At most
+ * capacity items may be in flight, i.e. an item must not be put before the item capacity positions ahead of it has been
+ * taken.
+ *
+ * @param <T> the type of the items
+ */
+class ReorderBuffer<T> {
+
+    private final Object[] items;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition nextAvailable = lock.newCondition();
+
+    private long next = 0;
+
+    private int size = 0;
+
+    private int maxSize = 0;
+
+    ReorderBuffer(int capacity) {
+        items = new Object[capacity];
+    }
+
+    /**
+     * @param sequence the sequence number of the item
+     * @param item     the completed item
+     */
+    void put(long sequence, T item) {
+        lock.lock();
+        try {
+            items[index(sequence)] = item;
+            size++;
+            maxSize = Math.max(maxSize, size);
+            if (sequence == next) {
+                nextAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the item with the next sequence number is available and returns it.
+     *
+     * @return the next item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    T take() throws InterruptedException {
+        lock.lock();
+        try {
+            int index = index(next);
+            while (items[index] == null) {
+                nextAvailable.await();
+            }
+            T item = (T) items[index];
+            items[index] = null;
+            size--;
+            next++;
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of completed items waiting for an item with a smaller sequence number (or to be taken)
+     */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the largest size so far
+     */
+    int maxSize() {
+        lock.lock();
+        try {
+            return maxSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % items.length);
+    }
+}
@@ -17,15 +17,22 @@
 package robocup.server.connection;
 
 import org.apache.log4j.Logger;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FramePool;
 import robocup.server.connection.message.RoboCupMessage;
 import robocup.server.connection.message.RoboCupMsgMessage;
 import robocup.server.connection.message.RoboCupShowMessage;
-import robocup.server.connection.message.parser.RoboCupParser;
+import robocup.server.connection.message.parser.IRoboCupParser;
 import robocup.server.connection.message.IRoboCupMessageHandler;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class controls and observes a running soccer server instance.
@@ -39,39 +46,190 @@ class SoccerServerConnection implements ISoccerServerConnection {
     private static final Logger log =
             Logger.getLogger(SoccerServerConnection.class);
 
-    private final UDPConnection udpConnection;
+    /**
+     * Timeouts of the first and the longest attempt to register as a monitor, see {@link
+     * ConnectionSettings#setConnectTimeout(int)}.
+     */
+    private static final int FIRST_ATTEMPT_TIMEOUT_MILLIS = 50;
+
+    private static final int MAX_ATTEMPT_TIMEOUT_MILLIS = 1000;
+
+    private final IUDPConnection udpConnection;
+
+    private final ConnectionSettings settings;
+
+    private final IRoboCupParser parser;
+
+    // shared by all parsers of the connection
+    private final EntityRegistry entityRegistry = new EntityRegistry();
 
-    private final Set<IRoboCupMessageHandler> messageHandlers = new HashSet<>();
+    // null unless frame pooling is enabled
+    private final FramePool framePool;
+
+    private volatile ObservationPipeline pipeline;
+
+    private long observationStart;
+
+    private final MessageHandlerRegistry messageHandlers =
+            new MessageHandlerRegistry();
+
+    private final TurnTracker turnTracker;
+
+    private final ConnectionMetrics metrics;
 
     /**
      * Register as a monitor at the soccer server. First a init message is send to the given port (usually port 6000).
      * The answer from the server contains a new port to talk and listen to. We have to keep our port, so we need a
-     * mutable UDPConnection object.
+     * mutable UDPConnection object. As long as the server does not answer, the init message is repeated until the
+     * connect timeout of the settings has passed.
      *
      * @param hostname
      * @param port
+     * @param settings the settings of the connection
      * @throws IOException
      */
-    SoccerServerConnection(String hostname, int port) throws IOException {
+    SoccerServerConnection(String hostname, int port,
+                           ConnectionSettings settings) throws IOException {
+        this(connectAsMonitor(hostname, port, settings), settings);
+    }
 
-        UDPConnection tempConnection = new UDPConnection(hostname, port);
-        tempConnection.send("(dispinit version 4)");
-        udpConnection = tempConnection.receiveNewConnection();
+    /**
+     * @param udpConnection an established monitor connection
+     * @param settings      the settings of the connection
+     */
+    SoccerServerConnection(IUDPConnection udpConnection,
+                           ConnectionSettings settings) {
+        this.udpConnection = udpConnection;
+        this.settings = new ConnectionSettings(settings);
+        this.framePool = settings.isFramePooling() ? new FramePool() : null;
+        this.parser = settings.getParserEngine().create(framePool,
+                entityRegistry);
+        this.turnTracker = new TurnTracker(messageHandlers,
+                settings.getReorderWindow());
+        this.metrics = new ConnectionMetrics(messageHandlers, turnTracker);
+    }
+
+    private static IUDPConnection connectAsMonitor(String hostname, int port,
+                                                   ConnectionSettings settings)
+            throws IOException {
+        IUDPConnection tempConnection;
+        if (settings.getTransport() == ConnectionSettings.Transport.DATAGRAM_CHANNEL) {
+            tempConnection = new NioUDPConnection(hostname, port,
+                    settings.getReceiveBufferSize());
+        } else {
+            tempConnection = new UDPConnection(hostname, port,
+                    settings.getReceiveBufferSize());
+        }
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(settings.getConnectTimeout());
+        int attemptTimeout = FIRST_ATTEMPT_TIMEOUT_MILLIS;
+        try {
+            while (true) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                tempConnection.setTimeout((int) Math.max(1, Math.min(attemptTimeout, remaining)));
+                tempConnection.send("(dispinit version 4)");
+                try {
+                    // connects to the first answer, later answers to repeated dispinit messages are ignored
+                    IUDPConnection connection = tempConnection.receiveNewConnection();
+                    connection.setTimeout(settings.getReceiveTimeout());
+                    return connection;
+                } catch (SocketTimeoutException e) {
+                    if (deadline - System.nanoTime() <= 0) {
+                        throw new SocketTimeoutException("No answer from soccer server at "
+                                + hostname + ":" + port + " within "
+                                + settings.getConnectTimeout() + " ms");
+                    }
+                    // the server is probably still starting up, ask again
+                    attemptTimeout = Math.min(2 * attemptTimeout, MAX_ATTEMPT_TIMEOUT_MILLIS);
+                }
+            }
+        } catch (IOException e) {
+            // the handshake failed, the socket would leak otherwise
+            try {
+                tempConnection.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        udpConnection.close();
     }
 
     @Override
     public void registerMessageHandler(IRoboCupMessageHandler messageHandler) {
-        messageHandlers.add(messageHandler);
+        messageHandlers.register(messageHandler);
+    }
+
+    @Override
+    public void registerMessageHandler(IRoboCupMessageHandler messageHandler,
+                                       HandlerSettings settings) {
+        messageHandlers.register(messageHandler, settings);
     }
 
 
     @Override
     public void observe(boolean autoMode) {
+        try {
+            observeBlocking(autoMode);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public CompletableFuture<LossSummary> observeAsync(boolean autoMode) {
+        return observeAsync(autoMode, ObservationEventLoop.getDefault());
+    }
+
+    @Override
+    public CompletableFuture<LossSummary> observeAsync(boolean autoMode,
+                                                      ObservationEventLoop eventLoop) {
+        if (udpConnection.getChannel() != null) {
+            return eventLoop.observe(this, autoMode);
+        }
+        // a datagram socket cannot be selected, observe on a thread of its own
+        CompletableFuture<LossSummary> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                observeBlocking(autoMode);
+                result.complete(getLossSummary());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "observation");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Observes the match on the calling thread, see {@link #observe(boolean)}.
+     *
+     * @throws IOException if receiving fails, e.g. due to a timeout
+     */
+    private void observeBlocking(boolean autoMode) throws IOException {
 
         // start the game (if necessary) and observe it
-        long beforeStart = System.currentTimeMillis();
+        startObservation();
 
         boolean gameEnded = false;
+        Throwable failure = null;
+
+        if (settings.isPipelined()) {
+            pipeline = new ObservationPipeline(udpConnection,
+                    settings.getReceiveTimeout(),
+                    settings.getParserEngine(), messageHandlers.getSubscription(),
+                    settings.getParseWorkers(), settings.getRingCapacity(),
+                    framePool, entityRegistry, metrics);
+            pipeline.start();
+        }
+        // reused for every datagram if not pipelined
+        ByteBuffer receiveBuffer = pipeline == null
+                ? udpConnection.allocateBuffer() : null;
 
         try {
 
@@ -83,26 +241,101 @@ class SoccerServerConnection implements ISoccerServerConnection {
             // message receive loop
             do {
                 // receive and handle message
-                String message = udpConnection.receiveMessage();
-                int turn = handleMessage(message);
-
-                if (turn >= 6000) {
-                    gameEnded = true;
-                } else if (!autoMode && turn == 3000) {
-                    // start second half
-                    kickOff();
+                int turn;
+                if (pipeline != null) {
+                    ObservationPipeline.Slot slot = pipeline.next();
+                    turn = dispatch(slot.getMessage(), slot.getBuffer());
+                    pipeline.release(slot);
+                } else {
+                    long start = System.nanoTime();
+                    udpConnection.receive(receiveBuffer);
+                    metrics.recordReceive(System.nanoTime() - start,
+                            receiveBuffer.remaining());
+                    turn = handleMessage(receiveBuffer);
                 }
 
                 // until game has ended
+                gameEnded = afterTurn(turn, autoMode);
             } while (!gameEnded);
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (pipeline != null) {
+                pipeline.stop();
+                log.info("Pipeline at end of observation: "
+                        + pipeline.getStatistics());
+            }
+            finishObservation(failure);
+        }
+    }
+
+    /**
+     * Prepares the observation of a match: resets the turn checks, restricts the parser to what the handlers need and
+     * publishes the metrics.
+     */
+    void startObservation() {
+        observationStart = System.currentTimeMillis();
+        turnTracker.reset();
+        // decode only what the handlers need
+        parser.setSubscription(messageHandlers.getSubscription());
+        if (settings.isMetricsPublished()) {
+            metrics.publish();
+        }
+    }
+
+    /**
+     * Sends the kick off of the second half if necessary.
+     *
+     * @param turn     the turn returned by {@link #handleMessage(ByteBuffer)}
+     * @param autoMode whether the server starts the halves itself
+     * @return true if the game has ended
+     * @throws IOException if the kick off cannot be sent
+     */
+    boolean afterTurn(int turn, boolean autoMode) throws IOException {
+        if (turn >= 6000) {
+            return true;
+        }
+        if (!autoMode && turn == 3000) {
+            // start second half
+            kickOff();
+        }
+        return false;
+    }
+
+    /**
+     * Ends the observation of a match: lets the handlers catch up, completes the publishers and logs the summary.
+     *
+     * @param failure the reason the observation ended early, or null
+     */
+    void finishObservation(Throwable failure) {
+        turnTracker.flush();
+        // let isolated handlers catch up and complete the publishers
+        if (failure == null) {
+            messageHandlers.close();
+        } else {
+            messageHandlers.closeExceptionally(failure);
         }
+        metrics.unpublish();
 
         log.info("Observation finished after " + (System.currentTimeMillis()
-                - beforeStart) + " s.");
+                - observationStart) / 1000.0 + " s.");
+        LossSummary lossSummary = turnTracker.getSummary();
+        if (lossSummary.getMissing() > 0 || lossSummary.getLate() > 0) {
+            log.warn("Show messages were lost: " + lossSummary);
+        } else {
+            log.info(lossSummary);
+        }
+        log.info(metrics);
+    }
+
+    IUDPConnection getUdpConnection() {
+        return udpConnection;
+    }
 
+    ConnectionSettings getSettings() {
+        return settings;
     }
 
     /**
@@ -110,31 +343,81 @@ class SoccerServerConnection implements ISoccerServerConnection {
      *
      * @throws IOException
      */
-    private void kickOff() throws IOException {
+    void kickOff() throws IOException {
         udpConnection.send("(dispstart)");
     }
 
+    @Override
+    public PipelineStatistics getPipelineStatistics() {
+        ObservationPipeline current = pipeline;
+        return current == null ? null : current.getStatistics();
+    }
+
+    @Override
+    public ConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public LossSummary getLossSummary() {
+        return turnTracker.getSummary();
+    }
+
+    @Override
+    public Flow.Publisher<RoboCupShowMessage> publishFrames(HandlerSettings settings) {
+        return messageHandlers.publish(settings);
+    }
+
+    @Override
+    public Map<IRoboCupMessageHandler, HandlerStatistics> getHandlerStatistics() {
+        return messageHandlers.getStatistics();
+    }
+
+    @Override
+    public EntityRegistry getEntityRegistry() {
+        return entityRegistry;
+    }
+
     /**
      * Handle the message string from the soccer server. Basically that means parsing. If the message contains info
      * about the positions of the ball and players (i.e. is a {@link RoboCupShowMessage}), pass that info to the
      * messageHandler. If the message has another type, log it. The method returns the turn number of the observed turn,
      * or -1 if no known message could be received.
      *
-     * @param messageString
+     * @param messageBytes
+     */
+    int handleMessage(ByteBuffer messageBytes) {
+        long start = System.nanoTime();
+        RoboCupMessage message = parser.parseMessage(messageBytes);
+        metrics.recordParse(System.nanoTime() - start, message, messageBytes);
+        return dispatch(message, messageBytes);
+    }
+
+    /**
+     * Passes a parsed message to the message handlers, see {@link #handleMessage(ByteBuffer)}.
+     *
+     * @param message      the parsed message or null
+     * @param messageBytes the message before parsing
      */
-    private int handleMessage(String messageString) {
-        RoboCupMessage message = RoboCupParser.parseMessage(messageString);
+    private int dispatch(RoboCupMessage message, ByteBuffer messageBytes) {
         if (message != null) {
             int turn = message.getTurn();
             if (message instanceof RoboCupShowMessage) {
-                for (IRoboCupMessageHandler messageHandler : messageHandlers) {
-                    messageHandler.handleMessage((RoboCupShowMessage) message);
+                metrics.recordFrame(System.nanoTime());
+                RoboCupShowMessage show = (RoboCupShowMessage) message;
+                try {
+                    turnTracker.accept(show);
+                } finally {
+                    // handlers that keep a pooled message have retained it
+                    show.release();
                 }
             } else if (message instanceof RoboCupMsgMessage) {
                 log.info(
                         "Received message: " + ((RoboCupMsgMessage) message).getMessage());
             } else {
-                log.warn("Received unknown message: " + messageString);
+                metrics.recordUnknownMessage();
+                log.warn("Received unknown message: " + StandardCharsets
+                        .ISO_8859_1.decode(messageBytes.duplicate()));
             }
             return turn;
         }
@@ -16,6 +16,8 @@
 
 package robocup.server.connection;
 
+import robocup.server.connection.message.parser.ParserEngine;
+
 import java.io.IOException;
 
 /**
@@ -32,7 +34,36 @@ public class SoccerServerConnectionManager {
     public static SoccerServerConnection getConnectionTo(String hostname,
                                                          int port) throws
             IOException {
-        return new SoccerServerConnection(hostname, port);
+        return getConnectionTo(hostname, port, ParserEngine.ANTLR);
+    }
+
+    /**
+     * @param hostname
+     * @param port
+     * @param parserEngine the parser implementation the connection uses for the received messages
+     * @return a connection to the soccer server at the given address
+     * @throws IOException
+     */
+    public static SoccerServerConnection getConnectionTo(String hostname,
+                                                         int port,
+                                                         ParserEngine parserEngine)
+            throws IOException {
+        return getConnectionTo(hostname, port,
+                new ConnectionSettings().setParserEngine(parserEngine));
+    }
+
+    /**
+     * @param hostname
+     * @param port
+     * @param settings the settings of the connection
+     * @return a connection to the soccer server at the given address
+     * @throws IOException
+     */
+    public static SoccerServerConnection getConnectionTo(String hostname,
+                                                         int port,
+                                                         ConnectionSettings settings)
+            throws IOException {
+        return new SoccerServerConnection(hostname, port, settings);
     }
 
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+/**
+ * Checks the turns of the received show messages before they are passed to the handlers. The soccer server sends one
+ * show message per turn, and during interruptions of the game (e.g. before a kick off) it repeats the current turn.
+ * Over UDP, messages may get lost, duplicated or reordered:
+ * <ul>
+ * <li>a turn that is skipped is reported to the handlers as missing (see {@link
+ * robocup.server.connection.message.IRoboCupMessageHandler#handleMissingTurns(int, int)}),</li>
+ * <li>a repetition of the current turn while the play mode is play_on is a duplicate and is discarded, and</li>
+ * <li>a message for a turn before the current turn is late and is discarded.</li>
+ * </ul>
+ * With a reorder window, up to that many messages after a skipped turn are held back in case the missing message
+ * arrives late. Only when the window is full, the skipped turns are reported as missing. Held messages are retained,
+ * so they stay valid if they are pooled.
+ * <p>
+ * Only the observing thread may pass messages to the tracker, the counters may be read by any thread.
+ */
+class TurnTracker {
+
+    private static final int PLAY_ON = PlayMode.PLAY_ON.getId();
+
+    private final MessageHandlerRegistry messageHandlers;
+
+    private final int reorderWindow;
+
+    // messages after a gap, sorted by turn
+    private final RoboCupShowMessage[] held;
+
+    private int heldCount;
+
+    private boolean started;
+
+    private int lastPlaymode;
+
+    private volatile int firstTurn = -1, lastTurn = -1;
+
+    private volatile long received, missing, gaps, duplicates, reordered, late;
+
+    private volatile int largestGap;
+
+    /**
+     * @param messageHandlers the handlers to pass the messages to
+     * @param reorderWindow   the number of messages to hold back after a skipped turn, 0 to report skipped turns
+     *                        immediately
+     */
+    TurnTracker(MessageHandlerRegistry messageHandlers, int reorderWindow) {
+        this.messageHandlers = messageHandlers;
+        this.reorderWindow = reorderWindow;
+        this.held = new RoboCupShowMessage[reorderWindow + 1];
+    }
+
+    /**
+     * Prepares the tracker for a new match.
+     */
+    void reset() {
+        started = false;
+        // messages held back from the previous match return to their pool
+        while (heldCount > 0) {
+            held[--heldCount].release();
+            held[heldCount] = null;
+        }
+        firstTurn = -1;
+        lastTurn = -1;
+        resetCounters();
+    }
+
+    void resetCounters() {
+        received = 0;
+        missing = 0;
+        gaps = 0;
+        duplicates = 0;
+        reordered = 0;
+        late = 0;
+        largestGap = 0;
+    }
+
+    /**
+     * Passes the message to the handlers, unless it is a duplicate or late, or holds it back until the turns before it
+     * have arrived or have been reported missing.
+     */
+    void accept(RoboCupShowMessage message) {
+        int turn = message.getTurn();
+        if (!started) {
+            started = true;
+            firstTurn = turn;
+            pass(message);
+            return;
+        }
+        if (turn <= lastTurn) {
+            if (turn < lastTurn) {
+                late++;
+            } else {
+                passRepeated(message);
+            }
+            return;
+        }
+        if (turn == lastTurn + 1 && heldCount == 0) {
+            pass(message);
+            return;
+        }
+        if (reorderWindow == 0) {
+            reportMissing(lastTurn + 1, turn - 1);
+            pass(message);
+            return;
+        }
+        if (heldCount > 0 && turn < held[heldCount - 1].getTurn()) {
+            reordered++;
+        }
+        hold(message);
+        passHeld();
+        if (heldCount > reorderWindow) {
+            // the window is full, give up on the skipped turns
+            reportMissing(lastTurn + 1, held[0].getTurn() - 1);
+            passHeld();
+        }
+    }
+
+    /**
+     * Passes all held messages, reporting the turns still missing between them. Called at the end of a match.
+     */
+    void flush() {
+        while (heldCount > 0) {
+            reportMissing(lastTurn + 1, held[0].getTurn() - 1);
+            passHeld();
+        }
+    }
+
+    LossSummary getSummary() {
+        return new LossSummary(firstTurn, lastTurn, received, missing, gaps,
+                largestGap, duplicates, reordered, late);
+    }
+
+    long getMissing() {
+        return missing;
+    }
+
+    long getDuplicates() {
+        return duplicates;
+    }
+
+    long getReordered() {
+        return reordered;
+    }
+
+    long getLate() {
+        return late;
+    }
+
+    private void hold(RoboCupShowMessage message) {
+        int index = heldCount;
+        // insert after all messages of the same or an earlier turn to keep repetitions in order
+        while (index > 0 && held[index - 1].getTurn() > message.getTurn()) {
+            held[index] = held[index - 1];
+            index--;
+        }
+        held[index] = message.retain();
+        heldCount++;
+    }
+
+    /**
+     * Passes the held messages that follow the last turn without a gap.
+     */
+    private void passHeld() {
+        while (heldCount > 0 && held[0].getTurn() <= lastTurn + 1) {
+            RoboCupShowMessage message = held[0];
+            System.arraycopy(held, 1, held, 0, heldCount - 1);
+            held[--heldCount] = null;
+            try {
+                if (message.getTurn() == lastTurn) {
+                    passRepeated(message);
+                } else {
+                    pass(message);
+                }
+            } finally {
+                message.release();
+            }
+        }
+    }
+
+    private void passRepeated(RoboCupShowMessage message) {
+        if (message.getPlaymode() == PLAY_ON && lastPlaymode == PLAY_ON) {
+            // the turn only stands still while the game is interrupted
+            duplicates++;
+        } else {
+            pass(message);
+        }
+    }
+
+    private void pass(RoboCupShowMessage message) {
+        lastTurn = message.getTurn();
+        lastPlaymode = message.getPlaymode();
+        received++;
+        messageHandlers.dispatch(message);
+    }
+
+    private void reportMissing(int first, int last) {
+        if (first > last) {
+            return;
+        }
+        int length = last - first + 1;
+        missing += length;
+        gaps++;
+        largestGap = Math.max(largestGap, length);
+        lastTurn = last;
+        messageHandlers.dispatchMissingTurns(first, last);
+    }
+}
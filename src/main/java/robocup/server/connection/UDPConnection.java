@@ -22,16 +22,18 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 /**
  * This class represents a UDP connection. Must be mutable because due to the soccer server monitor protocol we have to
  * adapt the target targetPort after registering at targetPort 6000 (see {@link
  * SoccerServerConnection#SoccerServerConnection(String,
- * int)} .
+ * int, ConnectionSettings)} .
  *
  * @author Tom Warnke
  */
-class UDPConnection {
+class UDPConnection implements IUDPConnection {
 
     private static final Logger log = Logger.getLogger(UDPConnection.class);
 
@@ -43,6 +45,9 @@ class UDPConnection {
 
     private int targetPort;
 
+    // reused by receive(ByteBuffer)
+    private final DatagramPacket bufferPacket = new DatagramPacket(new byte[0], 0);
+
     /**
      * Create a new connection to the specified address.
      *
@@ -51,23 +56,41 @@ class UDPConnection {
      * @throws IOException if the connection can not be established
      */
     public UDPConnection(String hostname, int targetPort) throws IOException {
-        this(InetAddress.getByName(hostname), targetPort);
+        this(InetAddress.getByName(hostname), targetPort, 0);
+    }
+
+    /**
+     * Create a new connection to the specified address.
+     *
+     * @param hostname          the host to connect to
+     * @param targetPort        the target targetPort
+     * @param receiveBufferSize the size of the socket receive buffer (SO_RCVBUF), or 0 for the default of the system
+     * @throws IOException if the connection can not be established
+     */
+    public UDPConnection(String hostname, int targetPort, int receiveBufferSize)
+            throws IOException {
+        this(InetAddress.getByName(hostname), targetPort, receiveBufferSize);
     }
 
     /**
      * @param address
      * @param targetPort
+     * @param receiveBufferSize
      * @throws IOException
      */
-    private UDPConnection(InetAddress address, int targetPort) throws
-            IOException {
+    private UDPConnection(InetAddress address, int targetPort,
+                          int receiveBufferSize) throws IOException {
         this.targetHostAddress = address;
         this.targetPort = targetPort;
 
         // create socket on any local targetPort
         socket = new DatagramSocket();
-        // set timeout to 10 seconds
-        socket.setSoTimeout(10000);
+        socket.setSoTimeout(DEFAULT_TIMEOUT_MILLIS);
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+            // the system may limit the size
+            log.info("Receive buffer size is " + socket.getReceiveBufferSize());
+        }
 
         log.info("Got Socket on local targetPort " + socket.getLocalPort() +
                 " to " +
@@ -80,6 +103,7 @@ class UDPConnection {
      * @param message
      * @throws IOException if the message could not be sent
      */
+    @Override
     public void send(String message) throws IOException {
         byte[] bytes = message.getBytes();
         DatagramPacket packet =
@@ -92,12 +116,37 @@ class UDPConnection {
     /**
      * Receive a message from the server.
      *
-     * @return the message string
+     * @return a buffer containing the message bytes between its position and its limit
      * @throws IOException if no message could be received before timeout
      */
-    public String receiveMessage() throws IOException {
+    @Override
+    public ByteBuffer receiveMessage() throws IOException {
         DatagramPacket packet = receivePacket();
-        return new String(packet.getData(), 0, packet.getLength());
+        return ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer) throws IOException {
+        bufferPacket.setData(buffer.array(), buffer.arrayOffset(),
+                buffer.capacity());
+        socket.receive(bufferPacket);
+        buffer.clear();
+        buffer.limit(bufferPacket.getLength());
+    }
+
+    @Override
+    public void setTimeout(int timeoutMillis) throws IOException {
+        socket.setSoTimeout(timeoutMillis);
+    }
+
+    @Override
+    public ByteBuffer allocateBuffer() {
+        return ByteBuffer.allocate(replySize);
+    }
+
+    @Override
+    public DatagramChannel getChannel() {
+        return null;
     }
 
     /**
@@ -110,20 +159,31 @@ class UDPConnection {
      * (so we overwrite the targetPort 6000). Note that we have to keep our local port the entire time so that the
      * server can identify us. Because of this we have to overwrite the targetPort field in this class during the
      * connection procedure instead of creating a new instance (that would have a different local port).
+     * <p>
+     * The socket is then connected to the new target, so that it only receives datagrams from there. A slow server
+     * may answer more than one registration attempt, and the datagrams of the other registrations are discarded.
      *
      * @return the functional monitor connection
      * @throws IOException
      */
+    @Override
     public UDPConnection receiveNewConnection() throws IOException {
         DatagramPacket packet = receivePacket();
         this.targetHostAddress = packet.getAddress();
         this.targetPort = packet.getPort();
+        // only accept datagrams from this target, not from monitors registered by repeated dispinit messages
+        socket.connect(targetHostAddress, targetPort);
         log.info("Changed Socket on local port " + socket.getLocalPort() + " " +
                 "to " +
                 this.targetHostAddress + ":" + this.targetPort);
         return this;
     }
 
+    @Override
+    public void close() {
+        socket.close();
+    }
+
     /**
      * @return the received packet
      * @throws IOException if no packet could be received before timeout
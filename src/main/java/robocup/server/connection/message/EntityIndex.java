@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * Fixed indices of the ball and the players in the per-entity arrays of a {@link RoboCupShowMessage}. The ball has
+ * index 0, the players of the left team have the indices 1 to 11 and those of the right team the indices 12 to 22, both
+ * in the order of their uniform numbers.
+ * <p>
+ * Each index also has a key in the format of the soccer server, i.e. "ball", "l1", ..., "r11", which is used for the
+ * map view {@link RoboCupShowMessage#getLocations()}.
+ */
+public final class EntityIndex {
+
+    public static final int BALL = 0;
+
+    public static final int PLAYERS_PER_TEAM = 11;
+
+    /**
+     * The number of entities, i.e. the length of all per-entity arrays.
+     */
+    public static final int COUNT = 1 + 2 * PLAYERS_PER_TEAM;
+
+    private static final String[] KEYS = new String[COUNT];
+
+    static {
+        KEYS[BALL] = "ball";
+        for (int uniform = 1; uniform <= PLAYERS_PER_TEAM; uniform++) {
+            KEYS[player(Side.LEFT, uniform)] = "l" + uniform;
+            KEYS[player(Side.RIGHT, uniform)] = "r" + uniform;
+        }
+    }
+
+    private EntityIndex() {
+        // no instantiation
+    }
+
+    /**
+     * @param side    the side of the player
+     * @param uniform the uniform number of the player, from 1 to 11
+     * @return the index of the player
+     */
+    public static int player(Side side, int uniform) {
+        return side == Side.LEFT ? uniform : PLAYERS_PER_TEAM + uniform;
+    }
+
+    /**
+     * @param side    'l' or 'r'
+     * @param uniform the uniform number
+     * @return the index of the player or -1 if there is no such player
+     */
+    public static int player(int side, int uniform) {
+        if (uniform < 1 || uniform > PLAYERS_PER_TEAM) {
+            return -1;
+        }
+        switch (side) {
+            case 'l':
+                return uniform;
+            case 'r':
+                return PLAYERS_PER_TEAM + uniform;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the side of the player with the given index, or null for the ball
+     */
+    public static Side side(int index) {
+        if (index == BALL) {
+            return null;
+        }
+        return index <= PLAYERS_PER_TEAM ? Side.LEFT : Side.RIGHT;
+    }
+
+    /**
+     * @return the uniform number of the player with the given index, or 0 for the ball
+     */
+    public static int uniform(int index) {
+        return index <= PLAYERS_PER_TEAM ? index : index - PLAYERS_PER_TEAM;
+    }
+
+    /**
+     * @return the index of the player with the same uniform number in the other team, or the ball for the ball
+     */
+    public static int opposite(int index) {
+        if (index == BALL) {
+            return BALL;
+        }
+        return index <= PLAYERS_PER_TEAM ? index + PLAYERS_PER_TEAM
+                : index - PLAYERS_PER_TEAM;
+    }
+
+    /**
+     * @return the key of the entity with the given index, e.g. "ball" or "l1"
+     */
+    public static String key(int index) {
+        return KEYS[index];
+    }
+
+    /**
+     * @param key a key like "ball" or "r11"
+     * @return the index of the entity with the given key or -1 if there is no such entity
+     */
+    public static int indexOf(String key) {
+        if (key == null || key.length() < 2 || key.length() > 3) {
+            return KEYS[BALL].equals(key) ? BALL : -1;
+        }
+        if (key.charAt(1) == '0') {
+            return -1;
+        }
+        int uniform = 0;
+        for (int i = 1; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            uniform = uniform * 10 + (c - '0');
+        }
+        return player(key.charAt(0), uniform);
+    }
+}
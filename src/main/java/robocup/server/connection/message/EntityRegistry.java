@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The teams and players of the matches seen by one connection. Team names are kept as canonical instances: every show
+ * message of a connection refers to the same String for the same team, so handlers can compare teams by reference
+ * (see {@link #getSide(String)}), and a parser that reads a known name does not create a new String for it. Each name
+ * also gets a small team id in the order the names were first seen, which stays the same for the lifetime of the
+ * registry. Before the teams have connected, the soccer server sends "null" as their names, so usually the first id
+ * belongs to "null".
+ * <p>
+ * Players are addressed by their {@link EntityIndex}, which is the same for all connections.
+ * <p>
+ * A registry may be shared by the parsers of several threads. Known names are looked up without locking.
+ */
+public final class EntityRegistry {
+
+    private volatile String[] teams = new String[0];
+
+    private volatile String leftTeam;
+
+    private volatile String rightTeam;
+
+    /**
+     * Returns the canonical instance of the team name in the given bytes and remembers it as the current name of the
+     * team on the given side. Creates no String if the name is known.
+     *
+     * @param side  the side of the team
+     * @param data  the bytes containing the name, in ISO-8859-1
+     * @param start the index of the first byte of the name
+     * @param end   the index after the last byte of the name
+     * @return the canonical name
+     */
+    public String team(Side side, byte[] data, int start, int end) {
+        String name = find(data, start, end);
+        if (name == null) {
+            name = add(new String(data, start, end - start,
+                    StandardCharsets.ISO_8859_1));
+        }
+        return setTeam(side, name);
+    }
+
+    /**
+     * Returns the canonical instance of the given team name and remembers it as the current name of the team on the
+     * given side.
+     *
+     * @param side the side of the team
+     * @param name the name
+     * @return the canonical name
+     */
+    public String team(Side side, String name) {
+        int id = getTeamId(name);
+        return setTeam(side, id < 0 ? add(name) : teams[id]);
+    }
+
+    private String setTeam(Side side, String name) {
+        // avoid the volatile write while the teams stay the same
+        if (side == Side.LEFT) {
+            if (leftTeam != name) {
+                leftTeam = name;
+            }
+        } else if (rightTeam != name) {
+            rightTeam = name;
+        }
+        return name;
+    }
+
+    private String find(byte[] data, int start, int end) {
+        int length = end - start;
+        for (String team : teams) {
+            if (team.length() == length) {
+                int i = 0;
+                while (i < length && team.charAt(i) == (data[start + i] & 0xff)) {
+                    i++;
+                }
+                if (i == length) {
+                    return team;
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized String add(String name) {
+        // another thread may have added the name in the meantime
+        for (String team : teams) {
+            if (team.equals(name)) {
+                return team;
+            }
+        }
+        String[] extended = Arrays.copyOf(teams, teams.length + 1);
+        extended[teams.length] = name;
+        teams = extended;
+        return name;
+    }
+
+    /**
+     * @return the current name of the team on the given side, or null if no show message has been parsed yet
+     */
+    public String getTeam(Side side) {
+        return side == Side.LEFT ? leftTeam : rightTeam;
+    }
+
+    /**
+     * @param team a team name, preferably a canonical one from a show message
+     * @return the side the team currently plays on, or null if it is none of the current teams
+     */
+    public Side getSide(String team) {
+        String left = leftTeam;
+        String right = rightTeam;
+        if (team == left) {
+            return Side.LEFT;
+        }
+        if (team == right) {
+            return Side.RIGHT;
+        }
+        // not a canonical instance
+        if (team != null && team.equals(left)) {
+            return Side.LEFT;
+        }
+        if (team != null && team.equals(right)) {
+            return Side.RIGHT;
+        }
+        return null;
+    }
+
+    /**
+     * @param team a team name
+     * @return the id of the team, or -1 if the name has not been seen yet
+     */
+    public int getTeamId(String team) {
+        String[] known = teams;
+        for (int id = 0; id < known.length; id++) {
+            if (known[id] == team) {
+                return id;
+            }
+        }
+        for (int id = 0; id < known.length; id++) {
+            if (known[id].equals(team)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id a team id
+     * @return the name of the team with the given id
+     * @throws IndexOutOfBoundsException if there is no such team
+     */
+    public String getTeamName(int id) {
+        return teams[id];
+    }
+
+    /**
+     * @return all team names seen so far, indexed by their ids
+     */
+    public List<String> getTeams() {
+        return Collections.unmodifiableList(Arrays.asList(teams));
+    }
+
+    /**
+     * @param team    a team name
+     * @param uniform the uniform number of a player
+     * @return the {@link EntityIndex} of the player of the given team, or -1 if the team is none of the current teams
+     * or there is no such player
+     */
+    public int player(String team, int uniform) {
+        Side side = getSide(team);
+        if (side == null || uniform < 1 || uniform > EntityIndex.PLAYERS_PER_TEAM) {
+            return -1;
+        }
+        return EntityIndex.player(side, uniform);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * Groups of values of the ball and the players in a {@link RoboCupShowMessage} that can be subscribed to, see {@link
+ * FrameSubscription}. The ball has a position and a velocity only.
+ */
+public enum FrameField {
+
+    /**
+     * The position, see {@link RoboCupShowMessage#getX(int)}.
+     */
+    POSITION,
+
+    /**
+     * The velocity, see {@link RoboCupShowMessage#getVelocityX(int)}.
+     */
+    VELOCITY,
+
+    /**
+     * Player type, state flags, body and neck angle and the point-to position, see {@link
+     * RoboCupShowMessage#getFlags(int)}.
+     */
+    BODY,
+
+    /**
+     * The view mode, see {@link RoboCupShowMessage#getViewWidth(int)}.
+     */
+    VIEW,
+
+    /**
+     * Stamina, effort, recovery and stamina capacity, see {@link RoboCupShowMessage#getStamina(int)}.
+     */
+    STAMINA,
+
+    /**
+     * The player in focus, see {@link RoboCupShowMessage#getFocus(int)}.
+     */
+    FOCUS,
+
+    /**
+     * The command counters, see {@link RoboCupShowMessage#getCounter(int, int)}.
+     */
+    COUNTERS;
+
+    int mask() {
+        return 1 << ordinal();
+    }
+}
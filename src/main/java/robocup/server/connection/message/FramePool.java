@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+import java.util.Arrays;
+
+/**
+ * A pool of show messages that parsers fill instead of allocating a new message per turn. The pool starts empty and
+ * grows to the largest number of messages in use at the same time, after that acquiring and recycling messages
+ * allocates nothing. See {@link RoboCupShowMessage#retain()} for the rules handlers have to follow.
+ * <p>
+ * The pool is thread safe, messages may be acquired and released on different threads.
+ */
+public class FramePool {
+
+    private RoboCupShowMessage[] free;
+
+    private int available;
+
+    private long created;
+
+    public FramePool() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity the number of recycled messages the pool can hold before it has to grow
+     */
+    public FramePool(int initialCapacity) {
+        free = new RoboCupShowMessage[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Takes a message from the pool, or creates one if none is available. The message has the given header, no
+     * entities and one reference, which the caller has to {@link RoboCupShowMessage#release()}.
+     *
+     * @return the message
+     */
+    public RoboCupShowMessage acquire(int turn, int playmode, String leftTeam,
+                                      String rightTeam, int leftScore,
+                                      int rightScore) {
+        RoboCupShowMessage message = null;
+        synchronized (this) {
+            if (available > 0) {
+                message = free[--available];
+                free[available] = null;
+            } else {
+                created++;
+            }
+        }
+        if (message == null) {
+            message = new RoboCupShowMessage(this);
+        }
+        message.reset(turn, playmode, leftTeam, rightTeam, leftScore, rightScore);
+        return message;
+    }
+
+    synchronized void recycle(RoboCupShowMessage message) {
+        if (available == free.length) {
+            free = Arrays.copyOf(free, 2 * free.length);
+        }
+        free[available++] = message;
+    }
+
+    /**
+     * @return the number of messages waiting to be reused
+     */
+    public synchronized int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the number of messages the pool has created so far
+     */
+    public synchronized long getCreated() {
+        return created;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * The entities and fields of show messages a message handler needs. Parsers that support subscriptions only decode the
+ * subscribed values and leave the others at 0. Entities that are not subscribed are not present in the message,
+ * subscribed ones are, even if their position is not subscribed. The header of a message (turn, play mode, teams and
+ * scores) is always decoded.
+ * <p>
+ * Subscriptions are immutable. A subscription is built from {@link #of(FrameField...)} or {@link #none()} by adding
+ * entities, for example {@code FrameSubscription.of(FrameField.POSITION).ball().team(Side.LEFT)}.
+ */
+public final class FrameSubscription {
+
+    private static final int ALL_ENTITIES = (1 << EntityIndex.COUNT) - 1;
+
+    private static final int ALL_FIELDS = (1 << FrameField.values().length) - 1;
+
+    /**
+     * All entities with all fields.
+     */
+    public static final FrameSubscription ALL =
+            new FrameSubscription(ALL_ENTITIES, ALL_FIELDS);
+
+    private static final FrameSubscription NONE = new FrameSubscription(0, 0);
+
+    // bit i is set for the entity with index i
+    private final int entities;
+
+    // bit i is set for the field with ordinal i
+    private final int fields;
+
+    private FrameSubscription(int entities, int fields) {
+        this.entities = entities;
+        this.fields = fields;
+    }
+
+    /**
+     * @return a subscription to the header only
+     */
+    public static FrameSubscription none() {
+        return NONE;
+    }
+
+    /**
+     * @param fields the fields to subscribe to
+     * @return a subscription to the given fields of no entity yet
+     */
+    public static FrameSubscription of(FrameField... fields) {
+        int mask = 0;
+        for (FrameField field : fields) {
+            mask |= field.mask();
+        }
+        return new FrameSubscription(0, mask);
+    }
+
+    /**
+     * @return this subscription plus the given fields
+     */
+    public FrameSubscription with(FrameField... fields) {
+        return union(of(fields));
+    }
+
+    /**
+     * @return this subscription plus the ball
+     */
+    public FrameSubscription ball() {
+        return withEntity(EntityIndex.BALL);
+    }
+
+    /**
+     * @return this subscription plus all players of the given team
+     */
+    public FrameSubscription team(Side side) {
+        FrameSubscription subscription = this;
+        for (int uniform = 1; uniform <= EntityIndex.PLAYERS_PER_TEAM; uniform++) {
+            subscription = subscription.player(side, uniform);
+        }
+        return subscription;
+    }
+
+    /**
+     * @return this subscription plus the given player
+     */
+    public FrameSubscription player(Side side, int uniform) {
+        return withEntity(EntityIndex.player(side, uniform));
+    }
+
+    /**
+     * @return this subscription plus the ball and all players
+     */
+    public FrameSubscription allEntities() {
+        return new FrameSubscription(ALL_ENTITIES, fields);
+    }
+
+    /**
+     * @return a subscription to everything this or the other subscription contains
+     */
+    public FrameSubscription union(FrameSubscription other) {
+        return new FrameSubscription(entities | other.entities, fields | other.fields);
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public boolean includes(int entity) {
+        return (entities & (1 << entity)) != 0;
+    }
+
+    public boolean includes(FrameField field) {
+        return (fields & field.mask()) != 0;
+    }
+
+    private FrameSubscription withEntity(int entity) {
+        return new FrameSubscription(entities | (1 << entity), fields);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FrameSubscription)) {
+            return false;
+        }
+        FrameSubscription that = (FrameSubscription) o;
+        return entities == that.entities && fields == that.fields;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * entities + fields;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameSubscription [entities=0x" + Integer.toHexString(entities)
+                + ", fields=0x" + Integer.toHexString(fields) + "]";
+    }
+}
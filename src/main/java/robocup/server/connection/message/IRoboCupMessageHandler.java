@@ -23,4 +23,15 @@ public interface IRoboCupMessageHandler {
 
     void handleMessage(RoboCupShowMessage message);
 
+    /**
+     * Called in place of {@link #handleMessage(RoboCupShowMessage)} for turns whose show messages got lost on the way
+     * from the soccer server. Does nothing by default.
+     *
+     * @param firstTurn the first missing turn
+     * @param lastTurn  the last missing turn
+     */
+    default void handleMissingTurns(int firstTurn, int lastTurn) {
+        // most handlers can do without the lost turns
+    }
+
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * The play modes of the soccer server. The constants are declared in the order of the play mode ids the server sends
+ * to its monitors (the "pm" of a show message), and each has the name the server uses in game logs and referee
+ * messages.
+ */
+public enum PlayMode {
+
+    NULL(""),
+    BEFORE_KICK_OFF("before_kick_off"),
+    TIME_OVER("time_over"),
+    PLAY_ON("play_on"),
+    KICK_OFF_L("kick_off_l"),
+    KICK_OFF_R("kick_off_r"),
+    KICK_IN_L("kick_in_l"),
+    KICK_IN_R("kick_in_r"),
+    FREE_KICK_L("free_kick_l"),
+    FREE_KICK_R("free_kick_r"),
+    CORNER_KICK_L("corner_kick_l"),
+    CORNER_KICK_R("corner_kick_r"),
+    GOAL_KICK_L("goal_kick_l"),
+    GOAL_KICK_R("goal_kick_r"),
+    AFTER_GOAL_L("goal_l"),
+    AFTER_GOAL_R("goal_r"),
+    DROP_BALL("drop_ball"),
+    OFFSIDE_L("offside_l"),
+    OFFSIDE_R("offside_r"),
+    PENALTY_KICK_L("penalty_kick_l"),
+    PENALTY_KICK_R("penalty_kick_r"),
+    FIRST_HALF_OVER("first_half_over"),
+    PAUSE("pause"),
+    HUMAN_JUDGE("human_judge"),
+    FOUL_CHARGE_L("foul_charge_l"),
+    FOUL_CHARGE_R("foul_charge_r"),
+    FOUL_PUSH_L("foul_push_l"),
+    FOUL_PUSH_R("foul_push_r"),
+    FOUL_MULTIPLE_ATTACK_L("foul_multiple_attack_l"),
+    FOUL_MULTIPLE_ATTACK_R("foul_multiple_attack_r"),
+    FOUL_BALLOUT_L("foul_ballout_l"),
+    FOUL_BALLOUT_R("foul_ballout_r"),
+    BACK_PASS_L("back_pass_l"),
+    BACK_PASS_R("back_pass_r"),
+    FREE_KICK_FAULT_L("free_kick_fault_l"),
+    FREE_KICK_FAULT_R("free_kick_fault_r"),
+    CATCH_FAULT_L("catch_fault_l"),
+    CATCH_FAULT_R("catch_fault_r"),
+    INDIRECT_FREE_KICK_L("indirect_free_kick_l"),
+    INDIRECT_FREE_KICK_R("indirect_free_kick_r"),
+    PENALTY_SETUP_L("penalty_setup_l"),
+    PENALTY_SETUP_R("penalty_setup_r"),
+    PENALTY_READY_L("penalty_ready_l"),
+    PENALTY_READY_R("penalty_ready_r"),
+    PENALTY_TAKEN_L("penalty_taken_l"),
+    PENALTY_TAKEN_R("penalty_taken_r"),
+    PENALTY_MISS_L("penalty_miss_l"),
+    PENALTY_MISS_R("penalty_miss_r"),
+    PENALTY_SCORE_L("penalty_score_l"),
+    PENALTY_SCORE_R("penalty_score_r"),
+    ILLEGAL_DEFENSE_L("illegal_defense_l"),
+    ILLEGAL_DEFENSE_R("illegal_defense_r"),
+    PENALTY_ONFIELD_L("penalty_onfield_l"),
+    PENALTY_ONFIELD_R("penalty_onfield_r"),
+    PENALTY_FOUL_L("penalty_foul_l"),
+    PENALTY_FOUL_R("penalty_foul_r"),
+    GOALIE_CATCH_L("goalie_catch_l"),
+    GOALIE_CATCH_R("goalie_catch_r"),
+    TIME_UP_WITHOUT_A_TEAM("time_up_without_a_team"),
+    TIME_UP("time_up"),
+    TIME_EXTENDED("time_extended");
+
+    private static final PlayMode[] VALUES = values();
+
+    private final String serverName;
+
+    PlayMode(String serverName) {
+        this.serverName = serverName;
+    }
+
+    /**
+     * @return the id of the play mode in show messages
+     */
+    public int getId() {
+        return ordinal();
+    }
+
+    /**
+     * @return the name of the play mode in game logs, e.g. "kick_off_l"
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * @param id a play mode id from a show message
+     * @return the play mode or null if the id is unknown
+     */
+    public static PlayMode of(int id) {
+        return id >= 0 && id < VALUES.length ? VALUES[id] : null;
+    }
+
+    /**
+     * @param serverName the name of a play mode in game logs
+     * @return the play mode or null if the name is unknown
+     */
+    public static PlayMode ofServerName(String serverName) {
+        for (PlayMode playMode : VALUES) {
+            if (playMode.serverName.equals(serverName)) {
+                return playMode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the play mode with the sides swapped, e.g. {@link #KICK_OFF_R} for {@link #KICK_OFF_L}, or this play
+     * mode if it does not refer to a side
+     */
+    public PlayMode opposite() {
+        int length = serverName.length();
+        if (length > 2 && serverName.charAt(length - 2) == '_') {
+            char side = serverName.charAt(length - 1);
+            if (side == 'l' || side == 'r') {
+                PlayMode opposite = ofServerName(serverName.substring(0, length - 1)
+                        + (side == 'l' ? 'r' : 'l'));
+                if (opposite != null) {
+                    return opposite;
+                }
+            }
+        }
+        return this;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * Indices of the command counters of a player (the "c" group of a player in a show message), in the order the soccer
+ * server sends them. Each counter holds how often the player has executed the command so far. See {@link
+ * RoboCupShowMessage#getCounter(int, int)}.
+ */
+public final class PlayerCounters {
+
+    public static final int KICK = 0;
+
+    public static final int DASH = 1;
+
+    public static final int TURN = 2;
+
+    public static final int CATCH = 3;
+
+    public static final int MOVE = 4;
+
+    public static final int TURN_NECK = 5;
+
+    public static final int CHANGE_VIEW = 6;
+
+    public static final int SAY = 7;
+
+    public static final int TACKLE = 8;
+
+    public static final int POINT_TO = 9;
+
+    public static final int ATTENTION_TO = 10;
+
+    /**
+     * The number of counters.
+     */
+    public static final int COUNT = 11;
+
+    private PlayerCounters() {
+        // no instantiation
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * Bit masks of the state flags of a player (the hexadecimal number after the player type in a show message), as
+ * defined by the soccer server. A flag is set in the turn the player executes the corresponding command or the event
+ * happens. See {@link RoboCupShowMessage#getFlags(int)}.
+ */
+public final class PlayerFlags {
+
+    public static final int STAND = 0x1;
+
+    public static final int KICK = 0x2;
+
+    public static final int KICK_FAULT = 0x4;
+
+    public static final int GOALIE = 0x8;
+
+    public static final int CATCH = 0x10;
+
+    public static final int CATCH_FAULT = 0x20;
+
+    public static final int BALL_TO_PLAYER = 0x40;
+
+    public static final int PLAYER_TO_BALL = 0x80;
+
+    public static final int DISCARD = 0x100;
+
+    public static final int LOST = 0x200;
+
+    public static final int BALL_COLLIDE = 0x400;
+
+    public static final int PLAYER_COLLIDE = 0x800;
+
+    public static final int TACKLE = 0x1000;
+
+    public static final int TACKLE_FAULT = 0x2000;
+
+    public static final int BACK_PASS = 0x4000;
+
+    public static final int FREE_KICK_FAULT = 0x8000;
+
+    public static final int POST_COLLIDE = 0x10000;
+
+    public static final int FOUL_CHARGED = 0x20000;
+
+    public static final int YELLOW_CARD = 0x40000;
+
+    public static final int RED_CARD = 0x80000;
+
+    public static final int ILLEGAL_DEFENSE = 0x100000;
+
+    private PlayerFlags() {
+        // no instantiation
+    }
+}
@@ -24,7 +24,8 @@ package robocup.server.connection.message;
  */
 public abstract class RoboCupMessage {
 
-    private final int turn;
+    // not final, pooled show messages are reused (see FramePool)
+    private int turn;
 
     /**
      * @param turn
@@ -43,6 +44,10 @@ public abstract class RoboCupMessage {
         return turn;
     }
 
+    void setTurn(int turn) {
+        this.turn = turn;
+    }
+
     @Override
     public String toString() {
         return "RoboCupMessage [turn=" + turn + "]";
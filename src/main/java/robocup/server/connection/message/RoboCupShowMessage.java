@@ -16,40 +16,243 @@
 
 package robocup.server.connection.message;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * A show message, i.e. a message containing the positions of the ball and all players as well as other information
  * about the current state of the game.
+ * <p>
+ * The positions are stored in primitive arrays indexed as described in {@link EntityIndex}. The string keyed {@link
+ * #getLocations()} and {@link #get(String)} are views on these arrays that create {@link Location} objects only on
+ * access. The remaining state of the ball and the players (velocity, angles, view, stamina, focus, flags and command
+ * counters) is kept in two further arrays with a fixed number of values per entity.
+ * <p>
+ * Subclasses can defer the decoding of the entities until one of their getters is first called, see {@link
+ * #decodePayload()}. The setters are meant for parsers and do not trigger the decoding.
+ * <p>
+ * A message may come from a {@link FramePool}. Such a message is only borrowed by a handler for the duration of {@link
+ * IRoboCupMessageHandler#handleMessage(RoboCupShowMessage)} and is reused for a later turn afterwards. A handler that
+ * keeps the message longer has to {@link #retain()} it and {@link #release()} it when done, or keep a {@link #copy()}.
+ * For messages that do not come from a pool, these methods do nothing.
  *
  * @author Tom Warnke
  */
 public class RoboCupShowMessage extends RoboCupMessage {
 
-    // TODO replace with enum for better readability
-    private final int playmode;
+    // float values per entity
+    private static final int VELOCITY_X = 0;
+    private static final int VELOCITY_Y = 1;
+    private static final int BODY = 2;
+    private static final int NECK = 3;
+    private static final int POINT_X = 4;
+    private static final int POINT_Y = 5;
+    private static final int VIEW_WIDTH = 6;
+    private static final int STAMINA = 7;
+    private static final int EFFORT = 8;
+    private static final int RECOVERY = 9;
+    private static final int CAPACITY = 10;
+    private static final int FLOAT_VALUES = 11;
 
-    private final String leftTeam, rightTeam;
+    // int values per entity
+    private static final int TYPE = 0;
+    private static final int FLAGS = 1;
+    private static final int GROUPS = 2;
+    private static final int FOCUS = 3;
+    private static final int COUNTERS = 4;
+    private static final int INT_VALUES = COUNTERS + PlayerCounters.COUNT;
 
-    private final int leftScore, rightScore;
+    // bits of the GROUPS value, set if the optional part was sent
+    private static final int POINTING = 0x1;
+    private static final int VIEW = 0x2;
+    private static final int HIGH_QUALITY = 0x4;
+    private static final int STAMINA_GROUP = 0x8;
+    private static final int FOCUSING = 0x10;
 
-    private final Map<String, Location> locations = new HashMap<>(23);
+    private static final AtomicIntegerFieldUpdater<RoboCupShowMessage> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(RoboCupShowMessage.class, "references");
+
+    // the id of a PlayMode, the header is not final for pooled messages
+    private int playmode;
+
+    private String leftTeam, rightTeam;
+
+    private int leftScore, rightScore;
+
+    private final float[] x = new float[EntityIndex.COUNT];
+
+    private final float[] y = new float[EntityIndex.COUNT];
+
+    // bit i is set if the entity with index i is contained in the message
+    private int present;
+
+    private final float[] floatValues = new float[EntityIndex.COUNT * FLOAT_VALUES];
+
+    private final int[] intValues = new int[EntityIndex.COUNT * INT_VALUES];
+
+    private Map<String, Location> locations;
+
+    // built on first use, and kept for the next turns of a pooled message
+    private volatile SpatialIndex spatialIndex;
+
+    // true until decodePayload() has set the state of the entities
+    private volatile boolean payloadPending;
+
+    // the pool this message returns to when the last reference is released, or null
+    private final FramePool pool;
+
+    private volatile int references;
 
     public RoboCupShowMessage(int turn, int playmode, String leftTeam,
                               String rightTeam, int leftScore, int rightScore) {
+        this(turn, playmode, leftTeam, rightTeam, leftScore, rightScore, false);
+    }
+
+    /**
+     * @param payloadPending if set to true, the state of the ball and the players is set by {@link #decodePayload()}
+     *                       when it is first accessed
+     */
+    protected RoboCupShowMessage(int turn, int playmode, String leftTeam,
+                                 String rightTeam, int leftScore, int rightScore,
+                                 boolean payloadPending) {
         super(turn);
         this.playmode = playmode;
         this.leftTeam = leftTeam;
         this.rightTeam = rightTeam;
         this.leftScore = leftScore;
         this.rightScore = rightScore;
+        this.payloadPending = payloadPending;
+        this.pool = null;
+    }
+
+    /**
+     * Creates an empty message for the given pool.
+     */
+    RoboCupShowMessage(FramePool pool) {
+        super(0);
+        this.pool = pool;
+    }
+
+    /**
+     * Prepares a pooled message for a new turn: sets the header, clears the state of the entities and sets the
+     * reference count to one.
+     */
+    void reset(int turn, int playmode, String leftTeam, String rightTeam,
+               int leftScore, int rightScore) {
+        setTurn(turn);
+        this.playmode = playmode;
+        this.leftTeam = leftTeam;
+        this.rightTeam = rightTeam;
+        this.leftScore = leftScore;
+        this.rightScore = rightScore;
+        present = 0;
+        positionsChanged();
+        Arrays.fill(x, 0);
+        Arrays.fill(y, 0);
+        Arrays.fill(floatValues, 0);
+        Arrays.fill(intValues, 0);
+        references = 1;
+    }
+
+    /**
+     * @return true if this message comes from a {@link FramePool} and will be reused
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Keeps a pooled message from being reused until {@link #release()} is called.
+     *
+     * @return this message
+     * @throws IllegalStateException if the message has already been returned to its pool
+     */
+    public RoboCupShowMessage retain() {
+        if (pool != null) {
+            int previous;
+            do {
+                previous = references;
+                if (previous <= 0) {
+                    throw new IllegalStateException("The message of turn "
+                            + getTurn() + " has already been released");
+                }
+            } while (!REFERENCES.compareAndSet(this, previous, previous + 1));
+        }
+        return this;
+    }
+
+    /**
+     * Gives up a reference to a pooled message. After the last reference is released, the message returns to its pool
+     * and must not be accessed any more.
+     *
+     * @throws IllegalStateException if the message has already been returned to its pool
+     */
+    public void release() {
+        if (pool != null) {
+            int remaining = REFERENCES.decrementAndGet(this);
+            if (remaining == 0) {
+                pool.recycle(this);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("The message of turn "
+                        + getTurn() + " has already been released");
+            }
+        }
+    }
+
+    /**
+     * @return a message with the same content that is not pooled
+     */
+    public RoboCupShowMessage copy() {
+        ensureDecoded();
+        RoboCupShowMessage copy = new RoboCupShowMessage(getTurn(), playmode,
+                leftTeam, rightTeam, leftScore, rightScore);
+        System.arraycopy(x, 0, copy.x, 0, x.length);
+        System.arraycopy(y, 0, copy.y, 0, y.length);
+        System.arraycopy(floatValues, 0, copy.floatValues, 0, floatValues.length);
+        System.arraycopy(intValues, 0, copy.intValues, 0, intValues.length);
+        copy.present = present;
+        return copy;
+    }
+
+    /**
+     * Sets the state of the ball and the players of a message whose payload is pending, using the setters of this
+     * class. Called at most once, on the first access to the entities, by the thread that accesses them first; the
+     * other threads wait until it is done. The header (turn, play mode, teams and scores) is always available.
+     */
+    protected void decodePayload() {
+        // the state is complete from the start
+    }
+
+    private void ensureDecoded() {
+        if (payloadPending) {
+            decodePendingPayload();
+        }
+    }
+
+    private synchronized void decodePendingPayload() {
+        if (payloadPending) {
+            decodePayload();
+            payloadPending = false;
+        }
     }
 
     public int getPlaymode() {
         return playmode;
     }
 
+    /**
+     * @return the play mode or null if the server sent an unknown id
+     */
+    public PlayMode getPlayMode() {
+        return PlayMode.of(playmode);
+    }
+
     public String getLeftTeam() {
         return leftTeam;
     }
@@ -66,23 +269,443 @@ public class RoboCupShowMessage extends RoboCupMessage {
         return rightScore;
     }
 
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return true if the message contains the position of the entity
+     */
+    public boolean isPresent(int entity) {
+        ensureDecoded();
+        return (present & (1 << entity)) != 0;
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return the x coordinate of the entity, or 0 if it is not present
+     */
+    public float getX(int entity) {
+        ensureDecoded();
+        return x[entity];
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return the y coordinate of the entity, or 0 if it is not present
+     */
+    public float getY(int entity) {
+        ensureDecoded();
+        return y[entity];
+    }
+
+    /**
+     * Sets the position of an entity and marks it as present.
+     *
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public void setPosition(int entity, float x, float y) {
+        this.x[entity] = x;
+        this.y[entity] = y;
+        present |= 1 << entity;
+        positionsChanged();
+    }
+
+    private void positionsChanged() {
+        SpatialIndex index = spatialIndex;
+        if (index != null && index.isBuilt()) {
+            index.invalidate();
+        }
+    }
+
+    /**
+     * Returns the spatial index of the ball and the players of this message for proximity queries, e.g. the player
+     * closest to the ball. The index is built on the first call and shared by all handlers of the message; it only
+     * contains the entities a subscription decodes (see {@link FrameSubscription}), so handlers that use it need the
+     * {@link FrameField#POSITION}.
+     *
+     * @return the spatial index
+     */
+    public SpatialIndex getSpatialIndex() {
+        ensureDecoded();
+        SpatialIndex index = spatialIndex;
+        if (index == null || !index.isBuilt()) {
+            index = buildSpatialIndex();
+        }
+        return index;
+    }
+
+    private synchronized SpatialIndex buildSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialIndex();
+        }
+        if (!spatialIndex.isBuilt()) {
+            spatialIndex.build(x, y, present);
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Sets the velocity of an entity.
+     *
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public void setVelocity(int entity, float velocityX, float velocityY) {
+        floatValues[entity * FLOAT_VALUES + VELOCITY_X] = velocityX;
+        floatValues[entity * FLOAT_VALUES + VELOCITY_Y] = velocityY;
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return the x component of the velocity of the entity
+     */
+    public float getVelocityX(int entity) {
+        ensureDecoded();
+        return floatValues[entity * FLOAT_VALUES + VELOCITY_X];
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     * @return the y component of the velocity of the entity
+     */
+    public float getVelocityY(int entity) {
+        ensureDecoded();
+        return floatValues[entity * FLOAT_VALUES + VELOCITY_Y];
+    }
+
+    /**
+     * Sets the basic state of a player.
+     *
+     * @param player an index of a player as defined in {@link EntityIndex}
+     * @param type   the heterogeneous player type
+     * @param flags  the state flags, see {@link PlayerFlags}
+     * @param body   the body angle in degrees
+     * @param neck   the neck angle relative to the body in degrees
+     */
+    public void setPlayerState(int player, int type, int flags, float body,
+                               float neck) {
+        intValues[player * INT_VALUES + TYPE] = type;
+        intValues[player * INT_VALUES + FLAGS] = flags;
+        floatValues[player * FLOAT_VALUES + BODY] = body;
+        floatValues[player * FLOAT_VALUES + NECK] = neck;
+    }
+
+    public int getPlayerType(int player) {
+        ensureDecoded();
+        return intValues[player * INT_VALUES + TYPE];
+    }
+
+    /**
+     * @param player an index of a player as defined in {@link EntityIndex}
+     * @return the state flags of the player, see {@link PlayerFlags}
+     */
+    public int getFlags(int player) {
+        ensureDecoded();
+        return intValues[player * INT_VALUES + FLAGS];
+    }
+
+    /**
+     * @param player an index of a player as defined in {@link EntityIndex}
+     * @param flag   one or more of the masks in {@link PlayerFlags}
+     * @return true if any of the given flags is set
+     */
+    public boolean hasFlag(int player, int flag) {
+        return (getFlags(player) & flag) != 0;
+    }
+
+    /**
+     * @param player an index of a player as defined in {@link EntityIndex}
+     * @return true if the player kicked the ball in this turn
+     */
+    public boolean touchesBall(int player) {
+        return hasFlag(player, PlayerFlags.KICK);
+    }
+
+    public float getBodyAngle(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + BODY];
+    }
+
+    public float getNeckAngle(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + NECK];
+    }
+
+    /**
+     * Sets the point the player points to.
+     *
+     * @param player an index of a player as defined in {@link EntityIndex}
+     */
+    public void setPointTo(int player, float pointX, float pointY) {
+        floatValues[player * FLOAT_VALUES + POINT_X] = pointX;
+        floatValues[player * FLOAT_VALUES + POINT_Y] = pointY;
+        intValues[player * INT_VALUES + GROUPS] |= POINTING;
+    }
+
+    public boolean isPointing(int player) {
+        ensureDecoded();
+        return (intValues[player * INT_VALUES + GROUPS] & POINTING) != 0;
+    }
+
+    /**
+     * @return the x coordinate of the point the player points to, or NaN if the player does not point
+     */
+    public float getPointX(int player) {
+        return isPointing(player) ? floatValues[player * FLOAT_VALUES + POINT_X] : Float.NaN;
+    }
+
+    /**
+     * @return the y coordinate of the point the player points to, or NaN if the player does not point
+     */
+    public float getPointY(int player) {
+        return isPointing(player) ? floatValues[player * FLOAT_VALUES + POINT_Y] : Float.NaN;
+    }
+
+    /**
+     * Sets the view mode of a player.
+     *
+     * @param player      an index of a player as defined in {@link EntityIndex}
+     * @param highQuality true if the view quality is high
+     * @param width       the view width in degrees
+     */
+    public void setView(int player, boolean highQuality, float width) {
+        floatValues[player * FLOAT_VALUES + VIEW_WIDTH] = width;
+        intValues[player * INT_VALUES + GROUPS] |= highQuality ? VIEW | HIGH_QUALITY : VIEW;
+    }
+
+    /**
+     * @return true if the view mode of the player is known
+     */
+    public boolean hasView(int player) {
+        ensureDecoded();
+        return (intValues[player * INT_VALUES + GROUPS] & VIEW) != 0;
+    }
+
+    public boolean isHighQualityView(int player) {
+        ensureDecoded();
+        return (intValues[player * INT_VALUES + GROUPS] & HIGH_QUALITY) != 0;
+    }
+
+    public float getViewWidth(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + VIEW_WIDTH];
+    }
+
+    /**
+     * Sets the stamina of a player.
+     *
+     * @param player an index of a player as defined in {@link EntityIndex}
+     */
+    public void setStamina(int player, float stamina, float effort,
+                           float recovery, float capacity) {
+        floatValues[player * FLOAT_VALUES + STAMINA] = stamina;
+        floatValues[player * FLOAT_VALUES + EFFORT] = effort;
+        floatValues[player * FLOAT_VALUES + RECOVERY] = recovery;
+        floatValues[player * FLOAT_VALUES + CAPACITY] = capacity;
+        intValues[player * INT_VALUES + GROUPS] |= STAMINA_GROUP;
+    }
+
+    /**
+     * @return true if the stamina of the player is known
+     */
+    public boolean hasStamina(int player) {
+        ensureDecoded();
+        return (intValues[player * INT_VALUES + GROUPS] & STAMINA_GROUP) != 0;
+    }
+
+    public float getStamina(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + STAMINA];
+    }
+
+    public float getEffort(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + EFFORT];
+    }
+
+    public float getRecovery(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + RECOVERY];
+    }
+
+    public float getStaminaCapacity(int player) {
+        ensureDecoded();
+        return floatValues[player * FLOAT_VALUES + CAPACITY];
+    }
+
+    /**
+     * Sets the player another player focuses on.
+     *
+     * @param player the focusing player
+     * @param target the player in focus, both indices as defined in {@link EntityIndex}
+     */
+    public void setFocus(int player, int target) {
+        intValues[player * INT_VALUES + FOCUS] = target;
+        intValues[player * INT_VALUES + GROUPS] |= FOCUSING;
+    }
+
+    /**
+     * @return the index of the player in focus of the given player, or -1 if it does not focus on anyone
+     */
+    public int getFocus(int player) {
+        ensureDecoded();
+        return (intValues[player * INT_VALUES + GROUPS] & FOCUSING) != 0
+                ? intValues[player * INT_VALUES + FOCUS] : -1;
+    }
+
+    /**
+     * @param player  an index of a player as defined in {@link EntityIndex}
+     * @param counter an index as defined in {@link PlayerCounters}
+     */
+    public void setCounter(int player, int counter, int value) {
+        intValues[player * INT_VALUES + COUNTERS + counter] = value;
+    }
+
+    /**
+     * @param player  an index of a player as defined in {@link EntityIndex}
+     * @param counter an index as defined in {@link PlayerCounters}
+     * @return how often the player has executed the command so far
+     */
+    public int getCounter(int player, int counter) {
+        ensureDecoded();
+        return intValues[player * INT_VALUES + COUNTERS + counter];
+    }
+
+    /**
+     * @return a modifiable map view of the positions of all present entities, keyed by their {@link
+     * EntityIndex#key(int)}
+     */
     public Map<String, Location> getLocations() {
+        ensureDecoded();
+        if (locations == null) {
+            locations = new LocationView();
+        }
         return locations;
     }
 
     public Location get(String key) {
-        return locations.get(key);
+        int entity = EntityIndex.indexOf(key);
+        return entity >= 0 && isPresent(entity) ? location(entity) : null;
     }
 
+    /**
+     * @param key   one of the keys defined in {@link EntityIndex}
+     * @param value the location of the entity
+     * @return the previous location of the entity or null
+     * @throws IllegalArgumentException if there is no entity with the given key
+     */
     public Location put(String key, Location value) {
-        return locations.put(key, value);
+        ensureDecoded();
+        int entity = EntityIndex.indexOf(key);
+        if (entity < 0) {
+            throw new IllegalArgumentException("Unknown entity " + key);
+        }
+        Location previous = isPresent(entity) ? location(entity) : null;
+        setPosition(entity, value.getX(), value.getY());
+        return previous;
+    }
+
+    private Location location(int entity) {
+        return new Location(x[entity], y[entity]);
     }
 
     @Override
     public String toString() {
         return super.toString() + " [playmode=" + playmode + ", leftTeam="
                 + leftTeam + ", rightTeam=" + rightTeam + ", leftScore=" + leftScore
-                + ", rightScore=" + rightScore + ", locations=" + locations + "]";
+                + ", rightScore=" + rightScore + ", locations=" + getLocations() + "]";
+    }
+
+    /**
+     * The map returned by {@link #getLocations()}.
+     */
+    private class LocationView extends AbstractMap<String, Location> {
+
+        private final Set<Entry<String, Location>> entries =
+                new AbstractSet<Entry<String, Location>>() {
+
+                    @Override
+                    public Iterator<Entry<String, Location>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return Integer.bitCount(present);
+                    }
+                };
+
+        @Override
+        public Set<Entry<String, Location>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return Integer.bitCount(present);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && get(key) != null;
+        }
+
+        @Override
+        public Location get(Object key) {
+            return key instanceof String ? RoboCupShowMessage.this.get(
+                    (String) key) : null;
+        }
+
+        @Override
+        public Location put(String key, Location value) {
+            return RoboCupShowMessage.this.put(key, value);
+        }
+
+        @Override
+        public Location remove(Object key) {
+            Location previous = get(key);
+            if (previous != null) {
+                present &= ~(1 << EntityIndex.indexOf((String) key));
+                positionsChanged();
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            present = 0;
+            positionsChanged();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, Location>> {
+
+        private int next = Integer.numberOfTrailingZeros(present);
+
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < EntityIndex.COUNT;
+        }
+
+        @Override
+        public Map.Entry<String, Location> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = Integer.numberOfTrailingZeros(present & (-1 << (last + 1)));
+            return new AbstractMap.SimpleImmutableEntry<>(
+                    EntityIndex.key(last), location(last));
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            present &= ~(1 << last);
+            positionsChanged();
+            last = -1;
+        }
     }
 
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+/**
+ * The side of the pitch a team plays on.
+ */
+public enum Side {
+
+    LEFT('l'),
+    RIGHT('r');
+
+    private final char symbol;
+
+    Side(char symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @return the character the soccer server uses for this side
+     */
+    public char getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @param symbol 'l' or 'r'
+     * @return the side for the given character or null if there is none
+     */
+    public static Side of(int symbol) {
+        switch (symbol) {
+            case 'l':
+                return LEFT;
+            case 'r':
+                return RIGHT;
+            default:
+                return null;
+        }
+    }
+
+    public Side opposite() {
+        return this == LEFT ? RIGHT : LEFT;
+    }
+}
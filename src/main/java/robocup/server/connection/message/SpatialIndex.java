@@ -0,0 +1,341 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+import java.util.Arrays;
+
+/**
+ * Proximity queries over the ball and the players of one show message, see {@link
+ * RoboCupShowMessage#getSpatialIndex()}. The index is built once per message on first use and then shared by all
+ * handlers: it holds the distances between all pairs of entities in a 23x23 matrix and a uniform grid of 10 m cells over
+ * the pitch.
+ * <p>
+ * Sets of entities are passed and returned as bit masks in which bit i stands for the entity with the {@link
+ * EntityIndex} i, e.g. {@link #PLAYERS} or {@link #team(Side)}. Iterate over a mask with {@link
+ * Integer#numberOfTrailingZeros(int)}. Entities that are not present in the message are never part of a result.
+ * Queries do not allocate.
+ */
+public final class SpatialIndex {
+
+    /**
+     * The ball.
+     */
+    public static final int BALL = 1 << EntityIndex.BALL;
+
+    /**
+     * All players of both teams.
+     */
+    public static final int PLAYERS = ((1 << EntityIndex.COUNT) - 1) & ~BALL;
+
+    // the grid covers the pitch (105 m x 68 m) with a margin, outside positions fall into the border cells
+    private static final float GRID_MIN_X = -60;
+    private static final float GRID_MIN_Y = -40;
+    private static final float CELL_SIZE = 10;
+    private static final int COLUMNS = 12;
+    private static final int ROWS = 8;
+
+    private final float[] x = new float[EntityIndex.COUNT];
+
+    private final float[] y = new float[EntityIndex.COUNT];
+
+    private int present;
+
+    // distances[a * COUNT + b], NaN if a or b is not present
+    private final float[] distances = new float[EntityIndex.COUNT * EntityIndex.COUNT];
+
+    // the entities in each cell, row by row
+    private final int[] cells = new int[COLUMNS * ROWS];
+
+    // false until built, and again after the positions of the message have changed
+    private volatile boolean built;
+
+    SpatialIndex() {
+        // built by the message
+    }
+
+    /**
+     * @return a mask of the players of the given side
+     */
+    public static int team(Side side) {
+        int first = EntityIndex.player(side, 1);
+        return ((1 << EntityIndex.PLAYERS_PER_TEAM) - 1) << first;
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    void invalidate() {
+        built = false;
+    }
+
+    /**
+     * Builds the index from the positions of a message.
+     *
+     * @param present bit i is set if the entity i is present
+     */
+    void build(float[] positionsX, float[] positionsY, int present) {
+        System.arraycopy(positionsX, 0, x, 0, x.length);
+        System.arraycopy(positionsY, 0, y, 0, y.length);
+        this.present = present;
+        Arrays.fill(cells, 0);
+        Arrays.fill(distances, Float.NaN);
+        for (int a = 0; a < EntityIndex.COUNT; a++) {
+            if ((present & (1 << a)) == 0) {
+                continue;
+            }
+            cells[row(y[a]) * COLUMNS + column(x[a])] |= 1 << a;
+            distances[a * EntityIndex.COUNT + a] = 0;
+            for (int b = a + 1; b < EntityIndex.COUNT; b++) {
+                if ((present & (1 << b)) != 0) {
+                    float distance = (float) Math.hypot(x[a] - x[b], y[a] - y[b]);
+                    distances[a * EntityIndex.COUNT + b] = distance;
+                    distances[b * EntityIndex.COUNT + a] = distance;
+                }
+            }
+        }
+        built = true;
+    }
+
+    private static int column(float x) {
+        return clamp((int) Math.floor((x - GRID_MIN_X) / CELL_SIZE), COLUMNS);
+    }
+
+    private static int row(float y) {
+        return clamp((int) Math.floor((y - GRID_MIN_Y) / CELL_SIZE), ROWS);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return cell < 0 ? 0 : cell >= cells ? cells - 1 : cell;
+    }
+
+    /**
+     * @return the mask of the entities present in the message
+     */
+    public int getPresent() {
+        return present;
+    }
+
+    /**
+     * @param a an entity
+     * @param b another entity
+     * @return the distance between the two entities in meters, or NaN if one of them is not present
+     */
+    public float distance(int a, int b) {
+        return distances[a * EntityIndex.COUNT + b];
+    }
+
+    /**
+     * @param entity     an entity
+     * @param candidates a mask of the entities to consider
+     * @return the candidate closest to the entity other than the entity itself, or -1 if there is none or the entity is
+     * not present
+     */
+    public int nearest(int entity, int candidates) {
+        if ((present & (1 << entity)) == 0) {
+            return -1;
+        }
+        int remaining = candidates & present & ~(1 << entity);
+        int nearest = -1;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        int row = entity * EntityIndex.COUNT;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (distances[row + candidate] < nearestDistance) {
+                nearestDistance = distances[row + candidate];
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @param candidates a mask of the entities to consider, e.g. {@link #PLAYERS} or {@link #team(Side)}
+     * @return the candidate closest to the ball, or -1 if there is none or the ball is not present
+     */
+    public int nearestToBall(int candidates) {
+        return nearest(EntityIndex.BALL, candidates);
+    }
+
+    /**
+     * Finds the k candidates closest to an entity, other than the entity itself.
+     *
+     * @param entity     an entity
+     * @param candidates a mask of the entities to consider
+     * @param result     receives the closest candidates, ordered by distance; its length is k
+     * @return the number of candidates found, at most k
+     */
+    public int nearest(int entity, int candidates, int[] result) {
+        if ((present & (1 << entity)) == 0) {
+            return 0;
+        }
+        int row = entity * EntityIndex.COUNT;
+        int remaining = candidates & present & ~(1 << entity);
+        int found = 0;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            found = insert(result, found, candidate, distances[row + candidate],
+                    row, Float.NaN, Float.NaN);
+        }
+        return found;
+    }
+
+    /**
+     * Finds the k candidates closest to a point.
+     *
+     * @param pointX     the x coordinate of the point
+     * @param pointY     the y coordinate of the point
+     * @param candidates a mask of the entities to consider
+     * @param result     receives the closest candidates, ordered by distance; its length is k
+     * @return the number of candidates found, at most k
+     */
+    public int nearest(float pointX, float pointY, int candidates, int[] result) {
+        int remaining = candidates & present;
+        int found = 0;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            found = insert(result, found, candidate,
+                    distanceTo(candidate, pointX, pointY), -1, pointX, pointY);
+        }
+        return found;
+    }
+
+    /**
+     * Inserts a candidate into the sorted result if it is closer than the farthest one found so far. The distances of
+     * the found candidates are taken from the given matrix row, or computed from the point if the row is -1.
+     *
+     * @return the new number of found candidates
+     */
+    private int insert(int[] result, int found, int candidate, float distance,
+                       int row, float pointX, float pointY) {
+        int k = result.length;
+        int position;
+        if (found < k) {
+            position = found++;
+        } else if (k > 0 && distance < distanceOf(result[k - 1], row, pointX, pointY)) {
+            // replaces the farthest one
+            position = k - 1;
+        } else {
+            return found;
+        }
+        while (position > 0
+                && distanceOf(result[position - 1], row, pointX, pointY) > distance) {
+            result[position] = result[position - 1];
+            position--;
+        }
+        result[position] = candidate;
+        return found;
+    }
+
+    private float distanceOf(int entity, int row, float pointX, float pointY) {
+        return row >= 0 ? distances[row + entity] : distanceTo(entity, pointX, pointY);
+    }
+
+    private float distanceTo(int entity, float pointX, float pointY) {
+        return (float) Math.hypot(x[entity] - pointX, y[entity] - pointY);
+    }
+
+    /**
+     * @param entity     an entity
+     * @param radius     the radius in meters
+     * @param candidates a mask of the entities to consider
+     * @return the mask of the candidates within the radius around the entity, including the entity itself if it is a
+     * candidate
+     */
+    public int withinRadius(int entity, float radius, int candidates) {
+        if ((present & (1 << entity)) == 0) {
+            return 0;
+        }
+        int row = entity * EntityIndex.COUNT;
+        int remaining = candidates & present;
+        int result = 0;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (distances[row + candidate] <= radius) {
+                result |= 1 << candidate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param pointX     the x coordinate of the center
+     * @param pointY     the y coordinate of the center
+     * @param radius     the radius in meters
+     * @param candidates a mask of the entities to consider
+     * @return the mask of the candidates within the radius around the point
+     */
+    public int withinRadius(float pointX, float pointY, float radius,
+                            int candidates) {
+        int remaining = cellsWithin(pointX - radius, pointY - radius,
+                pointX + radius, pointY + radius) & candidates;
+        int result = 0;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (distanceTo(candidate, pointX, pointY) <= radius) {
+                result |= 1 << candidate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param minX       the left edge of the rectangle
+     * @param minY       the lower edge of the rectangle
+     * @param maxX       the right edge of the rectangle
+     * @param maxY       the upper edge of the rectangle
+     * @param candidates a mask of the entities to consider
+     * @return the mask of the candidates within the rectangle, including its edges
+     */
+    public int withinRectangle(float minX, float minY, float maxX, float maxY,
+                               int candidates) {
+        int remaining = cellsWithin(minX, minY, maxX, maxY) & candidates;
+        int result = 0;
+        while (remaining != 0) {
+            int candidate = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (x[candidate] >= minX && x[candidate] <= maxX
+                    && y[candidate] >= minY && y[candidate] <= maxY) {
+                result |= 1 << candidate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the entities in all cells that overlap the given rectangle
+     */
+    private int cellsWithin(float minX, float minY, float maxX, float maxY) {
+        if (minX > maxX || minY > maxY) {
+            return 0;
+        }
+        int lastColumn = column(maxX);
+        int lastRow = row(maxY);
+        int entities = 0;
+        for (int row = row(minY); row <= lastRow; row++) {
+            for (int column = column(minX); column <= lastColumn; column++) {
+                entities |= cells[row * COLUMNS + column];
+            }
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.parser;
+
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.RoboCupMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A parser for the messages the soccer server sends to its monitors. Implementations may keep state between calls and
+ * are in general not thread safe, so every connection should use its own instance (see {@link ParserEngine#create()}).
+ */
+public interface IRoboCupParser {
+
+    /**
+     * Parses the bytes between the position and the limit of the given buffer as a RoboCup message. The position and
+     * the limit of the buffer are not changed. Caution, may return null if the message type is not supported!
+     *
+     * @param message the received message
+     * @return the parsed message or null
+     */
+    RoboCupMessage parseMessage(ByteBuffer message);
+
+    /**
+     * Restricts the values of show messages this parser decodes. Parsers that do not support subscriptions ignore it
+     * and decode everything.
+     *
+     * @param subscription the entities and fields to decode
+     */
+    default void setSubscription(FrameSubscription subscription) {
+        // decode everything
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.parser;
+
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+/**
+ * A show message of which only the header has been parsed. It keeps a copy of the remaining bytes and parses them on
+ * the first access to the ball or the players, with the decoder shared by all lazy messages of a scanner.
+ */
+class LazyShowMessage extends RoboCupShowMessage {
+
+    private byte[] payload;
+
+    private final FrameSubscription subscription;
+
+    private final RoboCupScanner decoder;
+
+    LazyShowMessage(int turn, int playmode, String leftTeam, String rightTeam,
+                    int leftScore, int rightScore, byte[] payload,
+                    FrameSubscription subscription, RoboCupScanner decoder) {
+        super(turn, playmode, leftTeam, rightTeam, leftScore, rightScore, true);
+        this.payload = payload;
+        this.subscription = subscription;
+        this.decoder = decoder;
+    }
+
+    @Override
+    protected void decodePayload() {
+        // handlers on different threads may decode different messages at the same time
+        synchronized (decoder) {
+            decoder.setSubscription(subscription);
+            decoder.scanPayload(this, payload);
+        }
+        payload = null;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.parser;
+
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FramePool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The available parser implementations. Both accept the language described in Message.g4 and produce equal messages.
+ */
+public enum ParserEngine {
+
+    /**
+     * The parser generated by ANTLR from Message.g4. Decodes every message into a string first.
+     */
+    ANTLR {
+        @Override
+        public IRoboCupParser create(FramePool framePool,
+                                     EntityRegistry registry) {
+            return message -> RoboCupParser.parseMessage(decode(message), registry);
+        }
+    },
+
+    /**
+     * The hand-written {@link RoboCupScanner} that works directly on the received bytes.
+     */
+    SCANNER {
+        @Override
+        public IRoboCupParser create(FramePool framePool,
+                                     EntityRegistry registry) {
+            return new RoboCupScanner(false, framePool, registry);
+        }
+    },
+
+    /**
+     * The {@link RoboCupScanner} in lazy mode: only the header of a show message (turn, play mode, teams and scores)
+     * is parsed right away, the ball and the players when they are first accessed. Best suited for handlers that
+     * often need only the header. Errors in the entities are logged when they are parsed, and the message then lacks
+     * the remaining entities instead of being dropped.
+     */
+    LAZY {
+        @Override
+        public IRoboCupParser create(FramePool framePool,
+                                     EntityRegistry registry) {
+            return new RoboCupScanner(true, null, registry);
+        }
+    };
+
+    /**
+     * @return a new parser instance of this engine
+     */
+    public IRoboCupParser create() {
+        return create(null, new EntityRegistry());
+    }
+
+    /**
+     * Creates a parser that takes its show messages from the given pool. Only the {@link #SCANNER} supports pools, the
+     * other engines ignore it and allocate their messages as usual.
+     *
+     * @param framePool the pool of show messages
+     * @return a new parser instance of this engine
+     */
+    public IRoboCupParser create(FramePool framePool) {
+        return create(framePool, new EntityRegistry());
+    }
+
+    /**
+     * Creates a parser that takes its show messages from the given pool, if supported, and the team names from the
+     * given registry. Parsers of the same connection should share the registry, so that all its show messages refer to
+     * the same team name instances.
+     *
+     * @param framePool the pool of show messages, or null to allocate them
+     * @param registry  the registry of the connection
+     * @return a new parser instance of this engine
+     */
+    public abstract IRoboCupParser create(FramePool framePool,
+                                          EntityRegistry registry);
+
+    private static String decode(ByteBuffer message) {
+        if (message.hasArray()) {
+            return new String(message.array(),
+                    message.arrayOffset() + message.position(),
+                    message.remaining(), StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[message.remaining()];
+        message.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -18,17 +18,21 @@ package robocup.server.connection.message.parser;
 
 import org.antlr.v4.runtime.*;
 import org.apache.log4j.Logger;
-import robocup.server.connection.message.Location;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.PlayerCounters;
 import robocup.server.connection.message.RoboCupMessage;
 import robocup.server.connection.message.RoboCupMsgMessage;
 import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.StringJoiner;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Encapsulates the parser.
+ * Encapsulates the parser generated by ANTLR. See {@link RoboCupScanner} for a faster alternative that accepts the same
+ * language.
  *
  * @author Tom Warnke
  */
@@ -47,6 +51,19 @@ public class RoboCupParser {
      * @return
      */
     public static RoboCupMessage parseMessage(String messageString) {
+        return parseMessage(messageString, new EntityRegistry());
+    }
+
+    /**
+     * Parses the given string as a RoboCup message, taking the team names from the given registry. Caution, may
+     * return null if the message type is not supported!
+     *
+     * @param messageString the message
+     * @param registry      the registry of the connection
+     * @return the parsed message or null
+     */
+    public static RoboCupMessage parseMessage(String messageString,
+                                              EntityRegistry registry) {
 
         //    log.info("Parsing: " + messageString);
 
@@ -66,69 +83,95 @@ public class RoboCupParser {
         });
 
         final AtomicReference<RoboCupMessage> result = new AtomicReference<>();
-        final AtomicReference<String> infoString = new AtomicReference<>();
-        final Map<String, Location> locations = new HashMap<>();
+        final StringJoiner infoString = new StringJoiner(" ");
+        final AtomicReference<RoboCupShowMessage> show = new AtomicReference<>();
 
         p.addParseListener(new MessageBaseListener() {
 
             @Override
             public void exitShow(MessageParser.ShowContext ctx) {
+                result.set(show.get());
+            }
 
-                int turn = Integer.parseInt(ctx.stepNumber.getText());
-                int playMode = Integer.parseInt(ctx.playMode.getText());
-                String leftTeam = ctx.leftTeam.getText();
-                String rightTeam = ctx.rightTeam.getText();
-                int leftScore = Integer.parseInt(ctx.leftScore.getText());
-                int rightScore = Integer.parseInt(ctx.rightScore.getText());
+            @Override
+            public void exitBall(MessageParser.BallContext ctx) {
+                // the header of the show message is complete before the ball
+                MessageParser.ShowContext showCtx =
+                        (MessageParser.ShowContext) ctx.getParent();
+                int turn = Integer.parseInt(showCtx.stepNumber.getText());
+                int playMode = Integer.parseInt(showCtx.playMode.getText());
+                String leftTeam = registry.team(Side.LEFT,
+                        showCtx.leftTeam.getText());
+                String rightTeam = registry.team(Side.RIGHT,
+                        showCtx.rightTeam.getText());
+                int leftScore = Integer.parseInt(showCtx.leftScore.getText());
+                int rightScore = Integer.parseInt(showCtx.rightScore.getText());
 
                 RoboCupShowMessage message =
                         new RoboCupShowMessage(turn, playMode, leftTeam,
                                 rightTeam,
                                 leftScore, rightScore);
-                locations.entrySet()
-                        .forEach(loc -> message.put(loc.getKey(), loc
-                                .getValue()));
-
-                result.set(message);
-            }
-
-            @Override
-            public void exitBall(MessageParser.BallContext ctx) {
-                float x = Float.parseFloat(ctx.x.getText());
-                float y = Float.parseFloat(ctx.y.getText());
-                locations.put("ball", new Location(x, y));
+                message.setPosition(EntityIndex.BALL, toFloat(ctx.x),
+                        toFloat(ctx.y));
+                message.setVelocity(EntityIndex.BALL, toFloat(ctx.vx),
+                        toFloat(ctx.vy));
+                show.set(message);
             }
 
             @Override
             public void exitPlayer(MessageParser.PlayerContext ctx) {
-                float x = Float.parseFloat(ctx.x.getText());
-                float y = Float.parseFloat(ctx.y.getText());
-                String id = ctx.side.getText() + ctx.number.getText();
-                locations.put(id, new Location(x, y));
-
-                boolean touchesBall;
-                // strip "0x" and convert to bit string
-                int number = Integer.parseInt(ctx.flags.getText().substring
-                        (2), 16);
-                String binary = Integer.toBinaryString(number);
-                // if the bit before last is set, the player touches the ball
-                if (binary.length() > 1 && binary.charAt(binary.length() - 2)
-                        == '1') {
-                    touchesBall = true;
+                RoboCupShowMessage message = show.get();
+                int player = toPlayer(ctx.side, ctx.number);
+                message.setPosition(player, toFloat(ctx.x), toFloat(ctx.y));
+
+                List<Token> values = ctx.values;
+                message.setVelocity(player, valueAt(values, 0),
+                        valueAt(values, 1));
+                // strip "0x" from the flags
+                int flags = Integer.parseInt(ctx.flags.getText().substring(2), 16);
+                message.setPlayerState(player,
+                        Integer.parseInt(ctx.type.getText()), flags,
+                        valueAt(values, 2), valueAt(values, 3));
+                if (values.size() >= 6) {
+                    message.setPointTo(player, toFloat(values.get(4)),
+                            toFloat(values.get(5)));
+                }
+
+                MessageParser.PlayerViewContext view = ctx.playerView();
+                if (view != null) {
+                    message.setView(player, view.quality.getText().equals("h"),
+                            toFloat(view.width));
+                }
+                MessageParser.PlayerSContext stamina = ctx.playerS();
+                if (stamina != null) {
+                    message.setStamina(player, toFloat(stamina.stamina),
+                            toFloat(stamina.effort), toFloat(stamina.recovery),
+                            toFloat(stamina.capacity));
+                }
+                MessageParser.PlayerFocusContext focus = ctx.playerFocus();
+                if (focus != null) {
+                    message.setFocus(player, toPlayer(focus.side, focus.number));
+                }
+                MessageParser.PlayerCounterContext counters = ctx.playerCounter();
+                if (counters != null) {
+                    for (int i = 0; i < PlayerCounters.COUNT
+                            && i < counters.counters.size(); i++) {
+                        message.setCounter(player, i,
+                                Integer.parseInt(counters.counters.get(i).getText()));
+                    }
                 }
-                touchesBall = false;
             }
 
             @Override
             public void exitInfo(MessageParser.InfoContext ctx) {
                 String info = ctx.infoText.getText();
-                infoString.set(infoString.get() + " " + info);
+                infoString.add(info);
             }
 
             @Override
             public void exitMsg(MessageParser.MsgContext ctx) {
                 int turn = Integer.parseInt(ctx.stepNumber.getText());
-                result.set(new RoboCupMsgMessage(turn, infoString.get()));
+                result.set(new RoboCupMsgMessage(turn, infoString.toString()));
             }
         });
 
@@ -141,4 +184,32 @@ public class RoboCupParser {
 
         return result.get();
     }
+
+    private static float toFloat(Token token) {
+        return Float.parseFloat(token.getText());
+    }
+
+    /**
+     * @return the value with the given index or 0 if there are not as many values
+     */
+    private static float valueAt(List<Token> values, int index) {
+        return index < values.size() ? toFloat(values.get(index)) : 0;
+    }
+
+    /**
+     * @return the index of the player with the given side and uniform number
+     */
+    private static int toPlayer(Token side, Token number) {
+        String uniform = number.getText();
+        int player = -1;
+        // uniform numbers are plain integers without leading zeros
+        if (uniform.charAt(0) != '0' && uniform.indexOf('.') < 0) {
+            player = EntityIndex.player(side.getText().charAt(0),
+                    Integer.parseInt(uniform));
+        }
+        if (player <= EntityIndex.BALL) {
+            throw new IllegalStateException("Unknown player " + side.getText() + uniform);
+        }
+        return player;
+    }
 }
@@ -0,0 +1,708 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.parser;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FrameField;
+import robocup.server.connection.message.FramePool;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.PlayerCounters;
+import robocup.server.connection.message.RoboCupMessage;
+import robocup.server.connection.message.RoboCupMsgMessage;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A hand-written parser for the language described in Message.g4. It scans the received bytes exactly once and converts
+ * numbers directly into primitive values, so no token objects or intermediate strings are created. Team names are
+ * cached and reused as long as they do not change.
+ * <p>
+ * Only the entities and fields of the {@link FrameSubscription} are decoded; players that are not subscribed are
+ * skipped without looking at their content.
+ * <p>
+ * In lazy mode, only the header of a show message is scanned. The rest is copied into a {@link LazyShowMessage} and
+ * scanned when a handler first accesses the ball or the players.
+ * <p>
+ * With a {@link FramePool}, show messages are taken from the pool instead of being allocated, so scanning a show
+ * message allocates nothing.
+ * <p>
+ * The scanner keeps state between calls and is not thread safe.
+ */
+public class RoboCupScanner implements IRoboCupParser {
+
+    private static final Logger log = Logger.getLogger(RoboCupScanner.class);
+
+    private static final byte[] SHOW = bytes("show");
+    private static final byte[] MSG = bytes("msg");
+    private static final byte[] PM = bytes("pm");
+    private static final byte[] TM = bytes("tm");
+    private static final byte[] BALL = bytes("b");
+
+    private static final byte[] VIEW = bytes("v");
+    private static final byte[] STAMINA = bytes("s");
+    private static final byte[] FOCUS = bytes("f");
+    private static final byte[] COUNTER = bytes("c");
+
+    /**
+     * Decimal numbers with at most this many fraction digits and a mantissa below 2^53 are converted by a single
+     * division in double precision. Rounding the result to float then yields the same value as {@link
+     * Float#parseFloat(String)}. All other numbers take the slow path.
+     */
+    private static final int MAX_FAST_FRACTION_DIGITS = 8;
+
+    private static final long MAX_FAST_MANTISSA = 1L << 53;
+
+    private static final int MAX_MANTISSA_DIGITS = 16;
+
+    private static final double[] POWERS_OF_TEN =
+            {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+    private static final ScanException SCAN_FAILURE = new ScanException();
+
+    private final boolean lazy;
+
+    private final FramePool framePool;
+
+    private byte[] data;
+
+    // receives the content of buffers without accessible array
+    private byte[] scratch;
+
+    private int position;
+
+    private int limit;
+
+    // start and end of the last word read by readWord()
+    private int wordStart, wordEnd;
+
+    private final EntityRegistry registry;
+
+    // scans the payload of the lazy messages of this scanner, null if not lazy
+    private final RoboCupScanner decoder;
+
+    private FrameSubscription subscription = FrameSubscription.ALL;
+
+    // the fields of the subscription
+    private boolean decodePosition = true, decodeVelocity = true, decodeBody = true,
+            decodeView = true, decodeStamina = true, decodeFocus = true,
+            decodeCounters = true;
+
+    public RoboCupScanner() {
+        this(false);
+    }
+
+    /**
+     * @param lazy if set to true, show messages are parsed in two phases, see above
+     */
+    public RoboCupScanner(boolean lazy) {
+        this(lazy, null, new EntityRegistry());
+    }
+
+    /**
+     * @param framePool the pool to take the show messages from
+     */
+    public RoboCupScanner(FramePool framePool) {
+        this(false, framePool, new EntityRegistry());
+    }
+
+    /**
+     * @param lazy      if set to true, show messages are parsed in two phases, see above
+     * @param framePool the pool to take the show messages from, or null; not supported in lazy mode
+     * @param registry  the registry that provides the team names
+     */
+    RoboCupScanner(boolean lazy, FramePool framePool, EntityRegistry registry) {
+        if (lazy && framePool != null) {
+            throw new IllegalArgumentException("Lazy messages cannot be pooled");
+        }
+        this.lazy = lazy;
+        this.framePool = framePool;
+        this.registry = registry;
+        this.decoder = lazy ? new RoboCupScanner(false, null, registry) : null;
+    }
+
+    @Override
+    public void setSubscription(FrameSubscription subscription) {
+        this.subscription = subscription;
+        decodePosition = subscription.includes(FrameField.POSITION);
+        decodeVelocity = subscription.includes(FrameField.VELOCITY);
+        decodeBody = subscription.includes(FrameField.BODY);
+        decodeView = subscription.includes(FrameField.VIEW);
+        decodeStamina = subscription.includes(FrameField.STAMINA);
+        decodeFocus = subscription.includes(FrameField.FOCUS);
+        decodeCounters = subscription.includes(FrameField.COUNTERS);
+    }
+
+    @Override
+    public RoboCupMessage parseMessage(ByteBuffer message) {
+        int start;
+        if (message.hasArray()) {
+            data = message.array();
+            start = message.arrayOffset() + message.position();
+        } else {
+            if (scratch == null || scratch.length < message.remaining()) {
+                scratch = new byte[Math.max(4096, message.remaining())];
+            }
+            message.duplicate().get(scratch, 0, message.remaining());
+            data = scratch;
+            start = 0;
+        }
+        position = start;
+        limit = start + message.remaining();
+        try {
+            if (peek() < 0) {
+                return null;
+            }
+            expect('(');
+            if (consumeKeyword(SHOW)) {
+                return scanShow();
+            }
+            if (consumeKeyword(MSG)) {
+                return scanMsg();
+            }
+            // parameter messages and other message types are not supported
+            return null;
+        } catch (ScanException e) {
+            log.error("Failed to parse message at offset "
+                    + (position - start));
+            return null;
+        } finally {
+            data = null;
+        }
+    }
+
+    private RoboCupShowMessage scanShow() {
+        int turn = readInt();
+
+        expect('(');
+        expectKeyword(PM);
+        int playMode = readInt();
+        expect(')');
+
+        expect('(');
+        expectKeyword(TM);
+        readWord();
+        String leftTeam = registry.team(Side.LEFT, data, wordStart, wordEnd);
+        readWord();
+        String rightTeam = registry.team(Side.RIGHT, data, wordStart, wordEnd);
+        int leftScore = readInt();
+        int rightScore = readInt();
+        expect(')');
+
+        if (lazy) {
+            byte[] payload = new byte[limit - position];
+            System.arraycopy(data, position, payload, 0, payload.length);
+            return new LazyShowMessage(turn, playMode, leftTeam, rightTeam,
+                    leftScore, rightScore, payload, subscription, decoder);
+        }
+
+        if (framePool == null) {
+            RoboCupShowMessage message =
+                    new RoboCupShowMessage(turn, playMode, leftTeam, rightTeam,
+                            leftScore, rightScore);
+            scanEntities(message);
+            return message;
+        }
+        RoboCupShowMessage message = framePool.acquire(turn, playMode, leftTeam,
+                rightTeam, leftScore, rightScore);
+        try {
+            scanEntities(message);
+        } catch (ScanException e) {
+            message.release();
+            throw e;
+        }
+        return message;
+    }
+
+    /**
+     * Scans the ball and the players of a show message, i.e. the part after the header, into the message. Used for the
+     * second phase of lazy parsing.
+     *
+     * @param message the message with the header
+     * @param payload the rest of the message
+     */
+    void scanPayload(RoboCupShowMessage message, byte[] payload) {
+        data = payload;
+        position = 0;
+        limit = payload.length;
+        try {
+            scanEntities(message);
+        } catch (ScanException e) {
+            log.error("Failed to parse entities of turn " + message.getTurn()
+                    + " at offset " + position);
+        } finally {
+            data = null;
+        }
+    }
+
+    private void scanEntities(RoboCupShowMessage message) {
+        scanBall(message);
+        do {
+            scanPlayer(message);
+        } while (peek() == '(');
+        expect(')');
+    }
+
+    private void scanBall(RoboCupShowMessage message) {
+        expect('(');
+        expect('(');
+        expectKeyword(BALL);
+        expect(')');
+        if (!subscription.includes(EntityIndex.BALL)) {
+            skipGroup();
+            return;
+        }
+        float x = readFloat(decodePosition);
+        float y = readFloat(decodePosition);
+        float velocityX = readFloat(decodeVelocity);
+        float velocityY = readFloat(decodeVelocity);
+        expect(')');
+        message.setPosition(EntityIndex.BALL, x, y);
+        message.setVelocity(EntityIndex.BALL, velocityX, velocityY);
+    }
+
+    private void scanPlayer(RoboCupShowMessage message) {
+        expect('(');
+        expect('(');
+        readWord();
+        int side = wordEnd - wordStart == 1 ? data[wordStart] : -1;
+        int entity = EntityIndex.player(side, readInt());
+        if (entity < 0) {
+            throw SCAN_FAILURE;
+        }
+        expect(')');
+        if (!subscription.includes(entity)) {
+            skipGroup();
+            return;
+        }
+
+        int type = readInt();
+        int flags = readHexa();
+        float x = readFloat(decodePosition);
+        float y = readFloat(decodePosition);
+        message.setPosition(entity, x, y);
+
+        // velocity, body and neck angle and optionally the point-to position
+        float velocityX = 0, velocityY = 0, body = 0, neck = 0, pointX = 0;
+        int values = 0;
+        if (!decodeVelocity && !decodeBody) {
+            skipValues();
+        } else {
+            do {
+                switch (values++) {
+                    case 0:
+                        velocityX = readFloat(decodeVelocity);
+                        break;
+                    case 1:
+                        velocityY = readFloat(decodeVelocity);
+                        break;
+                    case 2:
+                        body = readFloat(decodeBody);
+                        break;
+                    case 3:
+                        neck = readFloat(decodeBody);
+                        break;
+                    case 4:
+                        pointX = readFloat(decodeBody);
+                        break;
+                    case 5:
+                        float pointY = readFloat(decodeBody);
+                        if (decodeBody) {
+                            message.setPointTo(entity, pointX, pointY);
+                        }
+                        break;
+                    default:
+                        // unknown additional values
+                        skipFloat();
+                }
+            } while (isNumberStart(peek()));
+        }
+        if (decodeVelocity) {
+            message.setVelocity(entity, velocityX, velocityY);
+        }
+        if (decodeBody) {
+            message.setPlayerState(entity, type, flags, body, neck);
+        }
+
+        // optional view mode, stamina, focus and counters, in this order
+        int nextGroup = 0;
+        while (peek() == '(') {
+            expect('(');
+            int group = readGroupKeyword();
+            if (group < nextGroup) {
+                throw SCAN_FAILURE;
+            }
+            nextGroup = group + 1;
+            if (!decodesGroup(group)) {
+                skipGroup();
+                continue;
+            }
+            switch (group) {
+                case 0:
+                    readWord();
+                    boolean highQuality = data[wordStart] == 'h';
+                    message.setView(entity, highQuality, readFloat());
+                    break;
+                case 1:
+                    float stamina = readFloat();
+                    float effort = readFloat();
+                    float recovery = readFloat();
+                    message.setStamina(entity, stamina, effort, recovery,
+                            readFloat());
+                    break;
+                case 2:
+                    readWord();
+                    int focusSide = wordEnd - wordStart == 1 ? data[wordStart] : -1;
+                    int focus = EntityIndex.player(focusSide, readInt());
+                    if (focus < 0) {
+                        throw SCAN_FAILURE;
+                    }
+                    message.setFocus(entity, focus);
+                    break;
+                default:
+                    for (int counter = 0; isNumberStart(peek()); counter++) {
+                        int count = readInt();
+                        if (counter < PlayerCounters.COUNT) {
+                            message.setCounter(entity, counter, count);
+                        }
+                    }
+            }
+            expect(')');
+        }
+        expect(')');
+    }
+
+    private RoboCupMsgMessage scanMsg() {
+        int turn = readInt();
+        // board
+        skipFloat();
+        expect('"');
+        expect('(');
+        StringBuilder info = new StringBuilder();
+        int next;
+        while ((next = peek()) != ')') {
+            int start;
+            if (isNumberStart(next)) {
+                start = position;
+                skipFloat();
+            } else {
+                readWord();
+                start = wordStart;
+            }
+            if (info.length() > 0) {
+                info.append(' ');
+            }
+            for (int i = start; i < position; i++) {
+                info.append((char) data[i]);
+            }
+        }
+        expect(')');
+        expect('"');
+        expect(')');
+        return new RoboCupMsgMessage(turn, info.toString());
+    }
+
+    /**
+     * @param group the index of an optional player group, see {@link #readGroupKeyword()}
+     * @return true if the group is subscribed
+     */
+    private boolean decodesGroup(int group) {
+        switch (group) {
+            case 0:
+                return decodeView;
+            case 1:
+                return decodeStamina;
+            case 2:
+                return decodeFocus;
+            default:
+                return decodeCounters;
+        }
+    }
+
+    /**
+     * @return the index of the keyword of an optional player group (view, stamina, focus, counter)
+     */
+    private int readGroupKeyword() {
+        if (consumeKeyword(VIEW)) {
+            return 0;
+        } else if (consumeKeyword(STAMINA)) {
+            return 1;
+        } else if (consumeKeyword(FOCUS)) {
+            return 2;
+        } else if (consumeKeyword(COUNTER)) {
+            return 3;
+        }
+        throw SCAN_FAILURE;
+    }
+
+    /**
+     * @return the next non-whitespace byte without consuming it, or -1 at the end of the message
+     */
+    private int peek() {
+        while (position < limit) {
+            byte b = data[position];
+            if (b != ' ' && b != '\t') {
+                return b;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw SCAN_FAILURE;
+        }
+        position++;
+    }
+
+    private void expectKeyword(byte[] keyword) {
+        if (!consumeKeyword(keyword)) {
+            throw SCAN_FAILURE;
+        }
+    }
+
+    /**
+     * Consumes the given keyword if it is the next word of the message.
+     *
+     * @return true if the keyword was consumed
+     */
+    private boolean consumeKeyword(byte[] keyword) {
+        peek();
+        int end = position + keyword.length;
+        if (end > limit || (end < limit && isWordPart(data[end]))) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++) {
+            if (data[position + i] != keyword[i]) {
+                return false;
+            }
+        }
+        position = end;
+        return true;
+    }
+
+    /**
+     * Reads a word (String in the grammar) and stores its bounds in wordStart and wordEnd.
+     */
+    private void readWord() {
+        peek();
+        wordStart = position;
+        while (position < limit && isWordPart(data[position])) {
+            position++;
+        }
+        wordEnd = position;
+        if (wordStart == wordEnd) {
+            throw SCAN_FAILURE;
+        }
+    }
+
+    private int readInt() {
+        boolean negative = consumeSign();
+        long value = 0;
+        int start = position;
+        while (position < limit && isDigit(data[position])) {
+            value = value * 10 + (data[position] - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw SCAN_FAILURE;
+            }
+            position++;
+        }
+        if (position == start || (position < limit && data[position] == '.')) {
+            throw SCAN_FAILURE;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw SCAN_FAILURE;
+        }
+        return (int) value;
+    }
+
+    private float readFloat() {
+        peek();
+        int start = position;
+        boolean negative = consumeSign();
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+
+        int integerStart = position;
+        while (position < limit && isDigit(data[position])) {
+            mantissa = accumulate(mantissa, ++digits);
+            position++;
+        }
+        if (position == integerStart) {
+            throw SCAN_FAILURE;
+        }
+        if (position < limit && data[position] == '.') {
+            position++;
+            int fractionStart = position;
+            while (position < limit && isDigit(data[position])) {
+                mantissa = accumulate(mantissa, ++digits);
+                fractionDigits++;
+                position++;
+            }
+            if (position == fractionStart) {
+                throw SCAN_FAILURE;
+            }
+        }
+
+        if (digits <= MAX_MANTISSA_DIGITS && mantissa < MAX_FAST_MANTISSA
+                && fractionDigits <= MAX_FAST_FRACTION_DIGITS) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return (float) (negative ? -value : value);
+        }
+        return Float.parseFloat(newString(start, position));
+    }
+
+    /**
+     * Appends the digit at the current position to the mantissa, unless the mantissa already has too many digits to
+     * take the fast path anyway.
+     */
+    private long accumulate(long mantissa, int digits) {
+        if (digits > MAX_MANTISSA_DIGITS) {
+            return mantissa;
+        }
+        return mantissa * 10 + (data[position] - '0');
+    }
+
+    /**
+     * @param decode if set to false, the number is only skipped
+     * @return the number or 0 if it was skipped
+     */
+    private float readFloat(boolean decode) {
+        if (decode) {
+            return readFloat();
+        }
+        skipFloat();
+        return 0;
+    }
+
+    /**
+     * Skips the numbers up to the next group or the end of the current group, without checking them.
+     */
+    private void skipValues() {
+        while (position < limit && data[position] != '(' && data[position] != ')') {
+            position++;
+        }
+    }
+
+    /**
+     * Skips the rest of the current group up to and including its closing parenthesis, without checking the content.
+     */
+    private void skipGroup() {
+        int depth = 1;
+        while (position < limit) {
+            byte b = data[position++];
+            if (b == '(') {
+                depth++;
+            } else if (b == ')' && --depth == 0) {
+                return;
+            }
+        }
+        throw SCAN_FAILURE;
+    }
+
+    private void skipFloat() {
+        peek();
+        consumeSign();
+        int integerStart = position;
+        while (position < limit && isDigit(data[position])) {
+            position++;
+        }
+        if (position == integerStart) {
+            throw SCAN_FAILURE;
+        }
+        if (position < limit && data[position] == '.') {
+            position++;
+            int fractionStart = position;
+            while (position < limit && isDigit(data[position])) {
+                position++;
+            }
+            if (position == fractionStart) {
+                throw SCAN_FAILURE;
+            }
+        }
+    }
+
+    private int readHexa() {
+        peek();
+        if (position + 2 >= limit || data[position] != '0'
+                || data[position + 1] != 'x') {
+            throw SCAN_FAILURE;
+        }
+        position += 2;
+        int start = position;
+        int value = 0;
+        while (position < limit) {
+            int digit = Character.digit(data[position], 16);
+            if (digit < 0) {
+                break;
+            }
+            value = (value << 4) | digit;
+            position++;
+        }
+        if (position == start) {
+            throw SCAN_FAILURE;
+        }
+        return value;
+    }
+
+    private boolean consumeSign() {
+        peek();
+        if (position < limit && data[position] == '-') {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private String newString(int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNumberStart(int b) {
+        return b == '-' || isDigit(b);
+    }
+
+    private static boolean isWordPart(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    private static byte[] bytes(String keyword) {
+        return keyword.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Signals a message that does not conform to the grammar. A single instance without stack trace is reused, so
+     * failing is cheap.
+     */
+    private static final class ScanException extends RuntimeException {
+
+        ScanException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.recording;
+
+import org.apache.log4j.Logger;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static robocup.server.connection.message.recording.RecordingFormat.*;
+
+/**
+ * A message handler that appends every show message to a binary file, see {@link RecordingFormat} for the layout. The
+ * file is written through memory-mapped regions and every frame takes a record of the same size, so recording a frame
+ * does not allocate. The mapped region of the records grows in steps when it is full.
+ * <p>
+ * Turns up to the index capacity are entered into the turn index of the file. Recordings can be read with {@link
+ * FrameRecording}. The recorder must be closed to write everything to the file.
+ */
+public class FrameRecorder implements IRoboCupMessageHandler, AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(FrameRecorder.class);
+
+    /**
+     * Enough for a match with extra time.
+     */
+    public static final int DEFAULT_INDEX_CAPACITY = 12000;
+
+    private static final int RECORDS_PER_REGION = 4096;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer header;
+
+    private final long recordsOffset;
+
+    private final int indexCapacity;
+
+    private MappedByteBuffer records;
+
+    // number of records the current region can hold
+    private int regionRecords;
+
+    private int recordCount;
+
+    private String leftTeam, rightTeam;
+
+    /**
+     * @param path the file to record to, which is overwritten
+     * @throws IOException if the file cannot be created
+     */
+    public FrameRecorder(String path) throws IOException {
+        this(path, DEFAULT_INDEX_CAPACITY);
+    }
+
+    /**
+     * @param path          the file to record to, which is overwritten
+     * @param indexCapacity the number of turns the turn index can hold
+     * @throws IOException if the file cannot be created
+     */
+    public FrameRecorder(String path, int indexCapacity) throws IOException {
+        if (indexCapacity < 1) {
+            throw new IllegalArgumentException("The index needs at least one turn");
+        }
+        this.indexCapacity = indexCapacity;
+        this.recordsOffset = recordsOffset(indexCapacity);
+
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        // header and index; the mapping zeroes the index
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsOffset);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(ENTITY_COUNT_OFFSET, EntityIndex.COUNT);
+        header.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        header.putInt(INDEX_CAPACITY_OFFSET, indexCapacity);
+        header.putInt(RECORD_COUNT_OFFSET, 0);
+        mapRecords(RECORDS_PER_REGION);
+    }
+
+    @Override
+    public void handleMessage(RoboCupShowMessage message) {
+        if (recordCount == regionRecords) {
+            try {
+                mapRecords(2 * regionRecords);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int turn = message.getTurn();
+        int position = recordCount * RECORD_SIZE;
+        int present = 0;
+        records.putInt(position + TURN, turn);
+        records.putInt(position + PLAYMODE, message.getPlaymode());
+        records.putInt(position + LEFT_SCORE, message.getLeftScore());
+        records.putInt(position + RIGHT_SCORE, message.getRightScore());
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            if (message.isPresent(entity)) {
+                present |= 1 << entity;
+            }
+            records.putFloat(position + X + 4 * entity, message.getX(entity));
+            records.putFloat(position + Y + 4 * entity, message.getY(entity));
+        }
+        records.putInt(position + PRESENT, present);
+
+        if (turn >= 0 && turn < indexCapacity
+                && header.getInt(HEADER_SIZE + 4 * turn) == 0) {
+            header.putInt(HEADER_SIZE + 4 * turn, recordCount + 1);
+        }
+        updateTeams(message);
+
+        recordCount++;
+        header.putInt(RECORD_COUNT_OFFSET, recordCount);
+    }
+
+    /**
+     * @return the number of recorded frames
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.force();
+        header.force();
+        // cut off the unused part of the last region
+        channel.truncate(recordsOffset + (long) recordCount * RECORD_SIZE);
+        channel.close();
+        file.close();
+        log.info("Recorded " + recordCount + " frames");
+    }
+
+    private void updateTeams(RoboCupShowMessage message) {
+        String left = message.getLeftTeam();
+        if (left != null && !left.equals(leftTeam)) {
+            leftTeam = left;
+            putName(LEFT_TEAM_OFFSET, left);
+        }
+        String right = message.getRightTeam();
+        if (right != null && !right.equals(rightTeam)) {
+            rightTeam = right;
+            putName(RIGHT_TEAM_OFFSET, right);
+        }
+    }
+
+    private void putName(int offset, String name) {
+        for (int i = 0; i < TEAM_NAME_LENGTH; i++) {
+            header.put(offset + i, i < name.length() ? (byte) name.charAt(i) : 0);
+        }
+    }
+
+    /**
+     * Maps the region of the records anew so that it holds the given number of records.
+     */
+    private void mapRecords(int capacity) throws IOException {
+        if (records != null) {
+            records.force();
+        }
+        records = channel.map(FileChannel.MapMode.READ_WRITE, recordsOffset,
+                (long) capacity * RECORD_SIZE);
+        regionRecords = capacity;
+    }
+}
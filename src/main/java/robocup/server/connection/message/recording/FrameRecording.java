@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.recording;
+
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static robocup.server.connection.message.recording.RecordingFormat.*;
+
+/**
+ * Read access to a file written by a {@link FrameRecorder}. The file is mapped into memory, so every frame can be
+ * accessed directly by its record number or by its turn without reading the frames before it. The primitive getters
+ * read single values of a record without allocating; {@link #read(int)} creates a complete message.
+ * <p>
+ * The soccer server repeats a turn while the game is not running, e.g. before the kick off, so there can be several
+ * consecutive records of the same turn. The turn index refers to the first of them.
+ */
+public class FrameRecording implements AutoCloseable {
+
+    private final RandomAccessFile file;
+
+    private final MappedByteBuffer header;
+
+    private final MappedByteBuffer records;
+
+    private final int indexCapacity;
+
+    private final int recordCount;
+
+    private final String leftTeam, rightTeam;
+
+    /**
+     * @param path a file written by a {@link FrameRecorder}
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public FrameRecording(String path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is not a frame recording");
+            }
+            MappedByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (start.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException(path + " is not a frame recording");
+            }
+            if (start.getInt(VERSION_OFFSET) != VERSION
+                    || start.getInt(ENTITY_COUNT_OFFSET) != EntityIndex.COUNT
+                    || start.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IOException(path + " has an unsupported format");
+            }
+            indexCapacity = start.getInt(INDEX_CAPACITY_OFFSET);
+            recordCount = start.getInt(RECORD_COUNT_OFFSET);
+            long recordsOffset = recordsOffset(indexCapacity);
+            if (channel.size() < recordsOffset + (long) recordCount * RECORD_SIZE) {
+                throw new IOException(path + " is truncated");
+            }
+
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, recordsOffset);
+            records = channel.map(FileChannel.MapMode.READ_ONLY, recordsOffset,
+                    (long) recordCount * RECORD_SIZE);
+            leftTeam = getName(LEFT_TEAM_OFFSET);
+            rightTeam = getName(RIGHT_TEAM_OFFSET);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of recorded frames
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * @return the name of the left team or null if no frame contained it
+     */
+    public String getLeftTeam() {
+        return leftTeam;
+    }
+
+    /**
+     * @return the name of the right team or null if no frame contained it
+     */
+    public String getRightTeam() {
+        return rightTeam;
+    }
+
+    /**
+     * @param turn a turn of the match
+     * @return the number of the first record of the turn or -1 if the turn was not recorded
+     */
+    public int firstRecordOf(int turn) {
+        if (turn < 0) {
+            return -1;
+        }
+        if (turn < indexCapacity) {
+            return header.getInt(HEADER_SIZE + 4 * turn) - 1;
+        }
+        // beyond the index, the records are sorted by turn
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getTurn(middle) < turn) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low < recordCount && getTurn(low) == turn ? low : -1;
+    }
+
+    public int getTurn(int record) {
+        return records.getInt(offset(record) + TURN);
+    }
+
+    public int getPlaymode(int record) {
+        return records.getInt(offset(record) + PLAYMODE);
+    }
+
+    public int getLeftScore(int record) {
+        return records.getInt(offset(record) + LEFT_SCORE);
+    }
+
+    public int getRightScore(int record) {
+        return records.getInt(offset(record) + RIGHT_SCORE);
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public boolean isPresent(int record, int entity) {
+        return (records.getInt(offset(record) + PRESENT) & (1 << entity)) != 0;
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public float getX(int record, int entity) {
+        return records.getFloat(offset(record) + X + 4 * entity);
+    }
+
+    /**
+     * @param entity an index as defined in {@link EntityIndex}
+     */
+    public float getY(int record, int entity) {
+        return records.getFloat(offset(record) + Y + 4 * entity);
+    }
+
+    /**
+     * @param record the number of a record
+     * @return the recorded frame as a message
+     */
+    public RoboCupShowMessage read(int record) {
+        RoboCupShowMessage message = new RoboCupShowMessage(getTurn(record),
+                getPlaymode(record), leftTeam, rightTeam,
+                getLeftScore(record), getRightScore(record));
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            if (isPresent(record, entity)) {
+                message.setPosition(entity, getX(record, entity),
+                        getY(record, entity));
+            }
+        }
+        return message;
+    }
+
+    /**
+     * @param turn a turn of the match
+     * @return the first recorded frame of the turn or null if the turn was not recorded
+     */
+    public RoboCupShowMessage readTurn(int turn) {
+        int record = firstRecordOf(turn);
+        return record < 0 ? null : read(record);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int offset(int record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("record " + record + " of " + recordCount);
+        }
+        return record * RECORD_SIZE;
+    }
+
+    private String getName(int offset) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < TEAM_NAME_LENGTH; i++) {
+            byte b = header.get(offset + i);
+            if (b == 0) {
+                break;
+            }
+            name.append((char) (b & 0xff));
+        }
+        return name.length() == 0 ? null : name.toString();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.recording;
+
+import robocup.server.connection.message.EntityIndex;
+
+/**
+ * The layout of the binary files written by {@link FrameRecorder} and read by {@link FrameRecording}. All numbers are
+ * stored big endian.
+ * <p>
+ * A file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the format version, the number of
+ * entities per frame, the size of a record, the capacity of the turn index, the number of records written so far and
+ * the two team names (ISO-8859-1, padded with zeros). The header is followed by the turn index, an int per turn that
+ * holds one plus the number of the first record of that turn (0 if there is none), and then by the records themselves.
+ * <p>
+ * A record holds the turn, the play mode, the two scores and a bit mask of the present entities, followed by the x and
+ * then the y coordinates of all entities in the order of {@link EntityIndex}.
+ */
+final class RecordingFormat {
+
+    static final int MAGIC = 0x52435246; // "RCRF"
+
+    static final int VERSION = 1;
+
+    // header
+    static final int MAGIC_OFFSET = 0;
+
+    static final int VERSION_OFFSET = 4;
+
+    static final int ENTITY_COUNT_OFFSET = 8;
+
+    static final int RECORD_SIZE_OFFSET = 12;
+
+    static final int INDEX_CAPACITY_OFFSET = 16;
+
+    static final int RECORD_COUNT_OFFSET = 20;
+
+    static final int LEFT_TEAM_OFFSET = 24;
+
+    static final int RIGHT_TEAM_OFFSET = 56;
+
+    static final int TEAM_NAME_LENGTH = 32;
+
+    static final int HEADER_SIZE = 96;
+
+    // record
+    static final int TURN = 0;
+
+    static final int PLAYMODE = 4;
+
+    static final int LEFT_SCORE = 8;
+
+    static final int RIGHT_SCORE = 12;
+
+    static final int PRESENT = 16;
+
+    static final int X = 20;
+
+    static final int Y = X + 4 * EntityIndex.COUNT;
+
+    static final int RECORD_SIZE = Y + 4 * EntityIndex.COUNT;
+
+    private RecordingFormat() {
+        // no instantiation
+    }
+
+    /**
+     * @return the offset of the first record in a file with the given index capacity
+     */
+    static long recordsOffset(int indexCapacity) {
+        return HEADER_SIZE + 4L * indexCapacity;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PortAllocatorTest {
+
+    @Test
+    public void testDistinctBlocks() throws Exception {
+        ServerPorts first = PortAllocator.allocate();
+        ServerPorts second = PortAllocator.allocate();
+        try {
+            assertNotEquals(first, second);
+            assertEquals(first.getPort() + 1, first.getCoachPort());
+            assertEquals(first.getPort() + 2, first.getOnlineCoachPort());
+            assertNotEquals(first.getPort(), second.getPort());
+        } finally {
+            PortAllocator.release(first);
+            PortAllocator.release(second);
+        }
+        ServerPorts again = PortAllocator.allocate();
+        PortAllocator.release(again);
+        assertEquals(first, again);
+    }
+}
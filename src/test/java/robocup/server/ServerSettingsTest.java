@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ServerSettingsTest {
+
+    @Test
+    public void testArguments() {
+        assertEquals(Arrays.asList("server::team_l_start=../team_l.sh",
+                "server::team_r_start=../team_r.sh", "server::kick_off_wait=150",
+                "server::game_over_wait=0"), new ServerSettings().getArguments());
+
+        ServerSettings settings = ServerSettings.fastForward()
+                .setParameter("synch_offset", "30")
+                .setParameter("player::player_types", "1");
+        assertEquals(Arrays.asList("server::team_l_start=../team_l.sh",
+                "server::team_r_start=../team_r.sh", "server::kick_off_wait=150",
+                "server::game_over_wait=0", "server::synch_mode=on",
+                "server::text_logging=off", "server::synch_offset=30",
+                "player::player_types=1"), settings.getArguments());
+        assertEquals(settings.getArguments(),
+                new ServerSettings(settings).getArguments());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testManagedParameter() {
+        new ServerSettings().setParameter("port", "6000");
+    }
+}
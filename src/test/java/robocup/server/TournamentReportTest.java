@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TournamentReportTest {
+
+    private static final List<MatchSpec> MATCHES = MatchSpec.roundRobin(
+            Arrays.asList("a.sh", "b.sh", "c.sh"), "tournament", new ServerSettings());
+
+    private static MatchResult result(int match, String left, int leftScore,
+                                      String right, int rightScore) {
+        return new MatchResult(MATCHES.get(match), 1, 1000, left, right,
+                leftScore, rightScore, null, null);
+    }
+
+    @Test
+    public void testStandings() {
+        assertEquals(3, MATCHES.size());
+        assertEquals("match-1-2", MATCHES.get(2).getName());
+
+        TournamentReport report = new TournamentReport();
+        report.add(result(0, "A", 2, "B", 0));
+        report.add(result(1, "A", 1, "C", 1));
+        report.add(new MatchResult(MATCHES.get(2), 3, 500, null, null, 0, 0,
+                null, new IOException("no server")));
+
+        assertEquals(3, report.getResults().size());
+        assertEquals(1, report.getFailed());
+        assertEquals(2500, report.getDurationMillis());
+
+        List<TournamentReport.Standing> standings = report.getStandings();
+        assertEquals(3, standings.size());
+        assertEquals("A", standings.get(0).getTeam());
+        assertEquals(4, standings.get(0).getPoints());
+        assertEquals("C", standings.get(1).getTeam());
+        assertEquals("B", standings.get(2).getTeam());
+        assertEquals(1, standings.get(2).getLosses());
+        assertEquals(2, standings.get(2).getGoalsAgainst());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TournamentRunnerTest {
+
+    private static List<MatchSpec> matches(int count) {
+        List<MatchSpec> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            matches.add(new MatchSpec("match-" + i, "a.sh", "b.sh",
+                    "tournament", new ServerSettings()));
+        }
+        return matches;
+    }
+
+    @Test
+    public void testWorkersBoundConcurrentMatches() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        TournamentRunner runner = new TournamentRunner(2, 1,
+                (match, attempt, start) -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(),
+                            Math::max);
+                    try {
+                        // blocks like observeAsync().get() on a real match
+                        CompletableFuture.runAsync(() -> sleep(20)).get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return new MatchResult(match, attempt, 20, "A", "B", 1, 0,
+                            null, null);
+                });
+
+        TournamentReport report = runner.run(matches(8));
+        assertEquals(8, report.getResults().size());
+        assertEquals(0, report.getFailed());
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testRetriesAndFailures() throws Exception {
+        List<MatchResult> results = Collections.synchronizedList(new ArrayList<>());
+        TournamentRunner runner = new TournamentRunner(1, 3,
+                (match, attempt, start) -> {
+                    switch (match.getName()) {
+                        case "match-0":
+                            if (attempt < 2) {
+                                throw new IOException("port in use");
+                            }
+                            return new MatchResult(match, attempt, 0, "A", "B",
+                                    0, 0, null, null);
+                        case "match-1":
+                            throw new IOException("no server");
+                        default:
+                            throw new IllegalStateException("broken team script");
+                    }
+                });
+
+        TournamentReport report = runner.run(matches(3), results::add);
+        assertEquals(3, results.size());
+        assertEquals(2, report.getFailed());
+        for (MatchResult result : results) {
+            switch (result.getSpec().getName()) {
+                case "match-0":
+                    assertEquals(2, result.getAttempts());
+                    assertNull(result.getFailure());
+                    break;
+                case "match-1":
+                    assertEquals(3, result.getAttempts());
+                    assertEquals(2, result.getFailure().getSuppressed().length);
+                    break;
+                default:
+                    // not retried
+                    assertEquals(1, result.getAttempts());
+                    assertTrue(result.getFailure() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+import static org.junit.Assert.*;
+
+public class EntityStatisticsTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+
+    private static RoboCupShowMessage frame(float leftX) {
+        RoboCupShowMessage message = new RoboCupShowMessage(1,
+                PlayMode.PLAY_ON.getId(), "a", "b", 0, 0);
+        message.setPosition(L1, leftX, -10);
+        message.setPosition(R1, 0, 0);
+        return message;
+    }
+
+    @Test
+    public void testMergeWithSwappedSides() {
+        EntityStatistics x = new EntityStatistics(RoboCupShowMessage::getX,
+                SpatialIndex.PLAYERS, true);
+        EntityStatistics unmirrored = new EntityStatistics(RoboCupShowMessage::getX,
+                SpatialIndex.PLAYERS);
+        for (float leftX : new float[]{45, 30}) {
+            x.handleMessage(frame(leftX));
+            unmirrored.handleMessage(frame(leftX));
+        }
+
+        EntityStatistics season = new EntityStatistics(RoboCupShowMessage::getX,
+                SpatialIndex.PLAYERS, true);
+        season.merge(x, true);
+        // l1 was in front of the goal at +x, seen from the right side that is -x
+        RunningStatistics r1 = season.getStatistics(R1);
+        assertEquals(-37.5, r1.getMean(), 0);
+        assertEquals(-45, r1.getMin(), 0);
+        assertEquals(-30, r1.getMax(), 0);
+        assertEquals(x.getStatistics(L1).getVariance(), r1.getVariance(), 0);
+        assertEquals(0, season.getStatistics(L1).getMean(), 0);
+
+        // without mirroring the values are only relabelled
+        EntityStatistics relabelled = new EntityStatistics(RoboCupShowMessage::getX,
+                SpatialIndex.PLAYERS);
+        relabelled.merge(unmirrored, true);
+        assertEquals(37.5, relabelled.getStatistics(R1).getMean(), 0);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+import robocup.server.connection.message.SpatialIndex;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class HeatmapTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RoboCupShowMessage frame(PlayMode playMode, float x, float y) {
+        RoboCupShowMessage message = new RoboCupShowMessage(1, playMode.getId(),
+                "a", "b", 0, 0);
+        message.setPosition(L1, x, y);
+        return message;
+    }
+
+    @Test
+    public void testCountAndMerge() {
+        Heatmap heatmap = Heatmap.allocate(2, true);
+        assertEquals(60, heatmap.getColumns());
+        assertEquals(40, heatmap.getRows());
+        heatmap.handleMessage(frame(PlayMode.PLAY_ON, -51, 3));
+        heatmap.handleMessage(frame(PlayMode.PLAY_ON, -51.5f, 2.5f));
+        heatmap.handleMessage(frame(PlayMode.KICK_OFF_L, 100, 0));
+
+        int column = heatmap.getColumn(-51);
+        int row = heatmap.getRow(3);
+        assertEquals(4, column);
+        assertEquals(21, row);
+        assertEquals(2, heatmap.getCount(L1, PlayMode.PLAY_ON, column, row));
+        assertEquals(2, heatmap.getCount(L1, null, column, row));
+        // outside the grid
+        assertEquals(1, heatmap.getCount(L1, PlayMode.KICK_OFF_L, 59, 20));
+        assertEquals(3, sum(heatmap.getCounts(SpatialIndex.team(Side.LEFT), null)));
+
+        Heatmap season = Heatmap.allocate(2, true);
+        season.merge(heatmap);
+        season.merge(heatmap, true);
+        assertEquals(2, season.getCount(L1, PlayMode.PLAY_ON, column, row));
+        assertEquals(2, season.getCount(R1, PlayMode.PLAY_ON, 59 - column, 39 - row));
+        assertEquals(1, season.getCount(R1, PlayMode.KICK_OFF_R, 0, 19));
+        assertEquals(6, sum(season.getCounts(SpatialIndex.PLAYERS, null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentResolutions() {
+        Heatmap.allocate(2, false).merge(Heatmap.allocate(1, false));
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        Heatmap heatmap = Heatmap.allocate(5, false);
+        heatmap.handleMessage(frame(PlayMode.PLAY_ON, 10, 10));
+        Path saved = folder.getRoot().toPath().resolve("saved.heatmap");
+        heatmap.save(saved);
+
+        Heatmap loaded = Heatmap.map(saved, false);
+        assertFalse(loaded.isByPlayMode());
+        assertEquals(1, loaded.getCount(L1, PlayMode.PLAY_ON,
+                loaded.getColumn(10), loaded.getRow(10)));
+        try {
+            loaded.handleMessage(frame(PlayMode.PLAY_ON, 0, 0));
+            fail("A read only heatmap must not change");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+
+        Path mapped = folder.getRoot().toPath().resolve("mapped.heatmap");
+        Heatmap live = Heatmap.create(mapped, 5, false);
+        live.merge(loaded);
+        live.handleMessage(frame(PlayMode.PLAY_ON, 10, 10));
+        live.force();
+        assertEquals(2, Heatmap.map(mapped, false).getCount(L1, null,
+                live.getColumn(10), live.getRow(10)));
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
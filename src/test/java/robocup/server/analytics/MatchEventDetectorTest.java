@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.PlayerFlags;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MatchEventDetectorTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+
+    private static RoboCupShowMessage frame(int turn, PlayMode mode,
+                                            int leftScore, float ballX,
+                                            float ballY, int leftFlags) {
+        RoboCupShowMessage message = new RoboCupShowMessage(turn,
+                mode.getId(), "a", "b", leftScore, 0);
+        message.setPosition(EntityIndex.BALL, ballX, ballY);
+        message.setPosition(L1, 0, 0);
+        message.setPosition(R1, 20, 0);
+        message.setPlayerState(L1, 0, leftFlags, 0, 0);
+        return message;
+    }
+
+    @Test
+    public void testEvents() {
+        MatchEventDetector detector = new MatchEventDetector();
+        List<MatchEvent> events = new ArrayList<>();
+        detector.addListener(events::add);
+
+        detector.handleMessage(frame(1, PlayMode.KICK_OFF_L, 0, 0, 0, 0));
+        detector.handleMessage(frame(2, PlayMode.PLAY_ON, 0, 0, 0, PlayerFlags.KICK));
+        detector.handleMessage(frame(3, PlayMode.PLAY_ON, 0, 10, 30, 0));
+        // the referee puts the ball back onto the touch line in the cycle it leaves the pitch
+        detector.handleMessage(frame(4, PlayMode.KICK_IN_R, 0, 12, 34, 0));
+        detector.handleMessage(frame(5, PlayMode.PLAY_ON, 0, 12, 34, 0));
+        detector.handleMessage(frame(6, PlayMode.PLAY_ON, 0, 50, 0, 0));
+        // a goal is not an out
+        detector.handleMessage(frame(7, PlayMode.AFTER_GOAL_L, 1, 53, 0, 0));
+
+        MatchEvent.Type[] expected = {MatchEvent.Type.PLAY_MODE_CHANGE,
+                MatchEvent.Type.KICK, MatchEvent.Type.POSSESSION_CHANGE,
+                MatchEvent.Type.PLAY_MODE_CHANGE, MatchEvent.Type.OUT_OF_BOUNDS,
+                MatchEvent.Type.PLAY_MODE_CHANGE, MatchEvent.Type.PLAY_MODE_CHANGE,
+                MatchEvent.Type.GOAL};
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], events.get(i).getType());
+        }
+
+        MatchEvent kick = events.get(1);
+        assertEquals(2, kick.getTurn());
+        assertEquals(L1, kick.getPlayer());
+        assertEquals(Side.LEFT, kick.getSide());
+        // the right team got the kick in, so the left team put the ball out
+        MatchEvent out = events.get(4);
+        assertEquals(4, out.getTurn());
+        assertEquals(Side.LEFT, out.getSide());
+        assertEquals(PlayMode.KICK_IN_R, out.getPlayMode());
+        assertEquals(PlayMode.AFTER_GOAL_L, events.get(6).getPlayMode());
+        assertEquals(Side.LEFT, events.get(7).getSide());
+        assertEquals(Side.LEFT, detector.getPossession());
+    }
+
+    @Test
+    public void testUnknownPlayMode() {
+        MatchEventDetector detector = new MatchEventDetector();
+        List<MatchEvent> events = new ArrayList<>();
+        detector.addListener(events::add);
+
+        detector.handleMessage(frame(1, PlayMode.PLAY_ON, 0, 0, 0, 0));
+        // a play mode of a newer server version
+        detector.handleMessage(new RoboCupShowMessage(2, 99, "a", "b", 0, 0));
+
+        MatchEvent change = events.get(events.size() - 1);
+        assertEquals(2, change.getTurn());
+        assertEquals(MatchEvent.Type.PLAY_MODE_CHANGE, change.getType());
+        assertNull(change.getPlayMode());
+        for (MatchEvent event : events) {
+            assertNotEquals(MatchEvent.Type.OUT_OF_BOUNDS, event.getType());
+        }
+    }
+}
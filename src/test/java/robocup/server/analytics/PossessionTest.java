@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+
+import static org.junit.Assert.*;
+
+public class PossessionTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+
+    private static RoboCupShowMessage frame(int turn, float ballX, float leftX,
+                                            float rightX) {
+        RoboCupShowMessage message = new RoboCupShowMessage(turn,
+                PlayMode.PLAY_ON.getId(), "a", "b", 0, 0);
+        message.setPosition(EntityIndex.BALL, ballX, 0);
+        message.setPosition(L1, leftX, 0);
+        message.setPosition(R1, rightX, 0);
+        return message;
+    }
+
+    @Test
+    public void testPossessionAndDistance() {
+        Possession possession = new Possession();
+        DistanceCovered distance = new DistanceCovered();
+        // open, then left, kept while the ball is loose, then right
+        RoboCupShowMessage[] frames = {frame(1, 0, -10, 10),
+                frame(2, 0, -1, 10), frame(3, 5, 0, 10), frame(4, 9, 0, 10)};
+        for (RoboCupShowMessage frame : frames) {
+            possession.handleMessage(frame);
+            distance.handleMessage(frame);
+        }
+        assertEquals(1, possession.getOpenTurns());
+        assertEquals(2, possession.getTurns(Side.LEFT));
+        assertEquals(1, possession.getTurns(Side.RIGHT));
+        assertEquals(Side.RIGHT, possession.getPossession());
+        // the jump of 9 m is not counted
+        assertEquals(1, distance.getDistance(L1), 1e-6);
+        assertEquals(1, distance.getDistance(Side.LEFT), 1e-6);
+
+        // the teams swap sides in the second match
+        Possession tournament = new Possession();
+        tournament.merge(possession);
+        tournament.merge(possession, true);
+        assertEquals(3, tournament.getTurns(Side.LEFT));
+        assertEquals(3, tournament.getTurns(Side.RIGHT));
+        assertEquals(0.5, tournament.getShare(Side.LEFT), 0);
+
+        DistanceCovered total = new DistanceCovered();
+        total.merge(distance, true);
+        assertEquals(1, total.getDistance(R1), 1e-6);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RunningStatisticsTest {
+
+    @Test
+    public void testMergeEqualsCombined() {
+        RunningStatistics all = new RunningStatistics();
+        RunningStatistics first = new RunningStatistics();
+        RunningStatistics second = new RunningStatistics();
+        for (int i = 0; i < 100; i++) {
+            double value = Math.sin(i) * i;
+            all.add(value);
+            (i < 30 ? first : second).add(value);
+        }
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMean(), first.getMean(), 1e-9);
+        assertEquals(all.getVariance(), first.getVariance(), 1e-6);
+        assertEquals(all.getMin(), first.getMin(), 0);
+        assertEquals(all.getMax(), first.getMax(), 0);
+        assertEquals(all.getSum(), first.getSum(), 1e-6);
+
+        RunningStatistics empty = new RunningStatistics();
+        empty.merge(all);
+        assertEquals(all.getVariance(), empty.getVariance(), 0);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowTest {
+
+    @Test
+    public void testSlidingWindow() {
+        SlidingWindow window = new SlidingWindow(3, null);
+        assertTrue(Double.isNaN(window.getMean()));
+        window.add(1, 1);
+        window.add(2, 2);
+        window.add(3, 3);
+        assertEquals(6, window.getSum(), 0);
+        window.add(4, 4);
+        assertEquals(9, window.getSum(), 0);
+        // turn 5 is lost, 6 leaves only 4 and 6
+        window.add(6, 6);
+        assertEquals(2, window.getCount());
+        assertEquals(5, window.getMean(), 0);
+        // late turns are ignored
+        window.add(5, 100);
+        assertEquals(10, window.getSum(), 0);
+        window.add(20, 1);
+        assertEquals(1, window.getCount());
+        assertEquals(1, window.getSum(), 0);
+    }
+
+    @Test
+    public void testTumblingWindow() {
+        List<String> windows = new ArrayList<>();
+        TumblingWindow window = new TumblingWindow(10, null,
+                (first, statistics) -> windows.add(first + ":" + statistics.getCount()
+                        + ":" + statistics.getSum()));
+        for (int turn = 5; turn < 25; turn++) {
+            window.add(turn, 1);
+        }
+        window.add(40, 2);
+        window.flush();
+        assertEquals(4, windows.size());
+        assertEquals("0:5:5.0", windows.get(0));
+        assertEquals("10:10:10.0", windows.get(1));
+        assertEquals("20:5:5.0", windows.get(2));
+        assertEquals("40:1:2.0", windows.get(3));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.analytics;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+
+import static org.junit.Assert.*;
+
+public class ZoneTimeTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+
+    /**
+     * The ball in the left third, l1 in front of the right goal and r1 in the middle.
+     */
+    private static RoboCupShowMessage frame() {
+        RoboCupShowMessage message = new RoboCupShowMessage(1,
+                PlayMode.PLAY_ON.getId(), "a", "b", 0, 0);
+        message.setPosition(EntityIndex.BALL, -40, 5);
+        message.setPosition(L1, 45, -10);
+        message.setPosition(R1, 0, 0);
+        return message;
+    }
+
+    @Test
+    public void testMergeWithSwappedSides() {
+        ZoneTime zoneTime = new ZoneTime();
+        zoneTime.handleMessage(frame());
+        assertEquals(1, zoneTime.getTurns(EntityIndex.BALL, ZoneTime.DEFENSIVE_THIRD));
+        assertEquals(1, zoneTime.getTurns(L1, ZoneTime.ATTACKING_THIRD));
+
+        // the team of l1 played on the right side in the other match
+        ZoneTime season = new ZoneTime();
+        season.merge(zoneTime, true);
+        assertEquals(1, season.getTurns(R1, ZoneTime.ATTACKING_THIRD));
+        assertEquals(1, season.getTurns(L1, ZoneTime.MIDDLE_THIRD));
+        // the ball was in front of the goal of the team that is on the right after the swap
+        assertEquals(1, season.getTurns(EntityIndex.BALL, ZoneTime.ATTACKING_THIRD));
+        assertEquals(0, season.getTurns(EntityIndex.BALL, ZoneTime.DEFENSIVE_THIRD));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConnectionMetricsTest {
+
+    private static final String SHOW = new Scanner(
+            ConnectionMetricsTest.class.getResourceAsStream("/example.message"),
+            "UTF-8").useDelimiter("\\A").next();
+
+    private static int send(DatagramSocket socket, String message,
+                            SocketAddress target) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        socket.send(new DatagramPacket(bytes, bytes.length, target));
+        return bytes.length;
+    }
+
+    @Test
+    public void testCountersAndMBean() throws Exception {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        MBeanServer mBeans = ManagementFactory.getPlatformMBeanServer();
+        try (DatagramSocket initSocket = new DatagramSocket(0, loopback);
+             DatagramSocket server = new DatagramSocket(0, loopback)) {
+            server.setSoTimeout(5000);
+            SocketAddress[] monitor = new SocketAddress[1];
+            Thread handshake = new Thread(() -> {
+                try {
+                    DatagramPacket init = new DatagramPacket(new byte[4096], 4096);
+                    initSocket.receive(init);
+                    monitor[0] = init.getSocketAddress();
+                    send(server, "(ok init)", monitor[0]);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            handshake.start();
+            SoccerServerConnection connection = new SoccerServerConnection(
+                    "127.0.0.1", initSocket.getLocalPort(), new ConnectionSettings()
+                    .setParserEngine(ParserEngine.SCANNER)
+                    .setReceiveTimeout(5000));
+            handshake.join();
+
+            ConnectionMetrics metrics = connection.getMetrics();
+            ObjectName name = new ObjectName("robocup.server:type=Connection,name="
+                    + ObjectName.quote(metrics.getName()));
+            boolean[] published = new boolean[1];
+            connection.registerMessageHandler(message ->
+                    published[0] = mBeans.isRegistered(name));
+            CompletableFuture<LossSummary> result = connection.observeAsync(false);
+
+            // the kick off
+            server.receive(new DatagramPacket(new byte[4096], 4096));
+            int bytes = send(server, SHOW.replace("(show 23 ", "(show 5999 "), monitor[0]);
+            bytes += send(server, "(server_param (goal_width 14.02))", monitor[0]);
+            bytes += send(server, "(show 6000", monitor[0]);
+            bytes += send(server, SHOW.replace("(show 23 ", "(show 6000 "), monitor[0]);
+            result.get(10, TimeUnit.SECONDS);
+
+            assertEquals(2, metrics.getFrames());
+            assertEquals(bytes, metrics.getBytesReceived());
+            assertEquals(1, metrics.getParseFailures());
+            assertEquals(1, metrics.getUnknownMessages());
+            assertEquals(4, metrics.getParseTime().getCount());
+            assertTrue(published[0]);
+            assertFalse(mBeans.isRegistered(name));
+
+            metrics.reset();
+            assertEquals(0, metrics.getFrames());
+            assertEquals(0, metrics.getParseTime().getCount());
+        }
+    }
+
+    @Test
+    public void testHandlerNamesAreNotReused() {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        handlers.publish(new HandlerSettings());
+        handlers.register(message -> { });
+        // removes the publisher
+        handlers.close();
+        handlers.register(message -> { });
+
+        List<HandlerMetrics> metrics = handlers.getMetrics();
+        assertEquals(2, metrics.size());
+        assertEquals("handler-1", metrics.get(0).getName());
+        assertEquals("handler-2", metrics.get(1).getName());
+    }
+
+    @Test
+    public void testUnsupportedTypes() {
+        assertTrue(ConnectionMetrics.hasUnsupportedType(ascii("(server_param (a 1))")));
+        assertTrue(ConnectionMetrics.hasUnsupportedType(ascii("(player_type (id 0))")));
+        assertFalse(ConnectionMetrics.hasUnsupportedType(ascii("(show 12")));
+        assertFalse(ConnectionMetrics.hasUnsupportedType(ascii("(msg")));
+        assertFalse(ConnectionMetrics.hasUnsupportedType(ascii("garbage")));
+        assertFalse(ConnectionMetrics.hasUnsupportedType(ascii("")));
+    }
+
+    @Test
+    public void testRecordingAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        ConnectionMetrics metrics = new ConnectionMetrics(
+                new MessageHandlerRegistry(), new TurnTracker(
+                new MessageHandlerRegistry(), 0));
+        ByteBuffer unknown = ascii("(server_param (a 1))");
+        ByteBuffer broken = ascii("(show");
+
+        record(metrics, unknown, broken, 20000);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        record(metrics, unknown, broken, 10000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(30000, metrics.getFrames());
+        assertEquals(30000, metrics.getUnknownMessages());
+        // allow for the allocation measurement itself
+        assertTrue(allocated + " bytes for 10000 frames", allocated < 1024);
+    }
+
+    private static void record(ConnectionMetrics metrics, ByteBuffer unknown,
+                               ByteBuffer broken, int frames) {
+        for (int i = 0; i < frames; i++) {
+            long now = System.nanoTime();
+            metrics.recordReceive(i, 1000);
+            metrics.recordParse(i, null, unknown);
+            metrics.recordParse(i, null, broken);
+            metrics.recordFrame(now);
+        }
+    }
+
+    private static ByteBuffer ascii(String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.FramePool;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+public class FramePoolingTest {
+
+    private static final String TURN_PLACEHOLDER = "(show 23 ";
+
+    /**
+     * @return the example show message with a five digit turn that can be changed in place
+     */
+    private static byte[] readShow() {
+        String show = new Scanner(FramePoolingTest.class.getResourceAsStream(
+                "/example.message"), "UTF-8").useDelimiter("\\A").next();
+        return show.replace(TURN_PLACEHOLDER, "(show 10000 ")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void setTurn(byte[] show, int turn) {
+        int offset = "(show ".length();
+        for (int i = 4; i >= 0; i--) {
+            show[offset + i] = (byte) ('0' + turn % 10);
+            turn /= 10;
+        }
+    }
+
+    @Test
+    public void testRetainAndCopy() {
+        FramePool pool = new FramePool();
+        RoboCupShowMessage message = pool.acquire(1, 2, "a", "b", 0, 0);
+        message.setPosition(EntityIndex.BALL, 1, 2);
+        assertTrue(message.isPooled());
+
+        RoboCupShowMessage copy = message.copy();
+        message.retain();
+        message.release();
+        assertEquals(0, pool.getAvailable());
+        message.release();
+        assertEquals(1, pool.getAvailable());
+
+        // the recycled message is cleared, the copy is unaffected
+        RoboCupShowMessage reused = pool.acquire(2, 2, "a", "b", 0, 0);
+        assertSame(message, reused);
+        assertFalse(reused.isPresent(EntityIndex.BALL));
+        assertFalse(copy.isPooled());
+        assertEquals(1, copy.getTurn());
+        assertEquals(2, copy.getY(EntityIndex.BALL), 0);
+        assertEquals(1, pool.getCreated());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetainAfterRelease() {
+        RoboCupShowMessage message = new FramePool().acquire(1, 2, "a", "b", 0, 0);
+        message.release();
+        message.retain();
+    }
+
+    @Test
+    public void testSteadyStateAllocatesNothing() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        SoccerServerConnection connection = new SoccerServerConnection(
+                new UDPConnection("127.0.0.1", 6000), new ConnectionSettings()
+                .setParserEngine(ParserEngine.SCANNER).setFramePooling(true));
+        float[] sum = new float[1];
+        connection.registerMessageHandler(
+                message -> sum[0] += message.getX(EntityIndex.BALL));
+        byte[] show = readShow();
+        ByteBuffer buffer = ByteBuffer.wrap(show);
+
+        int turn = 10000;
+        for (; turn < 30000; turn++) {
+            setTurn(show, turn);
+            connection.handleMessage(buffer);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (; turn < 40000; turn++) {
+            setTurn(show, turn);
+            connection.handleMessage(buffer);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(30000, connection.getLossSummary().getReceived());
+        // allow for the allocation measurement itself
+        assertTrue(allocated + " bytes for 10000 frames", allocated < 1024);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FramePublisherTest {
+
+    /**
+     * Requests one message at a time and records the turns.
+     */
+    private static class SlowSubscriber
+            implements Flow.Subscriber<RoboCupShowMessage> {
+
+        private final List<Integer> turns = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(RoboCupShowMessage message) {
+            turns.add(message.getTurn());
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private static RoboCupShowMessage show(int turn) {
+        return new RoboCupShowMessage(turn, 0, "a", "b", 0, 0);
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        FramePublisher publisher = handlers.publish(
+                new HandlerSettings().setQueueCapacity(4));
+        SlowSubscriber subscriber = new SlowSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int turn = 1; turn <= 1000; turn++) {
+            handlers.dispatch(show(turn));
+        }
+        handlers.close();
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, subscriber.turns.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1, (int) subscriber.turns.get(i));
+        }
+        assertEquals(0, publisher.getDropped());
+    }
+
+    @Test
+    public void testSkipForStalledSubscriber() throws InterruptedException {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        FramePublisher publisher = handlers.publish(new HandlerSettings()
+                .setQueueCapacity(4)
+                .setOverflowPolicy(HandlerSettings.OverflowPolicy.DROP_NEWEST));
+        publisher.subscribe(new Flow.Subscriber<RoboCupShowMessage>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                // never requests anything
+            }
+
+            @Override
+            public void onNext(RoboCupShowMessage item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        // must not block although nothing is consumed
+        for (int turn = 1; turn <= 100; turn++) {
+            handlers.dispatch(show(turn));
+        }
+        assertEquals(96, publisher.getDropped());
+        handlers.close();
+    }
+
+    @Test
+    public void testOnePublisherPerMatch() throws InterruptedException {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        for (int match = 0; match < 2; match++) {
+            SlowSubscriber subscriber = new SlowSubscriber();
+            handlers.publish(new HandlerSettings()).subscribe(subscriber);
+            handlers.dispatch(show(1));
+            handlers.close();
+            assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+            assertEquals(1, subscriber.turns.size());
+        }
+        // the closed publishers are gone
+        assertEquals(0, handlers.getMetrics().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDropOldestUnsupported() {
+        new MessageHandlerRegistry().publish(new HandlerSettings()
+                .setOverflowPolicy(HandlerSettings.OverflowPolicy.DROP_OLDEST));
+    }
+}
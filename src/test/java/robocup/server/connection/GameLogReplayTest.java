@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+public class GameLogReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay() throws Exception {
+        String show = new Scanner(getClass().getResourceAsStream("/example.message"),
+                "UTF-8").useDelimiter("\\A").next().trim();
+        // the same frame as written to a game log, without play mode and teams
+        String logShow = show.replace(" (pm 3) (tm WE_l WE_r 0 0)", "");
+        File log = writeLog("match.rcg", "ULG5",
+                "(server_param (goal_width 14.02))",
+                "(playmode 0 before_kick_off)",
+                "(team 0 WE_l WE_r 0 0)",
+                logShow.replace("(show 23", "(show 0"),
+                "(msg 0 1 \"(team_graphic_l (0 0) \\\"8 8 1 1\\\")\")",
+                "(playmode 1 play_on)",
+                "(team 1 WE_l WE_r 1 0 2 0 1 1)",
+                logShow);
+
+        for (ParserEngine engine : ParserEngine.values()) {
+            GameLogReplay replay = new GameLogReplay(log.getPath(), engine);
+            List<RoboCupShowMessage> frames = new ArrayList<>();
+            replay.registerMessageHandler(frames::add);
+            assertEquals(2, replay.replay());
+
+            assertEquals(PlayMode.BEFORE_KICK_OFF, frames.get(0).getPlayMode());
+            assertEquals(0, frames.get(0).getTurn());
+            RoboCupShowMessage live = (RoboCupShowMessage) engine.create().parseMessage(
+                    ByteBuffer.wrap(show.replace("(pm 3) (tm WE_l WE_r 0 0)",
+                            "(pm 3) (tm WE_l WE_r 1 0)").getBytes(StandardCharsets.ISO_8859_1)));
+            assertEquals(live.toString(), frames.get(1).toString());
+            assertEquals(PlayMode.PLAY_ON, frames.get(1).getPlayMode());
+        }
+    }
+
+    @Test
+    public void testReplayDirectory() throws Exception {
+        String show = "(show 1 ((b) 1 2 0 0) ((l 1) 0 0x1 -10 0 0 0 0 0 (v h 90) (s 8000 1 1 130600) "
+                + "(c 0 0 0 0 0 0 0 0 0 0 0)))";
+        writeLog("a.rcg", "ULG4", "(playmode 1 play_on)", show, show);
+        writeLog("b.rcg", "ULG4", "(playmode 1 play_on)", show);
+        writeLog("ignored.txt", "ULG4", show);
+
+        Map<String, Integer> frames = GameLogReplay.replayDirectory(
+                folder.getRoot().getPath(), 2, ParserEngine.SCANNER,
+                path -> message -> assertEquals(3, message.getPlaymode()));
+        assertEquals(2, frames.size());
+        assertEquals(2, (int) frames.get(new File(folder.getRoot(), "a.rcg").getPath()));
+        assertEquals(1, (int) frames.get(new File(folder.getRoot(), "b.rcg").getPath()));
+    }
+
+    private File writeLog(String name, String... lines) throws Exception {
+        File log = folder.newFile(name);
+        Files.write(log.toPath(), String.join("\n", lines).concat("\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        return log;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class IsolatedMessageHandlerTest {
+
+    /**
+     * Passes turns 1 to 10 to a handler with queue capacity 3 that is blocked until all turns have been passed.
+     *
+     * @return the turns the handler received
+     */
+    private static List<Integer> deliver(HandlerSettings.OverflowPolicy policy,
+                                         long[] counters)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> turns = new ArrayList<>();
+        IsolatedMessageHandler handler = new IsolatedMessageHandler(message -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            turns.add(message.getTurn());
+        }, new HandlerSettings().setIsolated(true).setQueueCapacity(3)
+                .setOverflowPolicy(policy));
+
+        handler.handleMessage(message(1));
+        // turn 1 is being handled, the others queue up
+        started.await();
+        for (int turn = 2; turn <= 10; turn++) {
+            handler.handleMessage(message(turn));
+        }
+        release.countDown();
+        handler.close();
+
+        HandlerStatistics statistics = handler.getStatistics();
+        counters[0] = statistics.getDropped();
+        counters[1] = statistics.getCoalesced();
+        // the handler never sees the last turns if they are dropped
+        assertEquals(policy == HandlerSettings.OverflowPolicy.DROP_NEWEST ? 6 : 0,
+                statistics.getTurnLag());
+        assertEquals(3, statistics.getMaxQueued());
+        return turns;
+    }
+
+    private static RoboCupShowMessage message(int turn) {
+        return new RoboCupShowMessage(turn, 2, "a", "b", 0, 0);
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        long[] counters = new long[2];
+        assertEquals(Arrays.asList(1, 8, 9, 10), deliver(
+                HandlerSettings.OverflowPolicy.DROP_OLDEST, counters));
+        assertEquals(6, counters[0]);
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        long[] counters = new long[2];
+        assertEquals(Arrays.asList(1, 2, 3, 4), deliver(
+                HandlerSettings.OverflowPolicy.DROP_NEWEST, counters));
+        assertEquals(6, counters[0]);
+    }
+
+    @Test
+    public void testCoalesceLatest() throws InterruptedException {
+        long[] counters = new long[2];
+        assertEquals(Arrays.asList(1, 2, 3, 10), deliver(
+                HandlerSettings.OverflowPolicy.COALESCE_LATEST, counters));
+        assertEquals(6, counters[1]);
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        List<Integer> turns = new ArrayList<>();
+        IsolatedMessageHandler handler = new IsolatedMessageHandler(
+                message -> turns.add(message.getTurn()),
+                new HandlerSettings().setIsolated(true).setQueueCapacity(2));
+        for (int turn = 1; turn <= 1000; turn++) {
+            handler.handleMessage(message(turn));
+        }
+        handler.close();
+        assertEquals(1000, turns.size());
+        for (int i = 0; i < turns.size(); i++) {
+            assertEquals(i + 1, (int) turns.get(i));
+        }
+    }
+
+    @Test
+    public void testMissingTurnsAreNeverDiscarded() throws InterruptedException {
+        for (HandlerSettings.OverflowPolicy policy : Arrays.asList(
+                HandlerSettings.OverflowPolicy.DROP_OLDEST,
+                HandlerSettings.OverflowPolicy.COALESCE_LATEST)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            // missing turns as negative numbers
+            List<Integer> turns = new ArrayList<>();
+            IsolatedMessageHandler handler = new IsolatedMessageHandler(
+                    new IRoboCupMessageHandler() {
+                        @Override
+                        public void handleMessage(RoboCupShowMessage message) {
+                            started.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            turns.add(message.getTurn());
+                        }
+
+                        @Override
+                        public void handleMissingTurns(int firstTurn, int lastTurn) {
+                            for (int turn = firstTurn; turn <= lastTurn; turn++) {
+                                turns.add(-turn);
+                            }
+                        }
+                    }, new HandlerSettings().setIsolated(true).setQueueCapacity(3)
+                    .setOverflowPolicy(policy));
+
+            handler.handleMessage(message(1));
+            started.await();
+            handler.handleMessage(message(2));
+            handler.handleMissingTurns(3, 4);
+            for (int turn = 5; turn <= 8; turn++) {
+                handler.handleMessage(message(turn));
+            }
+            handler.handleMissingTurns(9, 9);
+            handler.handleMessage(message(10));
+            // the queue then holds only missing turns, which are merged
+            handler.handleMissingTurns(11, 11);
+            handler.handleMissingTurns(12, 12);
+            handler.handleMessage(message(13));
+            release.countDown();
+            handler.close();
+
+            assertEquals(policy.toString(), Arrays.asList(1, -3, -4, -9, -11, -12),
+                    turns);
+            HandlerStatistics statistics = handler.getStatistics();
+            assertEquals(7, statistics.getDropped() + statistics.getCoalesced());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorEndsDeliveryLoop() {
+        List<Integer> turns = new ArrayList<>();
+        IsolatedMessageHandler handler = new IsolatedMessageHandler(message -> {
+            if (message.getTurn() == 1) {
+                throw new AssertionError("handler bug");
+            }
+            turns.add(message.getTurn());
+        }, new HandlerSettings().setIsolated(true));
+
+        handler.handleMessage(message(1));
+        // returns although the loop died
+        handler.close();
+        // the next message starts a new loop
+        handler.handleMessage(message(2));
+        handler.close();
+
+        assertEquals(Arrays.asList(2), turns);
+        assertEquals(2, handler.getStatistics().getHandled());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ObservationEventLoopTest {
+
+    private static final String SHOW = new Scanner(
+            ObservationEventLoopTest.class.getResourceAsStream("/example.message"),
+            "UTF-8").useDelimiter("\\A").next();
+
+    /**
+     * Answers the monitor handshake from a second socket, as the soccer server does, and then talks to the monitor
+     * from there.
+     */
+    private static class FakeServer implements AutoCloseable {
+
+        private final DatagramSocket initSocket;
+
+        private final DatagramSocket socket;
+
+        private final Thread handshake;
+
+        private volatile SocketAddress monitor;
+
+        FakeServer() throws IOException {
+            initSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            socket.setSoTimeout(5000);
+            handshake = new Thread(() -> {
+                try {
+                    DatagramPacket init = new DatagramPacket(new byte[4096], 4096);
+                    initSocket.receive(init);
+                    monitor = init.getSocketAddress();
+                    send("(ok init)");
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            handshake.start();
+        }
+
+        SoccerServerConnection connect(int receiveTimeout) throws Exception {
+            SoccerServerConnection connection = new SoccerServerConnection(
+                    "127.0.0.1", initSocket.getLocalPort(), new ConnectionSettings()
+                    .setTransport(ConnectionSettings.Transport.DATAGRAM_CHANNEL)
+                    .setParserEngine(ParserEngine.SCANNER)
+                    .setReceiveTimeout(receiveTimeout)
+                    .setMetricsPublished(false));
+            handshake.join();
+            return connection;
+        }
+
+        String receive() throws IOException {
+            DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+            socket.receive(packet);
+            return new String(packet.getData(), 0, packet.getLength(),
+                    StandardCharsets.ISO_8859_1);
+        }
+
+        void send(String message) throws IOException {
+            byte[] bytes = message.getBytes(StandardCharsets.ISO_8859_1);
+            socket.send(new DatagramPacket(bytes, bytes.length, monitor));
+        }
+
+        void sendTurns(int first, int last) throws IOException {
+            for (int turn = first; turn <= last; turn++) {
+                send(SHOW.replaceFirst("\\(show \\d+ ", "(show " + turn + " "));
+            }
+        }
+
+        @Override
+        public void close() {
+            initSocket.close();
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testMatchesShareOneThread() throws Exception {
+        List<FakeServer> servers = new ArrayList<>();
+        List<CompletableFuture<LossSummary>> results = new ArrayList<>();
+        try (ObservationEventLoop eventLoop = new ObservationEventLoop(1)) {
+            for (int i = 0; i < 3; i++) {
+                FakeServer server = new FakeServer();
+                servers.add(server);
+                results.add(server.connect(5000).observeAsync(false, eventLoop));
+            }
+            for (FakeServer server : servers) {
+                // the event loop sends the kick off
+                assertEquals("(dispstart)", server.receive().trim());
+                server.sendTurns(5995, 6000);
+            }
+            for (CompletableFuture<LossSummary> result : results) {
+                LossSummary summary = result.get(10, TimeUnit.SECONDS);
+                assertEquals(6, summary.getReceived());
+                assertEquals(6000, summary.getLastTurn());
+            }
+            assertEquals(0, eventLoop.getObservationCount());
+        } finally {
+            servers.forEach(FakeServer::close);
+        }
+    }
+
+    @Test
+    public void testSilentServerTimesOut() throws Exception {
+        try (FakeServer server = new FakeServer();
+             ObservationEventLoop eventLoop = new ObservationEventLoop(1)) {
+            CompletableFuture<LossSummary> result =
+                    server.connect(300).observeAsync(true, eventLoop);
+            server.sendTurns(1, 2);
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The observation should have timed out");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SocketTimeoutException);
+            }
+        }
+    }
+
+    @Test
+    public void testClosedConnectionFailsObservation() throws Exception {
+        try (FakeServer server = new FakeServer();
+             ObservationEventLoop eventLoop = new ObservationEventLoop(1)) {
+            // without a receive timeout only the closed channel ends the observation
+            SoccerServerConnection connection = server.connect(0);
+            CompletableFuture<LossSummary> result = connection.observeAsync(true, eventLoop);
+            server.sendTurns(1, 2);
+            connection.close();
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The observation should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(0, eventLoop.getObservationCount());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.parser.ParserEngine;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ObservationPipelineTest {
+
+    /**
+     * A connection that receives the datagrams put into its queue and honours the receive timeout.
+     */
+    private static class QueueConnection implements IUDPConnection {
+
+        private final BlockingQueue<String> datagrams = new LinkedBlockingQueue<>();
+
+        private volatile int timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+        @Override
+        public void send(String message) {
+            // nobody listens
+        }
+
+        @Override
+        public ByteBuffer receiveMessage() throws IOException {
+            ByteBuffer buffer = allocateBuffer();
+            receive(buffer);
+            return buffer;
+        }
+
+        @Override
+        public void receive(ByteBuffer buffer) throws IOException {
+            String datagram;
+            try {
+                datagram = datagrams.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (datagram == null) {
+                throw new SocketTimeoutException("Receive timed out");
+            }
+            buffer.clear();
+            buffer.put(datagram.getBytes(StandardCharsets.ISO_8859_1));
+            buffer.flip();
+        }
+
+        @Override
+        public ByteBuffer allocateBuffer() {
+            return ByteBuffer.allocate(4096);
+        }
+
+        @Override
+        public void setTimeout(int timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public DatagramChannel getChannel() {
+            return null;
+        }
+
+        @Override
+        public IUDPConnection receiveNewConnection() {
+            return this;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+
+    private static ObservationPipeline pipeline(IUDPConnection connection,
+                                                int receiveTimeout) {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        ConnectionMetrics metrics = new ConnectionMetrics(handlers,
+                new TurnTracker(handlers, 0));
+        return new ObservationPipeline(connection, receiveTimeout,
+                ParserEngine.SCANNER, FrameSubscription.ALL, 2, 4, null,
+                new EntityRegistry(),
+                metrics);
+    }
+
+    private static String show(int turn) {
+        String show = new Scanner(ObservationPipelineTest.class.getResourceAsStream(
+                "/example.message"), "UTF-8").useDelimiter("\\A").next();
+        return show.replace("(show 23 ", "(show " + turn + " ");
+    }
+
+    @Test
+    public void testStopEndsReceiving() throws IOException {
+        QueueConnection connection = new QueueConnection();
+        ObservationPipeline pipeline = pipeline(connection, 0);
+        pipeline.start();
+        connection.datagrams.add(show(1));
+        ObservationPipeline.Slot slot = pipeline.next();
+        assertEquals(1, ((RoboCupShowMessage) slot.getMessage()).getTurn());
+        pipeline.release(slot);
+
+        pipeline.stop();
+        assertEquals(0, connection.timeoutMillis);
+        // left for the next observation
+        connection.datagrams.add(show(2));
+        assertEquals(0, pipeline.getStatistics().getInFlight());
+        assertEquals(1, connection.datagrams.size());
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testReceiveTimeout() throws IOException {
+        ObservationPipeline pipeline = pipeline(new QueueConnection(), 300);
+        pipeline.start();
+        try {
+            pipeline.next();
+        } finally {
+            pipeline.stop();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReorderBufferTest {
+
+    @Test
+    public void testTakeInSequenceOrder() throws InterruptedException {
+        int capacity = 8;
+        int items = 10000;
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(capacity);
+
+        // complete the items of each window of capacity items in random order
+        Thread producer = new Thread(() -> {
+            Random random = new Random(42);
+            List<Long> window = new ArrayList<>();
+            for (long sequence = 0; sequence < items; sequence += capacity) {
+                window.clear();
+                for (long i = sequence; i < sequence + capacity; i++) {
+                    window.add(i);
+                }
+                Collections.shuffle(window, random);
+                for (Long item : window) {
+                    buffer.put(item, item);
+                }
+                // wait until the consumer has taken the window
+                while (buffer.size() > 0) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        for (long expected = 0; expected < items; expected++) {
+            assertEquals(Long.valueOf(expected), buffer.take());
+        }
+        producer.join();
+        assertTrue(buffer.maxSize() <= capacity);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+import robocup.server.connection.message.FramePool;
+import robocup.server.connection.message.IRoboCupMessageHandler;
+import robocup.server.connection.message.PlayMode;
+import robocup.server.connection.message.RoboCupShowMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TurnTrackerTest {
+
+    /**
+     * Records the turns it is passed, missing turns as negative numbers.
+     */
+    private static class TurnRecorder implements IRoboCupMessageHandler {
+
+        private final List<Integer> turns = new ArrayList<>();
+
+        @Override
+        public void handleMessage(RoboCupShowMessage message) {
+            turns.add(message.getTurn());
+        }
+
+        @Override
+        public void handleMissingTurns(int firstTurn, int lastTurn) {
+            for (int turn = firstTurn; turn <= lastTurn; turn++) {
+                turns.add(-turn);
+            }
+        }
+    }
+
+    private static RoboCupShowMessage show(int turn, PlayMode playMode) {
+        return new RoboCupShowMessage(turn, playMode.getId(), "a", "b", 0, 0);
+    }
+
+    private final TurnRecorder recorder = new TurnRecorder();
+
+    private TurnTracker tracker(int reorderWindow) {
+        MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+        handlers.register(recorder);
+        return new TurnTracker(handlers, reorderWindow);
+    }
+
+    private TurnTracker track(int reorderWindow, int... turns) {
+        TurnTracker tracker = tracker(reorderWindow);
+        for (int turn : turns) {
+            tracker.accept(show(turn, PlayMode.PLAY_ON));
+        }
+        tracker.flush();
+        return tracker;
+    }
+
+    @Test
+    public void testGapsWithoutWindow() {
+        TurnTracker tracker = track(0, 1, 2, 5, 4, 6, 6, 7);
+        assertEquals(Arrays.asList(1, 2, -3, -4, 5, 6, 7),
+                recorder.turns);
+
+        LossSummary summary = tracker.getSummary();
+        assertEquals(1, summary.getFirstTurn());
+        assertEquals(7, summary.getLastTurn());
+        assertEquals(5, summary.getReceived());
+        assertEquals(2, summary.getMissing());
+        assertEquals(1, summary.getGaps());
+        assertEquals(1, summary.getLate());
+        assertEquals(1, summary.getDuplicates());
+        assertEquals(2 / 7.0, summary.getLossRate(), 1e-9);
+    }
+
+    @Test
+    public void testReorderWindow() {
+        // 3 arrives late but within the window, 6 never arrives
+        TurnTracker tracker = track(2, 1, 2, 4, 3, 5, 7, 8, 9, 10);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, -6, 7, 8, 9, 10),
+                recorder.turns);
+
+        LossSummary summary = tracker.getSummary();
+        assertEquals(1, summary.getMissing());
+        assertEquals(1, summary.getReordered());
+        assertEquals(0, summary.getLate());
+    }
+
+    @Test
+    public void testFlushAtEnd() {
+        track(4, 1, 3, 4);
+        assertEquals(Arrays.asList(1, -2, 3, 4), recorder.turns);
+    }
+
+    @Test
+    public void testInterruptionsRepeatTurns() {
+        TurnTracker tracker = tracker(0);
+        tracker.accept(show(0, PlayMode.BEFORE_KICK_OFF));
+        tracker.accept(show(0, PlayMode.BEFORE_KICK_OFF));
+        tracker.accept(show(0, PlayMode.PLAY_ON));
+        tracker.accept(show(1, PlayMode.PLAY_ON));
+        assertEquals(Arrays.asList(0, 0, 0, 1), recorder.turns);
+        assertEquals(0, tracker.getDuplicates());
+    }
+
+    @Test
+    public void testResetReleasesHeldMessages() {
+        FramePool pool = new FramePool();
+        TurnTracker tracker = tracker(4);
+        for (int turn : new int[]{1, 3, 4}) {
+            RoboCupShowMessage message = pool.acquire(turn,
+                    PlayMode.PLAY_ON.getId(), "a", "b", 0, 0);
+            tracker.accept(message);
+            message.release();
+        }
+        // 3 and 4 wait for 2, 3 reuses the message of 1
+        assertEquals(0, pool.getAvailable());
+        tracker.reset();
+        assertEquals(2, pool.getAvailable());
+        assertEquals(2, pool.getCreated());
+    }
+}
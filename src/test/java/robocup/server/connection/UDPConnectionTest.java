@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class UDPConnectionTest {
+
+    private static void send(DatagramSocket socket, String message,
+                             SocketAddress target) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        socket.send(new DatagramPacket(bytes, bytes.length, target));
+    }
+
+    /**
+     * A slow server answers two dispinit messages, each from a monitor port of its own. Only the first one counts.
+     */
+    @Test
+    public void testOnlyFirstRegistrationIsReceived() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (DatagramSocket initSocket = new DatagramSocket(0, loopback);
+             DatagramSocket first = new DatagramSocket(0, loopback);
+             DatagramSocket second = new DatagramSocket(0, loopback)) {
+            IUDPConnection[] connections = {
+                    new UDPConnection("127.0.0.1", initSocket.getLocalPort(), 0),
+                    new NioUDPConnection("127.0.0.1", initSocket.getLocalPort(), 0)};
+            for (IUDPConnection connection : connections) {
+                connection.setTimeout(5000);
+                connection.send("(dispinit version 4)");
+                DatagramPacket init = new DatagramPacket(new byte[4096], 4096);
+                initSocket.receive(init);
+                send(first, "(ok init)", init.getSocketAddress());
+                send(second, "(ok init)", init.getSocketAddress());
+
+                IUDPConnection monitor = connection.receiveNewConnection();
+                send(second, "(show 1)", init.getSocketAddress());
+                send(first, "(show 2)", init.getSocketAddress());
+                ByteBuffer message = monitor.receiveMessage();
+                assertEquals("(show 2)", StandardCharsets.ISO_8859_1
+                        .decode(message).toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RoboCupShowMessageTest {
+
+    @Test
+    public void testLocationView() {
+        RoboCupShowMessage message =
+                new RoboCupShowMessage(1, 2, "a", "b", 0, 0);
+        assertTrue(message.getLocations().isEmpty());
+
+        message.setPosition(EntityIndex.BALL, 1, 2);
+        message.setPosition(EntityIndex.player(Side.RIGHT, 11), 3, 4);
+        assertNull(message.put("l1", new Location(5, 6)));
+
+        Map<String, Location> locations = message.getLocations();
+        assertEquals(3, locations.size());
+        assertEquals(1, message.get("ball").getX(), 0);
+        assertEquals(4, locations.get("r11").getY(), 0);
+        assertEquals(5, message.getX(EntityIndex.player(Side.LEFT, 1)), 0);
+        assertFalse(locations.containsKey("l2"));
+
+        Iterator<Map.Entry<String, Location>> entries =
+                locations.entrySet().iterator();
+        assertEquals("ball", entries.next().getKey());
+        assertEquals("l1", entries.next().getKey());
+        assertEquals("r11", entries.next().getKey());
+        assertFalse(entries.hasNext());
+
+        locations.remove("ball");
+        assertFalse(message.isPresent(EntityIndex.BALL));
+        assertEquals(2, locations.size());
+    }
+
+    @Test
+    public void testEntityIndex() {
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            assertEquals(entity, EntityIndex.indexOf(EntityIndex.key(entity)));
+        }
+        assertEquals(12, EntityIndex.indexOf("r1"));
+        assertEquals(-1, EntityIndex.indexOf("r12"));
+        assertEquals(-1, EntityIndex.indexOf("l01"));
+        assertEquals(-1, EntityIndex.indexOf("x1"));
+        assertEquals(Side.RIGHT, EntityIndex.side(12));
+        assertEquals(1, EntityIndex.uniform(12));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        new RoboCupShowMessage(1, 2, "a", "b", 0, 0).put("l12",
+                new Location(0, 0));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest {
+
+    private static final int L1 = EntityIndex.player(Side.LEFT, 1);
+    private static final int L2 = EntityIndex.player(Side.LEFT, 2);
+    private static final int R1 = EntityIndex.player(Side.RIGHT, 1);
+    private static final int R2 = EntityIndex.player(Side.RIGHT, 2);
+
+    private static int mask(int... entities) {
+        int mask = 0;
+        for (int entity : entities) {
+            mask |= 1 << entity;
+        }
+        return mask;
+    }
+
+    @Test
+    public void testQueries() {
+        RoboCupShowMessage message = new RoboCupShowMessage(1, 2, "a", "b", 0, 0);
+        message.setPosition(EntityIndex.BALL, 0, 0);
+        message.setPosition(L1, 1, 0);
+        message.setPosition(L2, 5, 5);
+        message.setPosition(R1, -2, 0);
+        message.setPosition(R2, 70, 10);
+
+        SpatialIndex index = message.getSpatialIndex();
+        assertSame(index, message.getSpatialIndex());
+        assertEquals(L1, index.nearestToBall(SpatialIndex.PLAYERS));
+        assertEquals(R1, index.nearestToBall(SpatialIndex.team(Side.RIGHT)));
+        assertEquals(R1, index.nearest(L1, SpatialIndex.team(Side.RIGHT)));
+        assertEquals(3, index.distance(L1, R1), 1e-6);
+        assertTrue(Float.isNaN(index.distance(L1, EntityIndex.player(Side.LEFT, 3))));
+        assertEquals(-1, index.nearest(EntityIndex.player(Side.LEFT, 3),
+                SpatialIndex.PLAYERS));
+
+        int[] nearest = new int[3];
+        assertEquals(3, index.nearest(EntityIndex.BALL, SpatialIndex.PLAYERS, nearest));
+        assertArrayEquals(new int[]{L1, R1, L2}, nearest);
+        int[] two = new int[2];
+        assertEquals(2, index.nearest(69, 9, SpatialIndex.PLAYERS, two));
+        assertArrayEquals(new int[]{R2, L2}, two);
+
+        assertEquals(mask(L1, R1), index.withinRadius(EntityIndex.BALL, 3,
+                SpatialIndex.PLAYERS));
+        assertEquals(mask(R2), index.withinRadius(65, 10, 6, SpatialIndex.PLAYERS));
+        assertEquals(mask(EntityIndex.BALL, L1, L2), index.withinRectangle(0, 0, 10,
+                10, -1));
+
+        // moving a player invalidates the index
+        message.setPosition(R2, 0.5f, 0);
+        assertSame(index, message.getSpatialIndex());
+        assertEquals(R2, index.nearestToBall(SpatialIndex.PLAYERS));
+    }
+}
@@ -17,20 +17,46 @@
 package robocup.server.connection.message.parser;
 
 import org.junit.Test;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.EntityRegistry;
+import robocup.server.connection.message.FrameField;
+import robocup.server.connection.message.FrameSubscription;
+import robocup.server.connection.message.Location;
+import robocup.server.connection.message.PlayerCounters;
+import robocup.server.connection.message.PlayerFlags;
 import robocup.server.connection.message.RoboCupMessage;
+import robocup.server.connection.message.RoboCupMsgMessage;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Scanner;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class RoboCupParserTest {
 
+    private static String readExample() {
+        return new Scanner(RoboCupParserTest.class.getResourceAsStream
+                ("/example.message"), "UTF-8").useDelimiter("\\A").next();
+    }
+
+    private static RoboCupMessage scan(IRoboCupParser parser, String message) {
+        return parser.parseMessage(
+                ByteBuffer.wrap(message.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
     @Test
     public void TestAntlr() throws IOException {
 
-        String show =
-                new Scanner(getClass().getResourceAsStream("/example" + "" +
-                        ".message"),
-                        "UTF-8").useDelimiter("\\A").next();
+        String show = readExample();
 
         String msg = "(msg 0 1 \"(change_player_type l 1 1)\")";
 
@@ -41,4 +67,232 @@ public class RoboCupParserTest {
         System.out.println(m2);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testScannerMatchesAntlr() {
+        IRoboCupParser scanner = ParserEngine.SCANNER.create();
+
+        String show = readExample();
+        RoboCupShowMessage expected =
+                (RoboCupShowMessage) RoboCupParser.parseMessage(show);
+        RoboCupShowMessage actual = (RoboCupShowMessage) scan(scanner, show);
+        assertNotNull(actual);
+        assertEquals(expected.getTurn(), actual.getTurn());
+        assertEquals(expected.getPlaymode(), actual.getPlaymode());
+        assertEquals(expected.getLeftTeam(), actual.getLeftTeam());
+        assertEquals(expected.getRightTeam(), actual.getRightTeam());
+        assertEquals(expected.getLeftScore(), actual.getLeftScore());
+        assertEquals(expected.getRightScore(), actual.getRightScore());
+        assertEquals(23, actual.getLocations().size());
+        for (Map.Entry<String, Location> entry : expected.getLocations()
+                .entrySet()) {
+            Location location = actual.get(entry.getKey());
+            assertNotNull(entry.getKey(), location);
+            assertEquals(Float.floatToIntBits(entry.getValue().getX()),
+                    Float.floatToIntBits(location.getX()));
+            assertEquals(Float.floatToIntBits(entry.getValue().getY()),
+                    Float.floatToIntBits(location.getY()));
+        }
+
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            assertSameState(expected, actual, entity);
+        }
+
+        // team names are reused as long as they do not change
+        RoboCupShowMessage next = (RoboCupShowMessage) scan(scanner, show);
+        assertEquals(actual.getLeftTeam(), next.getLeftTeam());
+
+        String msg = "(msg 0 1 \"(change_player_type l 1 1)\")";
+        RoboCupMsgMessage expectedMsg =
+                (RoboCupMsgMessage) RoboCupParser.parseMessage(msg);
+        RoboCupMsgMessage actualMsg = (RoboCupMsgMessage) scan(scanner, msg);
+        assertEquals("change_player_type l 1 1", expectedMsg.getMessage());
+        assertEquals(expectedMsg.getMessage(), actualMsg.getMessage());
+        assertEquals(expectedMsg.getTurn(), actualMsg.getTurn());
+    }
+
+    @Test
+    public void testPlayerState() {
+        String show = readExample();
+        for (ParserEngine engine : ParserEngine.values()) {
+            RoboCupShowMessage message =
+                    (RoboCupShowMessage) scan(engine.create(), show);
+            assertEquals(-0.1958f, message.getVelocityX(EntityIndex.BALL), 0);
+            assertEquals(-0.49f, message.getVelocityY(EntityIndex.BALL), 0);
+
+            // ((l 1) 4 0x9 -47.0176 -3.7005 0 -0 -72.914 77 (v h 120) (s 8000 0.966599 1 130003) (f l 4)
+            // (c 0 6 123 0 1 21 2 128 0 0 10))
+            int goalie = EntityIndex.player(Side.LEFT, 1);
+            assertEquals(4, message.getPlayerType(goalie));
+            assertEquals(PlayerFlags.STAND | PlayerFlags.GOALIE,
+                    message.getFlags(goalie));
+            assertTrue(message.hasFlag(goalie, PlayerFlags.GOALIE));
+            assertFalse(message.touchesBall(goalie));
+            assertEquals(-72.914f, message.getBodyAngle(goalie), 0);
+            assertEquals(77f, message.getNeckAngle(goalie), 0);
+            assertFalse(message.isPointing(goalie));
+            assertTrue(Float.isNaN(message.getPointX(goalie)));
+            assertTrue(message.isHighQualityView(goalie));
+            assertEquals(120f, message.getViewWidth(goalie), 0);
+            assertEquals(8000f, message.getStamina(goalie), 0);
+            assertEquals(0.966599f, message.getEffort(goalie), 0);
+            assertEquals(130003f, message.getStaminaCapacity(goalie), 0);
+            assertEquals(EntityIndex.player(Side.LEFT, 4), message.getFocus(goalie));
+            assertEquals(123, message.getCounter(goalie, PlayerCounters.TURN));
+            assertEquals(10, message.getCounter(goalie, PlayerCounters.ATTENTION_TO));
+
+            // ((l 4) ... (c ...)) has no focus
+            assertEquals(-1, message.getFocus(EntityIndex.player(Side.LEFT, 4)));
+        }
+    }
+
+    @Test
+    public void testLazyScanner() {
+        String show = readExample();
+        RoboCupShowMessage expected = (RoboCupShowMessage) scan(
+                ParserEngine.SCANNER.create(), show);
+        RoboCupShowMessage lazy = (RoboCupShowMessage) scan(
+                ParserEngine.LAZY.create(), show);
+        assertEquals(expected.getTurn(), lazy.getTurn());
+        assertEquals(expected.getRightTeam(), lazy.getRightTeam());
+        assertEquals(expected.toString(), lazy.toString());
+        for (int entity = 0; entity < EntityIndex.COUNT; entity++) {
+            assertSameState(expected, lazy, entity);
+        }
+
+        // errors in the entities do not affect the header
+        RoboCupShowMessage broken = (RoboCupShowMessage) scan(
+                ParserEngine.LAZY.create(), "(show 7 (pm 2) (tm a b 1 0) "
+                        + "((b) 1 2 0 0) ((x 1) 0 0x1 0 0 0))");
+        assertEquals(7, broken.getTurn());
+        assertEquals(1, broken.getLeftScore());
+        assertTrue(broken.isPresent(EntityIndex.BALL));
+        assertEquals(1, broken.getLocations().size());
+    }
+
+    @Test
+    public void testSubscription() {
+        String show = readExample();
+        RoboCupShowMessage full = (RoboCupShowMessage) scan(
+                ParserEngine.SCANNER.create(), show);
+        FrameSubscription subscription = FrameSubscription
+                .of(FrameField.POSITION, FrameField.STAMINA)
+                .ball().team(Side.LEFT).player(Side.RIGHT, 1);
+        for (ParserEngine engine : new ParserEngine[]{ParserEngine.SCANNER,
+                ParserEngine.LAZY}) {
+            IRoboCupParser parser = engine.create();
+            parser.setSubscription(subscription);
+            RoboCupShowMessage message = (RoboCupShowMessage) scan(parser, show);
+
+            assertEquals(13, message.getLocations().size());
+            int goalie = EntityIndex.player(Side.RIGHT, 1);
+            assertEquals(full.getX(goalie), message.getX(goalie), 0);
+            assertEquals(full.getStamina(goalie), message.getStamina(goalie), 0);
+            assertFalse(message.isPresent(EntityIndex.player(Side.RIGHT, 2)));
+            // not subscribed fields
+            assertEquals(0, message.getVelocityX(EntityIndex.BALL), 0);
+            assertEquals(0, message.getFlags(goalie));
+            assertEquals(0, message.getCounter(goalie, PlayerCounters.TURN));
+            assertEquals(-1, message.getFocus(EntityIndex.player(Side.LEFT, 1)));
+        }
+
+        IRoboCupParser headerOnly = ParserEngine.SCANNER.create();
+        headerOnly.setSubscription(FrameSubscription.none());
+        RoboCupShowMessage header = (RoboCupShowMessage) scan(headerOnly, show);
+        assertEquals(full.getTurn(), header.getTurn());
+        assertTrue(header.getLocations().isEmpty());
+    }
+
+    @Test
+    public void testScannerNumbers() {
+        IRoboCupParser scanner = ParserEngine.SCANNER.create();
+        String[] numbers = {"0", "-0", "12", "-47.0176", "0.966599",
+                "130003.5", "1.23456789012", "-0.000000001",
+                "123456789012345678901"};
+        for (String number : numbers) {
+            String show = "(show 1 (pm 2) (tm a b 0 0) ((b) " + number + " 0 0"
+                    + " 0) ((l 1) 0 0x1 0 " + number + " 0))";
+            RoboCupShowMessage message =
+                    (RoboCupShowMessage) scan(scanner, show);
+            assertEquals(number, Float.floatToIntBits(Float.parseFloat
+                    (number)), Float.floatToIntBits(message.get("ball").getX()));
+            assertEquals(number, Float.floatToIntBits(Float.parseFloat
+                    (number)), Float.floatToIntBits(message.get("l1").getY()));
+        }
+    }
+
+    @Test
+    public void testPointingAndKicking() {
+        String show = "(show 1 (pm 2) (tm WE_l WE_r 0 0) ((b) 0 0 0 0) "
+                + "((r 7) 0 0x3 1 2 0.5 -0.5 10 20 30.5 -4))";
+        for (ParserEngine engine : ParserEngine.values()) {
+            RoboCupShowMessage message =
+                    (RoboCupShowMessage) scan(engine.create(), show);
+            int player = EntityIndex.player(Side.RIGHT, 7);
+            assertTrue(message.touchesBall(player));
+            assertEquals(-0.5f, message.getVelocityY(player), 0);
+            assertEquals(20f, message.getNeckAngle(player), 0);
+            assertTrue(message.isPointing(player));
+            assertEquals(30.5f, message.getPointX(player), 0);
+            assertEquals(-4f, message.getPointY(player), 0);
+            assertFalse(message.hasView(player));
+            assertFalse(message.hasStamina(player));
+        }
+    }
+
+    @Test
+    public void testScannerUnsupportedMessages() {
+        IRoboCupParser scanner = ParserEngine.SCANNER.create();
+        assertNull(scan(scanner, "(server_param (goal_width 14.02))"));
+        assertNull(scan(scanner, ""));
+        assertNull(scan(scanner, "(show 1 (pm 2) (tm a b 0 0) ((b) 0 0 0 0))"));
+        assertNull(scan(scanner, "(show 1 (pm 2) (tm a b 0 0) ((b) 0 0 0 0) "
+                + "((l 1) 0 0x1 0 0 0 (c 1) (v h 90)))"));
+    }
+
+    private static void assertSameState(RoboCupShowMessage expected,
+                                        RoboCupShowMessage actual, int entity) {
+        String key = EntityIndex.key(entity);
+        assertEquals(key, expected.getVelocityX(entity), actual.getVelocityX(entity), 0);
+        assertEquals(key, expected.getVelocityY(entity), actual.getVelocityY(entity), 0);
+        assertEquals(key, expected.getPlayerType(entity), actual.getPlayerType(entity));
+        assertEquals(key, expected.getFlags(entity), actual.getFlags(entity));
+        assertEquals(key, expected.getBodyAngle(entity), actual.getBodyAngle(entity), 0);
+        assertEquals(key, expected.getNeckAngle(entity), actual.getNeckAngle(entity), 0);
+        assertEquals(key, expected.isPointing(entity), actual.isPointing(entity));
+        assertEquals(key, expected.isHighQualityView(entity), actual.isHighQualityView(entity));
+        assertEquals(key, expected.getViewWidth(entity), actual.getViewWidth(entity), 0);
+        assertEquals(key, expected.getStamina(entity), actual.getStamina(entity), 0);
+        assertEquals(key, expected.getEffort(entity), actual.getEffort(entity), 0);
+        assertEquals(key, expected.getRecovery(entity), actual.getRecovery(entity), 0);
+        assertEquals(key, expected.getStaminaCapacity(entity),
+                actual.getStaminaCapacity(entity), 0);
+        assertEquals(key, expected.getFocus(entity), actual.getFocus(entity));
+        for (int counter = 0; counter < PlayerCounters.COUNT; counter++) {
+            assertEquals(key, expected.getCounter(entity, counter),
+                    actual.getCounter(entity, counter));
+        }
+    }
+
+    @Test
+    public void testSharedEntityRegistry() {
+        String show = readExample();
+        for (ParserEngine engine : ParserEngine.values()) {
+            EntityRegistry registry = new EntityRegistry();
+            RoboCupShowMessage first = (RoboCupShowMessage) scan(
+                    engine.create(null, registry), show);
+            RoboCupShowMessage second = (RoboCupShowMessage) scan(
+                    engine.create(null, registry), show);
+
+            // the same instances, even from different parsers
+            assertTrue(first.getLeftTeam() == second.getLeftTeam());
+            assertTrue(first.getLeftTeam() == registry.getTeam(Side.LEFT));
+            assertEquals("WE_r", registry.getTeam(Side.RIGHT));
+            assertEquals(Side.RIGHT, registry.getSide(second.getRightTeam()));
+            assertEquals(2, registry.getTeams().size());
+            assertEquals(1, registry.getTeamId("WE_r"));
+            assertEquals(EntityIndex.player(Side.RIGHT, 3),
+                    registry.player(second.getRightTeam(), 3));
+            assertEquals(-1, registry.player("other", 3));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Tom Warnke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package robocup.server.connection.message.recording;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import robocup.server.connection.message.EntityIndex;
+import robocup.server.connection.message.RoboCupShowMessage;
+import robocup.server.connection.message.Side;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRandomAccessByTurn() throws Exception {
+        File file = folder.newFile("match.rcf");
+        int frames = 5000; // more than the first mapped region holds
+        try (FrameRecorder recorder = new FrameRecorder(file.getPath(), 4000)) {
+            // the turn 0 is repeated until the kick off
+            for (int i = 0; i < 3; i++) {
+                recorder.handleMessage(frame(0));
+            }
+            for (int turn = 1; turn < frames; turn++) {
+                recorder.handleMessage(frame(turn));
+            }
+        }
+
+        try (FrameRecording recording = new FrameRecording(file.getPath())) {
+            assertEquals(frames + 2, recording.size());
+            assertEquals("left", recording.getLeftTeam());
+            assertEquals("right", recording.getRightTeam());
+
+            assertEquals(0, recording.firstRecordOf(0));
+            assertEquals(3, recording.firstRecordOf(1));
+            // beyond the index capacity
+            assertEquals(4501, recording.firstRecordOf(4499));
+            assertEquals(-1, recording.firstRecordOf(frames));
+
+            RoboCupShowMessage message = recording.readTurn(1234);
+            assertEquals(1234, message.getTurn());
+            assertEquals(2, message.getPlaymode());
+            assertEquals(1234f, message.getX(EntityIndex.BALL), 0);
+            assertEquals(-1f, message.getY(EntityIndex.player(Side.RIGHT, 3)), 0);
+            assertFalse(message.isPresent(EntityIndex.player(Side.LEFT, 1)));
+            assertEquals(4499f, recording.getX(recording.firstRecordOf(4499),
+                    EntityIndex.BALL), 0);
+        }
+    }
+
+    private static RoboCupShowMessage frame(int turn) {
+        RoboCupShowMessage message =
+                new RoboCupShowMessage(turn, 2, "left", "right", 0, 1);
+        message.setPosition(EntityIndex.BALL, turn, 0.5f);
+        message.setPosition(EntityIndex.player(Side.RIGHT, 3), 10, -1);
+        return message;
+    }
+}